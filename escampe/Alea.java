@@ -0,0 +1,47 @@
+package escampe;
+
+/**
+ * Générateur pseudo-aléatoire rapide (SplitMix64) sans synchronisation, à raison d'une
+ * instance par thread : contrairement à un java.util.Random partagé, aucun CAS sur une
+ * graine commune entre les threads.
+ */
+public final class Alea {
+    private static final ThreadLocal<Alea> PAR_THREAD = ThreadLocal.withInitial(
+            () -> new Alea(System.nanoTime() ^ (Thread.currentThread().getId() * 0x9E3779B97F4A7C15L)));
+
+    private long etat;
+
+    public Alea(long graine) {
+        this.etat = graine;
+    }
+
+    /**
+     * Générateur du thread courant
+     */
+    public static Alea courant() {
+        return PAR_THREAD.get();
+    }
+
+    /**
+     * Remplace le générateur du thread courant par un générateur de graine donnée (suite
+     * reproductible, pour le bench)
+     */
+    public static void fixer(long graine) {
+        PAR_THREAD.set(new Alea(graine));
+    }
+
+    public long suivant() {
+        long z = (etat += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Entier uniforme dans [0, borne[ (multiplication plutôt que modulo ; le biais est
+     * négligeable pour les petites bornes utilisées ici)
+     */
+    public int entier(int borne) {
+        return (int) (((suivant() >>> 32) * borne) >>> 32);
+    }
+}
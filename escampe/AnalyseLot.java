@@ -0,0 +1,262 @@
+package escampe;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Analyse en lot d'un fichier de positions (une notation NotationPosition par ligne, '#' pour
+ * les commentaires) à profondeur ou temps fixe par position.
+ *
+ * Le fichier est projeté en mémoire et lu sans copie. Les positions sont regroupées en lots
+ * soumis à un ForkJoinPool (vol de tâches) ; chaque thread a son propre MonJoueur, et tous
+ * peuvent partager une même table de transposition. Un nombre borné de lots est en vol :
+ * les résultats sont écrits dans l'ordre du fichier sans tout garder en mémoire.
+ *
+ * Une ligne de résultat par position :
+ *     notation;coup;score;profondeur;noeuds;tempsMs;variante principale
+ * ou, pour une ligne illisible : ligne;ERREUR;message
+ *
+ * Avec une table partagée, le résultat d'une position dépend de celles analysées avant elle
+ * par les autres threads : les sorties ne sont reproductibles qu'avec des tables propres.
+ *
+ * Exemple: >java -Descampe.threads=8 -cp . escampe.AnalyseLot positions.txt analyses.txt 6 0 oui
+ */
+public class AnalyseLot {
+    // Segments projetés de 1 Go ; chacun déborde sur le suivant pour contenir ses dernières lignes
+    private static final long TAILLE_SEGMENT = 1L << 30;
+    private static final int LONGUEUR_MAX_LIGNE = 4096;
+    private static final int POSITIONS_PAR_LOT = 16;
+    private static final int LOTS_EN_VOL_PAR_THREAD = 8;
+    private static final long PERIODE_PROGRES_MS = 1000;
+
+    private final MappedByteBuffer[] segments;
+    // Lignes utiles : début (position dans le fichier) et longueur
+    private long[] debuts = new long[1024];
+    private int[] longueurs = new int[1024];
+    private int nbPositions;
+
+    private final int profondeur;
+    private final long tempsMs;
+    private final TableTransposition tablePartagee;
+    // Partagé avec la table : les threads profitent des feuilles évaluées par les autres
+    private final CacheEvaluation cachePartage;
+    private final ThreadLocal<Analyseur> analyseurs = ThreadLocal.withInitial(Analyseur::new);
+    private final Queue<Analyseur> tousAnalyseurs = new ConcurrentLinkedQueue<>();
+    private final LongAdder noeudsTotal = new LongAdder();
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("AnalyseLot Usage: FichierPositions FichierSortie|- [Profondeur=6] [TempsParPositionMs=0] [TablePartagee=non]");
+            System.exit(1);
+        }
+
+        // Pas de trace de débogage sauf demande explicite
+        if (System.getProperty("escampe.debug") == null) {
+            System.setProperty("escampe.debug", "false");
+        }
+
+        int profondeur = args.length > 2 ? Integer.parseInt(args[2]) : 6;
+        long tempsMs = args.length > 3 ? Long.parseLong(args[3]) : 0;
+        boolean partagee = args.length > 4 && (args[4].equalsIgnoreCase("oui") || args[4].equalsIgnoreCase("true"));
+        int nbThreads = Integer.getInteger("escampe.threads", Runtime.getRuntime().availableProcessors());
+        TableTransposition table = partagee ? new TableTransposition(Integer.getInteger("escampe.table", 24)) : null;
+
+        long t0 = System.currentTimeMillis();
+        AnalyseLot analyse = new AnalyseLot(Paths.get(args[0]), profondeur, tempsMs, table);
+        System.err.println(analyse.nbPositions + " positions indexées en " + (System.currentTimeMillis() - t0) + " ms, "
+                + nbThreads + " threads, profondeur " + profondeur
+                + (tempsMs > 0 ? ", " + tempsMs + " ms par position" : "")
+                + (partagee ? ", table partagée de " + table.getNbEntrees() + " entrées" : ""));
+
+        Writer sortie = args[1].equals("-")
+                ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                : Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.UTF_8);
+        try {
+            analyse.executer(nbThreads, sortie);
+        } finally {
+            sortie.close();
+        }
+        analyse.fusionnerTables();
+    }
+
+    public AnalyseLot(Path fichier, int profondeur, long tempsMs, TableTransposition tablePartagee) throws IOException {
+        this.profondeur = profondeur;
+        this.tempsMs = tempsMs;
+        this.tablePartagee = tablePartagee;
+        this.cachePartage = tablePartagee != null ? new CacheEvaluation(Integer.getInteger("escampe.cacheEval", 20)) : null;
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ)) {
+            long taille = canal.size();
+            int nbSegments = (int) Math.max(1, (taille + TAILLE_SEGMENT - 1) / TAILLE_SEGMENT);
+            segments = new MappedByteBuffer[nbSegments];
+            for (int i = 0; i < nbSegments; i++) {
+                long debut = i * TAILLE_SEGMENT;
+                long longueur = Math.min(TAILLE_SEGMENT + LONGUEUR_MAX_LIGNE, taille - debut);
+                segments[i] = canal.map(FileChannel.MapMode.READ_ONLY, debut, Math.max(0, longueur));
+            }
+            indexer(taille);
+        }
+    }
+
+    /**
+     * Repère le début et la longueur de chaque ligne non vide et non commentée
+     */
+    private void indexer(long taille) throws IOException {
+        for (int s = 0; s < segments.length; s++) {
+            MappedByteBuffer seg = segments[s];
+            long base = s * TAILLE_SEGMENT;
+            int limite = (int) Math.min(TAILLE_SEGMENT, taille - base);
+            int i = 0;
+            // Une ligne commencée dans le segment précédent lui appartient
+            if (s > 0 && segments[s - 1].get((int) TAILLE_SEGMENT - 1) != '\n') {
+                while (i < limite && seg.get(i) != '\n') i++;
+                i++;
+            }
+            while (i < limite) {
+                int fin = i;
+                while (fin < seg.limit() && seg.get(fin) != '\n') fin++;
+                if (fin - i > LONGUEUR_MAX_LIGNE) {
+                    throw new IOException("Ligne de plus de " + LONGUEUR_MAX_LIGNE + " octets à la position " + (base + i));
+                }
+                int d = i;
+                while (d < fin && (seg.get(d) == ' ' || seg.get(d) == '\t' || seg.get(d) == '\r')) d++;
+                if (d < fin && seg.get(d) != '#') {
+                    if (nbPositions == debuts.length) {
+                        debuts = Arrays.copyOf(debuts, nbPositions * 2);
+                        longueurs = Arrays.copyOf(longueurs, nbPositions * 2);
+                    }
+                    debuts[nbPositions] = base + i;
+                    longueurs[nbPositions] = fin - i;
+                    nbPositions++;
+                }
+                i = fin + 1;
+            }
+        }
+    }
+
+    /**
+     * Analyse toutes les positions et écrit les résultats dans l'ordre du fichier
+     */
+    public void executer(int nbThreads, Writer sortie) throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(nbThreads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        ArrayDeque<ForkJoinTask<String>> enVol = new ArrayDeque<>();
+        int maxEnVol = nbThreads * LOTS_EN_VOL_PAR_THREAD;
+        int prochaine = 0;
+        int terminees = 0;
+        long debut = System.currentTimeMillis();
+        long prochainProgres = debut + PERIODE_PROGRES_MS;
+
+        try {
+            while (terminees < nbPositions) {
+                while (enVol.size() < maxEnVol && prochaine < nbPositions) {
+                    int deb = prochaine;
+                    int fin = Math.min(nbPositions, deb + POSITIONS_PAR_LOT);
+                    enVol.add(pool.submit(() -> analyserLot(deb, fin)));
+                    prochaine = fin;
+                }
+
+                // Le plus ancien lot d'abord : la sortie reste dans l'ordre
+                sortie.write(enVol.poll().join());
+                terminees = Math.min(nbPositions, terminees + POSITIONS_PAR_LOT);
+
+                long maintenant = System.currentTimeMillis();
+                if (maintenant >= prochainProgres || terminees == nbPositions) {
+                    afficherProgres(terminees, maintenant - debut);
+                    prochainProgres = maintenant + PERIODE_PROGRES_MS;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        sortie.flush();
+
+        long duree = Math.max(1, System.currentTimeMillis() - debut);
+        System.err.println();
+        System.err.printf("%d positions en %.1f s : %.1f positions/s, %d noeuds/s%n", nbPositions, duree / 1000.0,
+                nbPositions * 1000.0 / duree, noeudsTotal.sum() * 1000 / duree);
+    }
+
+    private void afficherProgres(int terminees, long ecouleMs) {
+        double parSeconde = terminees * 1000.0 / Math.max(1, ecouleMs);
+        long resteS = parSeconde > 0 ? (long) ((nbPositions - terminees) / parSeconde) : 0;
+        System.err.printf("\r%d/%d positions (%.1f%%), %.1f positions/s, reste %02d:%02d:%02d   ",
+                terminees, nbPositions, 100.0 * terminees / Math.max(1, nbPositions), parSeconde,
+                resteS / 3600, resteS / 60 % 60, resteS % 60);
+    }
+
+    /**
+     * Verse les résultats profonds dans la table persistante (-Descampe.tablePersistante) : la
+     * table partagée, ou celle de chaque thread
+     */
+    public void fusionnerTables() {
+        if (tablePartagee != null) {
+            TablePersistante.fusionnerSiConfiguree(tablePartagee);
+        } else {
+            for (Analyseur a : tousAnalyseurs) TablePersistante.fusionnerSiConfiguree(a.joueur.getTable());
+        }
+    }
+
+    /**
+     * Analyse les positions [deb, fin[ avec le MonJoueur du thread courant
+     */
+    private String analyserLot(int deb, int fin) {
+        Analyseur a = analyseurs.get();
+        StringBuilder sb = new StringBuilder(128 * (fin - deb));
+        for (int i = deb; i < fin; i++) {
+            int s = (int) (debuts[i] / TAILLE_SEGMENT);
+            int d = (int) (debuts[i] - s * TAILLE_SEGMENT);
+            NotationPosition.Tranche ligne = a.tranche.cibler(segments[s], d, d + longueurs[i]);
+            try {
+                NotationPosition.lire(ligne, 0, ligne.length(), a.position);
+            } catch (IllegalArgumentException e) {
+                sb.append(ligne.toString().trim()).append(";ERREUR;").append(e.getMessage()).append('\n');
+                continue;
+            }
+
+            a.joueur.chargerPosition(a.position);
+            ResultatRecherche r = a.joueur.analyser();
+            noeudsTotal.add(r.noeuds);
+
+            NotationPosition.ecrire(a.position, sb).append(';').append(r.meilleurCoup)
+              .append(';').append(r.score).append(';').append(r.profondeur)
+              .append(';').append(r.noeuds).append(';').append(r.tempsMs).append(';');
+            for (int k = 0; k < r.variantePrincipale.size(); k++) {
+                if (k > 0) sb.append(' ');
+                sb.append(r.variantePrincipale.get(k));
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * État propre à un thread d'analyse
+     */
+    private class Analyseur {
+        final MonJoueur joueur = new MonJoueur();
+        final PositionJeu position = new PositionJeu();
+        final NotationPosition.Tranche tranche = new NotationPosition.Tranche();
+
+        Analyseur() {
+            joueur.setLimites(tempsMs > 0 ? tempsMs : Long.MAX_VALUE / 2, profondeur);
+            joueur.setTable(tablePartagee != null ? tablePartagee : new TableTransposition(Integer.getInteger("escampe.table", 20)));
+            joueur.setCacheEvaluation(cachePartage);
+            tousAnalyseurs.add(this);
+        }
+    }
+}
@@ -6,17 +6,28 @@ import java.awt.Container;
 import java.awt.Dimension;
 import java.awt.Frame;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
 import java.awt.Insets;
 import java.awt.event.KeyEvent;
-import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.List;
 
-import javax.swing.DefaultListModel;
+import javax.swing.AbstractListModel;
 import javax.swing.JApplet;
 import javax.swing.JList;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
 
+/**
+ * Vue d'une partie : le plateau et la liste des coups joués.
+ *
+ * L'historique est gardé sous forme compacte (HistoriquePlateaux) et seul le plateau
+ * sélectionné est reconstruit. La liste est virtualisée (modèle sans composant par coup,
+ * cellules de taille fixe) et le plateau est dessiné sur un fond précalculé (cases et
+ * liserés) par le double tampon de Swing.
+ */
 public class Applet extends JApplet {
 	// Constantes pour les pièces
 	final private static int LICORNEBLANCHE = -2;
@@ -52,13 +63,17 @@ public class Applet extends JApplet {
     // Constantes pour l'affichage
     final private static int TAILLECASE = 100;
     final private static int TAILLEPION = 60;
+    final private static int MARGE = 30;
+    // Défilement rapide au clavier, en demi-coups
+    final private static int PAS_RAPIDE = 10;
     final private static Dimension FRAMEDIMENSION = new Dimension(TAILLECASE*6 + 260,TAILLECASE*6 + 60);
     
     private static final long serialVersionUID = 1L;
-    private JList brdList;
+    private JList<String> brdList;
     private Board displayBoard;
     private JScrollPane scrollPane;
-    private DefaultListModel listModel;
+    private ModeleCoups listModel;
+    private final HistoriquePlateaux historique = new HistoriquePlateaux();
     private Frame myFrame;
 
     static int cpt = 0;
@@ -91,172 +106,241 @@ public class Applet extends JApplet {
     public void buildUI(Container container) {
     	setBackground(Color.white);
     	
-    	int[][] temp = new int[HAUTEUR][LARGEUR];
+    	displayBoard = new Board();
     	
-    	for (int i = 0; i < HAUTEUR; i++)
-    		for (int j = 0; j < LARGEUR; j++)
-    			temp[i][j] = VIDE;
-    	
-    	displayBoard = new Board("Coups :", temp);
+    	listModel = new ModeleCoups();
+    	historique.ajouter("Coups :", new byte[LARGEUR * HAUTEUR]);
+    	listModel.ajoute(0);
     	
-    	listModel = new DefaultListModel();
-    	listModel.addElement(displayBoard);
-    	
-    	brdList = new JList(listModel);
+    	brdList = new JList<String>(listModel);
     	brdList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+    	// Cellules de taille fixe : seules les lignes visibles sont mesurées et dessinées
+    	brdList.setPrototypeCellValue("A1/B1/C1/D1/E1/F1");
     	brdList.setSelectedIndex(0);
     	scrollPane = new JScrollPane(brdList);
     	Dimension d = scrollPane.getSize();
     	scrollPane.setPreferredSize(new Dimension(200, d.height));
     	
+    	brdList.addListSelectionListener(e -> {
+    		int index = brdList.getSelectedIndex();
+    		if (index >= 0) displayBoard.afficher(index);
+    	});
     	brdList.addKeyListener(new java.awt.event.KeyAdapter() {
     		public void keyPressed(KeyEvent e) {
     			brdList_keyPressed(e);
     		}
     	});
-    	brdList.addMouseListener(new java.awt.event.MouseAdapter() {
-    		public void mouseClicked(MouseEvent e) {
-    			brdList_mouseClicked(e);
-    		}
-    	});
     	container.add(displayBoard, BorderLayout.CENTER);
     	container.add(scrollPane, BorderLayout.EAST);
     }
 
+    /**
+     * Demande un nouvel affichage ; le dessin se fait dans le thread de Swing, avec son
+     * double tampon (g et in ne servent plus)
+     */
     public void update(Graphics g, Insets in) {
-    	Insets tempIn = in;
-    	g.translate(tempIn.left, tempIn.top);
-    	paint(g);
+    	displayBoard.repaint();
     }
 
-    public void paint(Graphics g) {
-    	displayBoard.paint(g);
+    /**
+     * Ajoute le plateau obtenu après move. Le plateau est copié immédiatement : l'appelant
+     * peut continuer à le modifier. Peut être appelé depuis n'importe quel thread.
+     */
+    public void addBoard(String move, int[][] board) {
+    	byte[] copie = new byte[LARGEUR * HAUTEUR];
+    	for (int i = 0; i < HAUTEUR; i++)
+    		for (int j = 0; j < LARGEUR; j++)
+    			copie[i * LARGEUR + j] = (byte) board[i][j];
+    	SwingUtilities.invokeLater(() -> ajouterPlateau(move, copie));
     }
 
-    public void addBoard(String move, int[][] board) {
-    	Board tempEntrop = new Board(move, board);
-    	listModel.addElement(new Board(move, board));
-    	brdList.setSelectedIndex(listModel.getSize() - 1);
-    	brdList.ensureIndexIsVisible(listModel.getSize() - 1);
-    	displayBoard = tempEntrop;
-    	update(myFrame.getGraphics(), myFrame.getInsets());
+    private void ajouterPlateau(String move, byte[] plateau) {
+    	// On suit la partie si le dernier coup était sélectionné
+    	boolean suivre = brdList.getSelectedIndex() == historique.taille() - 1;
+    	historique.ajouter(move, plateau);
+    	listModel.ajoute(historique.taille() - 1);
+    	if (suivre) {
+    		brdList.setSelectedIndex(historique.taille() - 1);
+    		brdList.ensureIndexIsVisible(historique.taille() - 1);
+    	}
+    }
+
+    /**
+     * Remplace l'historique par la partie coups (placements puis déplacements, comme dans
+     * ArchiveParties) et affiche sa position de départ. À appeler dans le thread de Swing.
+     */
+    public void chargerPartie(String titre, List<String> coups) {
+    	int ancienneTaille = historique.taille();
+    	ArchiveParties.rejouer(titre, coups, historique);
+    	listModel.remplace(ancienneTaille);
+    	brdList.setSelectedIndex(0);
+    	brdList.ensureIndexIsVisible(0);
+    	displayBoard.afficher(0);
     }
 
+    // Conservé pour les programmes qui fournissent leur fenêtre ; l'affichage n'en dépend plus
     public void setMyFrame(Frame f) {
     	myFrame = f;
     }
 
+    /**
+     * Gauche / droite : coup précédent / suivant, comme haut / bas (gérés par la liste avec
+     * début, fin, page précédente et page suivante). Avec Ctrl, on avance de PAS_RAPIDE coups.
+     */
     void brdList_keyPressed(KeyEvent e) {
     	int index = brdList.getSelectedIndex();
-    	if (e.getKeyCode() == KeyEvent.VK_UP && index > 0)
-    		displayBoard = (Board) listModel.getElementAt(index - 1);
+    	int pas = e.isControlDown() ? PAS_RAPIDE : 1;
+    	int cible = index;
+    	if (e.getKeyCode() == KeyEvent.VK_LEFT && index > 0)
+    		cible = Math.max(0, index - pas);
     	
-    	if (e.getKeyCode() == KeyEvent.VK_DOWN && index < (listModel.getSize() - 1))
-    		displayBoard = (Board) listModel.getElementAt(index + 1);
+    	if (e.getKeyCode() == KeyEvent.VK_RIGHT && index < (listModel.getSize() - 1))
+    		cible = Math.min(listModel.getSize() - 1, index + pas);
     	
-    	update(myFrame.getGraphics(), myFrame.getInsets());
-    }
-
-    void brdList_mouseClicked(MouseEvent e) {
-    	displayBoard = (Board) listModel.getElementAt(brdList.getSelectedIndex());
-    	update(myFrame.getGraphics(), myFrame.getInsets());
+    	if (cible != index) {
+    		brdList.setSelectedIndex(cible);
+    		brdList.ensureIndexIsVisible(cible);
+    		e.consume();
+    	}
     }
     
     public Dimension getDimension() {
     	return FRAMEDIMENSION;
     }
     
+    // Modèle de la liste : les libellés sont lus dans l'historique à l'affichage
+    class ModeleCoups extends AbstractListModel<String> {
+    	private static final long serialVersionUID = 1L;
+
+    	public int getSize() {
+    		return historique.taille();
+    	}
+
+    	public String getElementAt(int index) {
+    		return historique.libelle(index);
+    	}
+
+    	void ajoute(int index) {
+    		fireIntervalAdded(this, index, index);
+    	}
+
+    	// L'historique a été remplacé ; il comptait ancienneTaille coups
+    	void remplace(int ancienneTaille) {
+    		if (ancienneTaille > 0) fireIntervalRemoved(this, 0, ancienneTaille - 1);
+    		if (historique.taille() > 0) fireIntervalAdded(this, 0, historique.taille() - 1);
+    	}
+    }
+
     // Sous classe qui dessine le plateau de jeu
     class Board extends JPanel {
     	
     	private static final long serialVersionUID = 1L;
-    	private int[][] boardState;
-    	String move;
+    	private final byte[] boardState = new byte[LARGEUR * HAUTEUR];
+    	// Fond précalculé : coordonnées, cases et liserés
+    	private BufferedImage fond;
     	int depCol = -1;
     	int depLin = -1;
     	int arvCol = -1;
     	int arvLin = -1;
     	
-    	// The string will be the move details
-    	// and the array the details of the board after the move has been applied.
-    	public Board(String mv, int[][] bs) {
-    		boardState = bs;
-    		move = mv;
-    		if (mv.length() == 5) {
-    			String[] positions = mv.split("-");
-    			depCol = (int) positions[0].charAt(0) - (int) 'A';
-    			depLin = Integer.parseInt(positions[0].substring(1)) - 1;
-    			arvCol = (int) positions[1].charAt(0) - (int) 'A';
-    			arvLin = Integer.parseInt(positions[1].substring(1)) - 1;
-    		}
+    	public Board() {
+    		setDoubleBuffered(true);
+    		setBackground(Color.white);
     	}
-    	
-    	public void drawBoard(Graphics g) {
-    		// First draw the lines
-    		// Board
-    		int bx = 30;
-    		int by = 30;
-    		
-    		// axis labels
-    		g.setColor(new Color(0, 0, 0));
-    		for (int i = 1; i <= LARGEUR; i++) {
-    			g.drawString("" + (char) ('A' + i - 1), bx + (int) ((i - 0.5)*TAILLECASE), 20);
+
+    	/**
+    	 * Affiche le plateau après le demi-coup index de l'historique
+    	 */
+    	void afficher(int index) {
+    		historique.plateau(index, boardState);
+    		int coup = historique.coup(index);
+    		if (coup != Coup.INVALIDE && coup != Coup.PASSE) {
+    			depLin = Coup.depart(coup) / LARGEUR;
+    			depCol = Coup.depart(coup) % LARGEUR;
+    			arvLin = Coup.arrivee(coup) / LARGEUR;
+    			arvCol = Coup.arrivee(coup) % LARGEUR;
+    		} else {
+    			depLin = depCol = arvLin = arvCol = -1;
     		}
-    		for (int i = 1; i <= HAUTEUR; i++) {
-    			g.drawString("" + i, 10, by + (int) ((i - 0.5)*TAILLECASE));
+    		repaint();
+    	}
+
+    	private BufferedImage fond() {
+    		if (fond == null) {
+    			fond = new BufferedImage(MARGE + LARGEUR*TAILLECASE, MARGE + HAUTEUR*TAILLECASE, BufferedImage.TYPE_INT_RGB);
+    			Graphics2D g = fond.createGraphics();
+    			g.setColor(Color.white);
+    			g.fillRect(0, 0, fond.getWidth(), fond.getHeight());
+
+    			// axis labels
+    			g.setColor(new Color(0, 0, 0));
+    			for (int i = 1; i <= LARGEUR; i++) {
+    				g.drawString("" + (char) ('A' + i - 1), MARGE + (int) ((i - 0.5)*TAILLECASE), 20);
+    			}
+    			for (int i = 1; i <= HAUTEUR; i++) {
+    				g.drawString("" + i, 10, MARGE + (int) ((i - 0.5)*TAILLECASE));
+    			}
+
+    			// fond des cases
+    			g.setColor(DARK);
+    			g.fillRect(MARGE, MARGE, LARGEUR*TAILLECASE, HAUTEUR*TAILLECASE);
+    			for (int j = 0; j < LARGEUR; j++) {
+    				for (int i = 0; i < HAUTEUR; i++) {
+    					dessinerLisere(g, i, j, LIGHT);
+    				}
+    			}
+    			g.dispose();
     		}
-    		
-    		// Draw the circles
+    		return fond;
+    	}
+
+    	private void dessinerLisere(Graphics g, int i, int j, Color c2) {
     		Color c1 = DARK;
-    		Color c2 = LIGHT;
-    		
-    		int casex;
-    		int casey;
-    		int lisere;
-    		
-    		// fond des cases
-			g.setColor(c1);
-			g.fillRect(bx, by, LARGEUR*TAILLECASE, HAUTEUR*TAILLECASE);
-			
-    		for (int j = 0; j < LARGEUR; j++) {
-    			for (int i = 0; i < HAUTEUR; i++) {
-    				casex = bx + j*TAILLECASE;
-    				casey = by + i*TAILLECASE;
-    				lisere = lisereCase[i][j];
-    				c2 = (i == depLin && j == depCol) ? HIGHLIGHT : LIGHT;
-    				
-    				// 1er cercle
+    		int casex = MARGE + j*TAILLECASE;
+    		int casey = MARGE + i*TAILLECASE;
+    		int lisere = lisereCase[i][j];
+
+    		// 1er cercle
+    		g.setColor(c2);
+    		g.fillOval(casex + m1e, casey + m1e , diametre1e, diametre1e);
+    		g.setColor(c1);
+    		g.fillOval(casex + m1i, casey + m1i, diametre1i, diametre1i);
+    		if (lisere > 1) {
+    			// 2eme cercle
+    			g.setColor(c2);
+    			g.fillOval(casex + m2e, casey + m2e, diametre2e, diametre2e);
+    			g.setColor(c1);
+    			g.fillOval(casex + m2i, casey + m2i, diametre2i, diametre2i);
+    			if (lisere > 2) {
+    				// 3eme cercle
     				g.setColor(c2);
-    				g.fillOval(casex + m1e, casey + m1e , diametre1e, diametre1e);
+    				g.fillOval(casex + m3e, casey + m3e, diametre3e, diametre3e);
     				g.setColor(c1);
-    				g.fillOval(casex + m1i, casey + m1i, diametre1i, diametre1i);
-    				if (lisere > 1) {
-    					// 2eme cercle
-    					g.setColor(c2);
-        				g.fillOval(casex + m2e, casey + m2e, diametre2e, diametre2e);
-        				g.setColor(c1);
-        				g.fillOval(casex + m2i, casey + m2i, diametre2i, diametre2i);
-        				if (lisere > 2) {
-        					// 3eme cercle
-        					g.setColor(c2);
-            				g.fillOval(casex + m3e, casey + m3e, diametre3e, diametre3e);
-            				g.setColor(c1);
-            				g.fillOval(casex + m3i, casey + m3i, diametre3i, diametre3i);
-        				}
-    				}
+    				g.fillOval(casex + m3i, casey + m3i, diametre3i, diametre3i);
     			}
     		}
+    	}
+    	
+    	public void drawBoard(Graphics g) {
+    		g.drawImage(fond(), 0, 0, null);
     		
-    		// Draw the pieces by referencing boardState array
-    		c1 = BLACK;
-    		c2 = WHITE;
+    		// Case de départ du dernier coup
+    		if (depLin >= 0) {
+    			dessinerLisere(g, depLin, depCol, HIGHLIGHT);
+    		}
     		
+    		// Draw the pieces by referencing boardState array
+    		Color c1 = BLACK;
+    		Color c2 = WHITE;
+    		int casex;
+    		int casey;
+			
     		for (int j = 0; j < LARGEUR; j++) {
     			for (int i = 0; i < HAUTEUR; i++) {
-    				casex = mpiece + bx + j*TAILLECASE;
-    				casey = mpiece + by + i*TAILLECASE;
+    				casex = mpiece + MARGE + j*TAILLECASE;
+    				casey = mpiece + MARGE + i*TAILLECASE;
     				
-    				switch (boardState[i][j]) {
+    				switch (boardState[i * LARGEUR + j]) {
     					case (LICORNEBLANCHE):
     						g.setColor(c1);
     						g.fillRect(casex, casey, TAILLEPION, TAILLEPION);
@@ -273,6 +357,8 @@ public class Applet extends JApplet {
     						g.setColor(c2);
     						g.fillOval(casex, casey, TAILLEPION, TAILLEPION);
     						break;		    
+    					case (VIDE):
+    						break;
     				}
     				
     				if (i == arvLin && j == arvCol) {
@@ -283,16 +369,13 @@ public class Applet extends JApplet {
     		}
     	}
     	
-    	public void paint(Graphics g) {
-    		drawBoard(g);
-    	}
-    	
-    	public void update(Graphics g) {
+    	protected void paintComponent(Graphics g) {
+    		super.paintComponent(g);
     		drawBoard(g);
     	}
     	
-    	public String toString() {
-    		return move;
+    	public Dimension getPreferredSize() {
+    		return new Dimension(MARGE + LARGEUR*TAILLECASE, MARGE + HAUTEUR*TAILLECASE);
     	}
     }
 }
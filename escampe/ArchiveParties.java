@@ -0,0 +1,169 @@
+package escampe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Archive de parties enregistrées par ServeurArbitre, une partie par ligne :
+ *     date;blanc;noir;vainqueur;raison;demiCoups;durée;tempsBlanc;tempsNoir;coups
+ * les coups séparés par des espaces, placement de Noir puis de Blanc en tête. Un journal de
+ * résultats sans le dernier champ se lit aussi (parties sans coups).
+ *
+ * L'ouverture parcourt le fichier une fois pour relever le début de chaque ligne ; une partie
+ * n'est lue et décodée que lorsqu'on la demande. Le fichier n'est jamais chargé en entier.
+ */
+public final class ArchiveParties implements Closeable {
+    private static final int TAILLE_LECTURE = 1 << 16;
+
+    private final FileChannel canal;
+    private long[] debuts = new long[1024];
+    private int[] longueurs = new int[1024];
+    private int nbParties;
+
+    public ArchiveParties(Path fichier) throws IOException {
+        canal = FileChannel.open(fichier, StandardOpenOption.READ);
+        indexer();
+    }
+
+    /**
+     * Relève le début et la longueur des lignes non vides, en un seul passage
+     */
+    private void indexer() throws IOException {
+        ByteBuffer tampon = ByteBuffer.allocateDirect(TAILLE_LECTURE);
+        long position = 0;
+        long debutLigne = 0;
+        boolean vide = true;
+        while (true) {
+            tampon.clear();
+            int n = canal.read(tampon, position);
+            if (n < 0) break;
+            for (int i = 0; i < n; i++) {
+                byte b = tampon.get(i);
+                if (b == '\n') {
+                    if (!vide) ajouter(debutLigne, position + i);
+                    debutLigne = position + i + 1;
+                    vide = true;
+                } else if (b != '\r' && b != ' ') {
+                    vide = false;
+                }
+            }
+            position += n;
+        }
+        if (!vide) ajouter(debutLigne, position);
+    }
+
+    private void ajouter(long debut, long fin) throws IOException {
+        if (fin - debut > Integer.MAX_VALUE) throw new IOException("Ligne trop longue à la position " + debut);
+        if (nbParties == debuts.length) {
+            debuts = Arrays.copyOf(debuts, nbParties * 2);
+            longueurs = Arrays.copyOf(longueurs, nbParties * 2);
+        }
+        debuts[nbParties] = debut;
+        longueurs[nbParties] = (int) (fin - debut);
+        nbParties++;
+    }
+
+    public int getNbParties() {
+        return nbParties;
+    }
+
+    /**
+     * Lit et décode la partie i
+     */
+    public Partie lire(int i) throws IOException {
+        return new Partie(lireLigne(i, longueurs[i]));
+    }
+
+    /**
+     * Libellé court de la partie i (joueurs et vainqueur), sans lire ses coups
+     */
+    public String entete(int i) throws IOException {
+        String debut = lireLigne(i, Math.min(longueurs[i], 512));
+        String[] champs = debut.split(";", 6);
+        if (champs.length < 5) return "Partie " + (i + 1);
+        return (i + 1) + ". " + champs[1] + " - " + champs[2] + " : " + champs[3];
+    }
+
+    private String lireLigne(int i, int longueur) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(longueur);
+        long position = debuts[i];
+        while (b.hasRemaining()) {
+            if (canal.read(b, position + b.position()) < 0) throw new IOException("Archive tronquée");
+        }
+        return new String(b.array(), 0, longueur, StandardCharsets.UTF_8).trim();
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+
+    /**
+     * Rejoue les coups dans un historique : le départ vide, puis un plateau par coup
+     * (couleurs absolues, couleur * type)
+     */
+    public static void rejouer(String titre, List<String> coups, HistoriquePlateaux historique) {
+        byte[] plateau = new byte[36];
+        historique.vider();
+        historique.ajouter(titre, plateau);
+        int placements = 0;
+        for (String coup : coups) {
+            if (coup.contains("/")) {
+                // Noir place ses pièces en premier, la licorne d'abord
+                int couleur = placements++ == 0 ? IJoueur.NOIR : IJoueur.BLANC;
+                String[] cases = coup.split("/");
+                for (int k = 0; k < cases.length; k++) {
+                    int s = Coup.lireCase(cases[k].charAt(0), cases[k].charAt(1));
+                    if (s >= 0) plateau[s] = (byte) (couleur * (k == 0 ? EtatJeu.LICORNE : EtatJeu.PALADIN));
+                }
+            } else {
+                int c = Coup.lire(coup);
+                if (c != Coup.INVALIDE && c != Coup.PASSE) {
+                    plateau[Coup.arrivee(c)] = plateau[Coup.depart(c)];
+                    plateau[Coup.depart(c)] = 0;
+                }
+            }
+            historique.ajouter(coup, plateau);
+        }
+    }
+
+    /**
+     * Une partie décodée
+     */
+    public static final class Partie {
+        public final String date;
+        public final String blanc;
+        public final String noir;
+        public final String vainqueur;
+        public final String raison;
+        public final List<String> coups;
+
+        Partie(String ligne) {
+            String[] champs = ligne.split(";", 10);
+            date = champ(champs, 0);
+            blanc = champ(champs, 1);
+            noir = champ(champs, 2);
+            vainqueur = champ(champs, 3);
+            raison = champ(champs, 4);
+            String c = champ(champs, 9).trim();
+            coups = c.isEmpty() ? Collections.<String>emptyList() : new ArrayList<>(Arrays.asList(c.split(" +")));
+        }
+
+        private static String champ(String[] champs, int i) {
+            return i < champs.length ? champs[i] : "";
+        }
+
+        public String titre() {
+            return blanc + " - " + noir + " : " + vainqueur;
+        }
+    }
+}
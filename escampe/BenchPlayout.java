@@ -0,0 +1,194 @@
+package escampe;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Benchmark des parties aléatoires : noyau PlateauRapide (un thread par coeur, un Alea par
+ * thread) contre le chemin EtatJeu (coups en chaînes, listes). Affiche les parties par seconde
+ * et par coeur, la longueur moyenne des parties et les octets alloués par partie.
+ *
+ * Avant de mesurer, les coups du noyau sont comparés à ceux de EtatJeu.genererCoups le long
+ * de parties aléatoires.
+ *
+ * Exemple: >java -cp . escampe.BenchPlayout 5 4 "n1N1n1/3n2/bn2bn/6/1b1b1b/2B3 b 2"
+ */
+public class BenchPlayout {
+    private static final String POSITION_DEFAUT = "nnNnnn/6/6/6/6/bbBbbb b 0";
+    private static final int MAX_DEMI_COUPS = 200;
+    private static final int PARTIES_VERIFICATION = 2000;
+
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty("escampe.debug") == null) {
+            System.setProperty("escampe.debug", "false");
+        }
+        double secondes = args.length > 0 ? Double.parseDouble(args[0]) : 5;
+        int nbThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        PositionJeu position = NotationPosition.lire(args.length > 2 ? args[2] : POSITION_DEFAUT);
+        System.out.println("Position " + position + ", " + nbThreads + " threads, " + secondes + " s");
+
+        verifier(position);
+
+        // Chemin EtatJeu, un seul thread
+        Mesure ancienne = new Mesure();
+        mesurerEtatJeu(position, (long) (Math.min(secondes, 2) * 1e9), ancienne);
+        System.out.printf("EtatJeu       : %10.0f parties/s, %5.1f demi-coups/partie, %8.0f octets/partie%n",
+                ancienne.parSeconde(), ancienne.longueurMoyenne(), ancienne.octetsParPartie());
+
+        // Noyau, un thread par coeur
+        Mesure[] mesures = new Mesure[nbThreads];
+        List<Thread> threads = new ArrayList<>();
+        long duree = (long) (secondes * 1e9);
+        for (int i = 0; i < nbThreads; i++) {
+            Mesure m = mesures[i] = new Mesure();
+            threads.add(new Thread(() -> mesurerNoyau(position, duree, m), "bench-playout-" + i));
+        }
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+
+        double total = 0;
+        Mesure cumul = new Mesure();
+        for (Mesure m : mesures) {
+            total += m.parSeconde();
+            cumul.parties += m.parties;
+            cumul.demiCoups += m.demiCoups;
+            cumul.octets += m.octets;
+            cumul.dureeNs = Math.max(cumul.dureeNs, m.dureeNs);
+        }
+        System.out.printf("PlateauRapide : %10.0f parties/s par coeur, %5.1f demi-coups/partie, %8.2f octets/partie%n",
+                total / nbThreads, cumul.longueurMoyenne(), cumul.octetsParPartie());
+        System.out.printf("Total         : %10.0f parties/s sur %d threads (x%.1f par coeur contre EtatJeu)%n",
+                total, nbThreads, total / nbThreads / Math.max(1, ancienne.parSeconde()));
+    }
+
+    private static void mesurerNoyau(PositionJeu position, long dureeNs, Mesure m) {
+        Alea alea = Alea.courant();
+        PlateauRapide depart = new PlateauRapide();
+        depart.charger(position);
+        PlateauRapide p = new PlateauRapide();
+        int[] coups = new int[PlateauRapide.MAX_COUPS];
+
+        // Chauffe
+        for (int i = 0; i < 20000; i++) {
+            p.copier(depart);
+            p.jouerPartieAleatoire(alea, coups, MAX_DEMI_COUPS);
+        }
+
+        long alloc0 = octetsAlloues();
+        long t0 = System.nanoTime();
+        long fin = t0 + dureeNs;
+        long parties = 0, demiCoups = 0;
+        do {
+            for (int i = 0; i < 256; i++) {
+                p.copier(depart);
+                p.jouerPartieAleatoire(alea, coups, MAX_DEMI_COUPS);
+                demiCoups += p.demiCoups;
+            }
+            parties += 256;
+        } while (System.nanoTime() < fin);
+        m.dureeNs = System.nanoTime() - t0;
+        m.octets = octetsAlloues() - alloc0;
+        m.parties = parties;
+        m.demiCoups = demiCoups;
+    }
+
+    /**
+     * Parties aléatoires avec l'API de EtatJeu, comme le ferait un joueur écrit sans noyau
+     */
+    private static void mesurerEtatJeu(PositionJeu position, long dureeNs, Mesure m) {
+        Alea alea = Alea.courant();
+        EtatJeu etat = new EtatJeu(position.trait);
+        long alloc0 = octetsAlloues();
+        long t0 = System.nanoTime();
+        long fin = t0 + dureeNs;
+        do {
+            etat.chargerPosition(position);
+            int[][] plateau = etat.getPlateau(), types = etat.getTypePiece();
+            int trait = position.trait, lisere = position.lisere, demiCoups = 0;
+            while (demiCoups < MAX_DEMI_COUPS && !etat.estPartieTerminee()) {
+                List<String> coups = etat.genererCoups(plateau, types, trait, lisere);
+                if (coups.isEmpty()) {
+                    lisere = 0;
+                } else {
+                    String[] p = coups.get(alea.entier(coups.size())).split("-");
+                    int fr = Integer.parseInt(p[0].substring(1)) - 1, fc = p[0].charAt(0) - 'A';
+                    int sr = Integer.parseInt(p[1].substring(1)) - 1, sc = p[1].charAt(0) - 'A';
+                    types[sr][sc] = types[fr][fc];
+                    types[fr][fc] = 0;
+                    plateau[sr][sc] = plateau[fr][fc];
+                    plateau[fr][fc] = EtatJeu.VIDE;
+                    lisere = EtatJeu.LISERE[sr][sc];
+                }
+                trait = -trait;
+                demiCoups++;
+            }
+            m.parties++;
+            m.demiCoups += demiCoups;
+        } while (System.nanoTime() < fin);
+        m.dureeNs = System.nanoTime() - t0;
+        m.octets = octetsAlloues() - alloc0;
+    }
+
+    /**
+     * Compare les coups du noyau et de EtatJeu.genererCoups à chaque demi-coup de parties
+     * aléatoires ; arrête le programme à la première différence
+     */
+    private static void verifier(PositionJeu position) {
+        Alea alea = new Alea(42);
+        PlateauRapide p = new PlateauRapide();
+        EtatJeu etat = new EtatJeu(position.trait);
+        int[] coups = new int[PlateauRapide.MAX_COUPS];
+        long positions = 0;
+        for (int partie = 0; partie < PARTIES_VERIFICATION; partie++) {
+            p.charger(position);
+            while (p.vainqueur == 0 && p.demiCoups < MAX_DEMI_COUPS) {
+                PositionJeu courante = NotationPosition.lire(p.toString());
+                etat.chargerPosition(courante);
+                List<String> attendus = etat.genererCoups(etat.getPlateau(), etat.getTypePiece(), p.trait, p.lisere);
+                int nb = p.genererCoups(coups);
+                int[] a = new int[attendus.size()];
+                for (int i = 0; i < a.length; i++) a[i] = Coup.lire(attendus.get(i));
+                int[] b = Arrays.copyOf(coups, nb);
+                Arrays.sort(a);
+                Arrays.sort(b);
+                if (!Arrays.equals(a, b)) {
+                    System.err.println("Coups différents en " + p + " : EtatJeu " + attendus
+                            + ", noyau " + Arrays.toString(b));
+                    System.exit(1);
+                }
+                positions++;
+                p.jouer(nb == 0 ? Coup.PASSE : coups[alea.entier(nb)]);
+            }
+        }
+        System.out.println("Vérification : coups identiques à EtatJeu sur " + positions + " positions");
+    }
+
+    private static long octetsAlloues() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    private static final class Mesure {
+        long parties;
+        long demiCoups;
+        long octets;
+        long dureeNs;
+
+        double parSeconde() {
+            return dureeNs > 0 ? parties * 1e9 / dureeNs : 0;
+        }
+
+        double longueurMoyenne() {
+            return parties > 0 ? (double) demiCoups / parties : 0;
+        }
+
+        double octetsParPartie() {
+            return parties > 0 ? (double) octets / parties : 0;
+        }
+    }
+}
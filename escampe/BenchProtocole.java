@@ -0,0 +1,115 @@
+package escampe;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.StringTokenizer;
+
+/**
+ * Micro-benchmark de la lecture des messages de l'arbitre : chemin historique de ClientJeu
+ * (readLine + StringTokenizer + split/parseInt du coup) contre CodecProtocole.
+ * Affiche le temps et les octets alloués par message.
+ *
+ * Exemple: >java -cp . escampe.BenchProtocole 200000
+ */
+public class BenchProtocole {
+    private static final int REPETITIONS = 15;
+
+    // Évite que le JIT élimine les calculs
+    private static long puits;
+
+    public static void main(String[] args) throws IOException {
+        int nbMessages = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        byte[] flux = genererFlux(nbMessages);
+        System.out.println(nbMessages + " messages, " + flux.length + " octets");
+
+        for (int i = 0; i < REPETITIONS; i++) {
+            boolean mesure = i == REPETITIONS - 1;
+            mesurer("Tokenizer", nbMessages, flux, false, mesure);
+            mesurer("Codec    ", nbMessages, flux, true, mesure);
+        }
+    }
+
+    private static void mesurer(String nom, int nbMessages, byte[] flux, boolean codec, boolean afficher) throws IOException {
+        long alloc0 = octetsAlloues();
+        long t0 = System.nanoTime();
+        if (codec) lireCodec(flux);
+        else lireTokenizer(flux);
+        long duree = System.nanoTime() - t0;
+        long alloc = octetsAlloues() - alloc0;
+        if (afficher) {
+            System.out.printf("%s : %6.1f ns/message, %6.1f octets alloués/message%n",
+                    nom, (double) duree / nbMessages, (double) alloc / nbMessages);
+        }
+    }
+
+    /**
+     * Le chemin de ClientJeu avant CodecProtocole, suivi du décodage de EtatJeu
+     */
+    private static void lireTokenizer(byte[] flux) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(flux)));
+        String msg;
+        while ((msg = in.readLine()) != null) {
+            StringTokenizer msgTokenizer = new StringTokenizer(msg, " \n\0");
+            String firstToken = msgTokenizer.nextToken();
+            if (firstToken.equals("JOUEUR")) {
+                puits += msgTokenizer.nextToken().equals("Blanc") ? 1 : 2;
+            } else if (firstToken.equals("MOUVEMENT")) {
+                String coup = msgTokenizer.nextToken();
+                String[] p = coup.split("-");
+                int fr = Integer.parseInt(p[0].substring(1)) - 1;
+                int fc = p[0].charAt(0) - 'A';
+                int sr = Integer.parseInt(p[1].substring(1)) - 1;
+                int sc = p[1].charAt(0) - 'A';
+                puits += fr + fc + sr + sc;
+            } else if (firstToken.equals("FIN!")) {
+                puits += msgTokenizer.nextToken().length();
+            }
+        }
+    }
+
+    private static void lireCodec(byte[] flux) throws IOException {
+        CodecProtocole codec = new CodecProtocole(new ByteArrayInputStream(flux));
+        int type;
+        while ((type = codec.lire()) != CodecProtocole.FIN_FLUX) {
+            if (type == CodecProtocole.JOUEUR) {
+                puits += codec.getCouleur() == IJoueur.BLANC ? 1 : 2;
+            } else if (type == CodecProtocole.MOUVEMENT) {
+                int coup = codec.getCoup();
+                int dep = Coup.depart(coup), arr = Coup.arrivee(coup);
+                puits += dep / 6 + dep % 6 + arr / 6 + arr % 6;
+            } else if (type == CodecProtocole.FIN) {
+                puits += codec.getCouleur();
+            }
+        }
+    }
+
+    /**
+     * Flux représentatif d'une partie vue par un client : JOUEUR / MOUVEMENT alternés
+     */
+    private static byte[] genererFlux(int nbMessages) {
+        StringBuilder sb = new StringBuilder();
+        java.util.Random rand = new java.util.Random(42);
+        for (int i = 0; i < nbMessages; i++) {
+            if (i % 2 == 0) {
+                sb.append("JOUEUR ").append(i % 4 == 0 ? "Blanc" : "Noir").append("\0\n");
+            } else {
+                int r = rand.nextInt(6), c = rand.nextInt(6);
+                sb.append("MOUVEMENT ").append(EtatJeu.toPos(r, c)).append('-').append(EtatJeu.toPos(5 - r, c)).append('\n');
+            }
+        }
+        sb.append("FIN! Blanc\0\n");
+        return sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static long octetsAlloues() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,118 @@
+package escampe;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Vérifie que la recherche et l'évaluation n'allouent pas : mesure les octets alloués par le
+ * thread (ThreadMXBean.getThreadAllocatedBytes) pendant des recherches à profondeur fixe, une
+ * fois le joueur chauffé, et pendant des évaluations répétées.
+ *
+ * Le programme se termine avec le code 1 si la recherche dépasse le budget d'octets par noeud
+ * (les allocations de la racine, une par itération, restent sous ce budget) ou si l'évaluation
+ * alloue quoi que ce soit ; on peut donc le lancer après chaque modification de la recherche.
+ *
+ * Exemple: >java -cp . escampe.BudgetAllocation 1 6 positions.txt
+ */
+public class BudgetAllocation {
+    private static final String[] POSITIONS_DEFAUT = {
+        "n1N1n1/3n2/bn2bn/6/1b1b1b/2B3 b 2",
+        "nnNnnn/6/6/6/6/bbBbbb b 0",
+        "bn4/6/6/4b1/n2B2/1N4 b 2",
+        "4N1/1n4/3bn1/2b3/4b1/1B4 b 1",
+    };
+    private static final int EVALUATIONS = 1_000_000;
+
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty("escampe.debug") == null) {
+            System.setProperty("escampe.debug", "false");
+        }
+        double budget = args.length > 0 ? Double.parseDouble(args[0]) : 1;
+        int profondeur = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+        List<PositionJeu> positions = new ArrayList<>();
+        if (args.length > 2) {
+            positions.addAll(NotationPosition.lireFichier(Paths.get(args[2])));
+        } else {
+            for (String p : POSITIONS_DEFAUT) positions.add(NotationPosition.lire(p));
+        }
+
+        if (!octetsDisponibles()) {
+            System.err.println("Mesure des allocations par thread indisponible sur cette JVM");
+            System.exit(2);
+        }
+
+        boolean echec = false;
+
+        // Ce que coûte la mesure elle-même, retiré de chaque mesure
+        octetsAlloues();
+        long mesure = -octetsAlloues() + octetsAlloues();
+
+        // Recherche : un joueur chauffé sur toutes les positions, puis mesuré ; table et cache
+        // sont vidés avant chaque recherche pour qu'elle refasse tout le travail
+        MonJoueur joueur = new MonJoueur();
+        TableTransposition table = new TableTransposition(Integer.getInteger("escampe.table", 20));
+        CacheEvaluation cache = new CacheEvaluation(Integer.getInteger("escampe.cacheEval", 16));
+        joueur.setTable(table);
+        joueur.setCacheEvaluation(cache);
+        joueur.setLimites(Long.MAX_VALUE / 2, profondeur);
+        for (int i = 0; i < 2; i++) {
+            for (PositionJeu p : positions) {
+                table.vider();
+                cache.vider();
+                joueur.chargerPosition(p);
+                joueur.analyser();
+            }
+        }
+        long octets = 0, noeuds = 0;
+        for (PositionJeu p : positions) {
+            table.vider();
+            cache.vider();
+            joueur.chargerPosition(p);
+            long avant = octetsAlloues();
+            ResultatRecherche r = joueur.analyser();
+            long alloues = octetsAlloues() - avant - mesure;
+            octets += alloues;
+            noeuds += r.noeuds;
+            System.out.printf("%-40s %9d noeuds %10d octets %8.3f octets/noeud%n", p, r.noeuds, alloues,
+                    r.noeuds > 0 ? (double) alloues / r.noeuds : 0);
+        }
+        double parNoeud = noeuds > 0 ? (double) octets / noeuds : 0;
+        System.out.printf("Recherche   : %.3f octets/noeud (budget %.3f)%n", parNoeud, budget);
+        if (parNoeud > budget) {
+            System.out.println("ECHEC : la recherche alloue au-delà du budget");
+            echec = true;
+        }
+
+        // Évaluation : aucune allocation tolérée
+        PositionJeu p = positions.get(0);
+        PoidsHeuristique poids = PoidsHeuristique.charger();
+        int somme = 0;
+        for (int i = 0; i < EVALUATIONS; i++) {
+            somme += MonJoueur.heuristique(p.plateau, p.typePiece, IJoueur.NOIR, poids);
+        }
+        long avant = octetsAlloues();
+        for (int i = 0; i < EVALUATIONS; i++) {
+            somme += MonJoueur.heuristique(p.plateau, p.typePiece, (i & 1) == 0 ? IJoueur.NOIR : IJoueur.BLANC, poids);
+        }
+        long alloues = octetsAlloues() - avant - mesure;
+        System.out.printf("Évaluation  : %d octets pour %d évaluations (%d)%n", alloues, EVALUATIONS, somme);
+        if (alloues > 0) {
+            System.out.println("ECHEC : l'évaluation alloue");
+            echec = true;
+        }
+
+        System.exit(echec ? 1 : 0);
+    }
+
+    private static boolean octetsDisponibles() {
+        return ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).isThreadAllocatedMemoryEnabled();
+    }
+
+    private static long octetsAlloues() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,59 @@
+package escampe;
+
+import java.util.Arrays;
+
+/**
+ * Cache des évaluations statiques à adressage direct, partageable entre threads sans verrou.
+ *
+ * Une feuille atteinte par des ordres de coups différents, ou revue à l'itération suivante,
+ * n'est évaluée qu'une fois. Comme dans TableTransposition, une entrée tient dans deux long
+ * (la clé XOR la donnée, puis la donnée) et une entrée mélangée par deux écritures
+ * concurrentes est rejetée par la vérification de la clé. Les deux long d'une entrée sont
+ * voisins : une sonde ne touche qu'une ligne de cache.
+ *
+ * Donnée : score (32 bits) | valide
+ */
+public final class CacheEvaluation {
+    public static final int ABSENT = Integer.MIN_VALUE;
+
+    private static final long VALIDE = 1L << 32;
+
+    // entrees[2 * i] = clé ^ donnée, entrees[2 * i + 1] = donnée
+    private final long[] entrees;
+    private final int masque;
+
+    /**
+     * @param log2Entrees log2 du nombre d'entrées (16 octets chacune)
+     */
+    public CacheEvaluation(int log2Entrees) {
+        if (log2Entrees < 4 || log2Entrees > 29) {
+            throw new IllegalArgumentException("Taille de cache invalide: 2^" + log2Entrees);
+        }
+        entrees = new long[2 << log2Entrees];
+        masque = (1 << log2Entrees) - 1;
+    }
+
+    /**
+     * Score enregistré pour cle, ABSENT si l'entrée est vide ou a été écrasée
+     */
+    public int sonder(long cle) {
+        int i = ((int) cle & masque) << 1;
+        long d = entrees[i + 1];
+        return (d & VALIDE) != 0 && (entrees[i] ^ d) == cle ? (int) d : ABSENT;
+    }
+
+    public void enregistrer(long cle, int score) {
+        int i = ((int) cle & masque) << 1;
+        long d = (score & 0xFFFFFFFFL) | VALIDE;
+        entrees[i + 1] = d;
+        entrees[i] = cle ^ d;
+    }
+
+    public void vider() {
+        Arrays.fill(entrees, 0);
+    }
+
+    public int getNbEntrees() {
+        return entrees.length >> 1;
+    }
+}
@@ -0,0 +1,207 @@
+package escampe;
+
+import java.util.List;
+
+/**
+ * Cartes de contrôle et de menace sur les masques de 36 bits de PlateauRapide (case r * 6 + c).
+ *
+ * Une pièce contrôle les cases à sa portée (la valeur de son liseré) dans les quatre
+ * directions, sans tenir compte des pièces sur le chemin, comme l'heuristique de MonJoueur.
+ * Tout est précalculé par case : l'ensemble contrôlé par une couleur est un OU de masques, le
+ * nombre de cases contrôlées une somme de constantes, et les paladins qui menacent une
+ * licorne un ET avec le masque des cases qui l'atteignent à la portée exacte.
+ *
+ * MonJoueur s'en sert pour l'ordre des coups : prises de la licorne d'abord, puis arrivées
+ * les moins contrôlées par les paladins adverses. Le main compare les cartes au parcours des
+ * rayons de EtatJeu le long de parties aléatoires.
+ *
+ * Exemple: >java -cp . escampe.CartesControle 2000
+ */
+final class CartesControle {
+    // PORTEE[s] : cases contrôlées par une pièce en s ; NB_PORTEE[s] leur nombre
+    static final long[] PORTEE = new long[36];
+    static final int[] NB_PORTEE = new int[36];
+    // ATTAQUANTS[t] : cases d'où une pièce atteint t à la portée exacte
+    static final long[] ATTAQUANTS = new long[36];
+    // ENTRE[s * 36 + t] : cases strictement entre s et t quand t est dans PORTEE[s]
+    static final long[] ENTRE = new long[36 * 36];
+
+    static {
+        int[][] directions = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+        for (int s = 0; s < 36; s++) {
+            int r = s / 6, c = s % 6;
+            int portee = PlateauRapide.LISERE[s];
+            for (int[] d : directions) {
+                long chemin = 0;
+                for (int pas = 1; pas <= portee; pas++) {
+                    int nr = r + d[0] * pas, nc = c + d[1] * pas;
+                    if (nr < 0 || nr >= 6 || nc < 0 || nc >= 6) break;
+                    int t = nr * 6 + nc;
+                    PORTEE[s] |= 1L << t;
+                    ENTRE[s * 36 + t] = chemin;
+                    if (pas == portee) ATTAQUANTS[t] |= 1L << s;
+                    chemin |= 1L << t;
+                }
+            }
+            NB_PORTEE[s] = Long.bitCount(PORTEE[s]);
+        }
+    }
+
+    private CartesControle() {
+    }
+
+    /**
+     * Somme, sur les pièces, du nombre de cases contrôlées (une case comptée par pièce)
+     */
+    static int nbControles(long pieces) {
+        int n = 0;
+        while (pieces != 0) {
+            n += NB_PORTEE[Long.numberOfTrailingZeros(pieces)];
+            pieces &= pieces - 1;
+        }
+        return n;
+    }
+
+    /**
+     * Nombre de pièces qui contrôlent chaque case, en tranches de bits : la case s est
+     * contrôlée par bit s de tranches[0] + 2 * bit s de tranches[1] + 4 * bit s de tranches[2]
+     * pièces (six pièces au plus, le compte tient en trois bits)
+     */
+    static void compterControle(long pieces, long[] tranches) {
+        long b0 = 0, b1 = 0, b2 = 0;
+        while (pieces != 0) {
+            long m = PORTEE[Long.numberOfTrailingZeros(pieces)];
+            pieces &= pieces - 1;
+            long retenue0 = b0 & m;
+            b0 ^= m;
+            long retenue1 = b1 & retenue0;
+            b1 ^= retenue0;
+            b2 ^= retenue1;
+        }
+        tranches[0] = b0;
+        tranches[1] = b1;
+        tranches[2] = b2;
+    }
+
+    /**
+     * Nombre de pièces qui contrôlent la case s, lu dans les tranches de compterControle
+     */
+    static int nbControleurs(long[] tranches, int s) {
+        return (int) ((tranches[0] >>> s) & 1) | (int) ((tranches[1] >>> s) & 1) << 1
+             | (int) ((tranches[2] >>> s) & 1) << 2;
+    }
+
+    /**
+     * Paladins qui atteignent la licorne à la portée exacte, chemin non vérifié (comme
+     * l'heuristique) ; 0 s'il n'y a pas de licorne
+     */
+    static long menaces(long paladins, long licorne) {
+        return licorne == 0 ? 0 : paladins & ATTAQUANTS[Long.numberOfTrailingZeros(licorne)];
+    }
+
+    /**
+     * Paladins qui peuvent prendre la licorne au prochain coup : portée exacte et chemin libre
+     * (pour l'ordre des coups et les recherches de prises)
+     */
+    static long prises(long paladins, long licorne, long occupees) {
+        long candidats = menaces(paladins, licorne);
+        if (candidats == 0) return 0;
+        int t = Long.numberOfTrailingZeros(licorne);
+        long prises = 0;
+        while (candidats != 0) {
+            int s = Long.numberOfTrailingZeros(candidats);
+            candidats &= candidats - 1;
+            if ((ENTRE[s * 36 + t] & occupees) == 0) prises |= 1L << s;
+        }
+        return prises;
+    }
+
+    /**
+     * Paladins du joueur au trait qui peuvent prendre la licorne adverse
+     */
+    static long prises(PlateauRapide p) {
+        long occupees = p.noirs | p.blancs;
+        long propres = p.trait == IJoueur.NOIR ? p.noirs : p.blancs;
+        return prises(propres & ~p.licornes, (occupees ^ propres) & p.licornes, occupees);
+    }
+
+    public static void main(String[] args) {
+        if (System.getProperty("escampe.debug") == null) {
+            System.setProperty("escampe.debug", "false");
+        }
+        int parties = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        PositionJeu depart = NotationPosition.lire("nnNnnn/6/6/6/6/bbBbbb b 0");
+        Alea alea = new Alea(42);
+        PlateauRapide p = new PlateauRapide();
+        EtatJeu etat = new EtatJeu(depart.trait);
+        int[] coups = new int[PlateauRapide.MAX_COUPS];
+        long[] tranches = new long[3];
+        long positions = 0, nbPrises = 0;
+        for (int partie = 0; partie < parties; partie++) {
+            p.charger(depart);
+            while (p.vainqueur == 0 && p.demiCoups < 200) {
+                etat.chargerPosition(NotationPosition.lire(p.toString()));
+                int[][] plateau = etat.getPlateau();
+                int[][] types = etat.getTypePiece();
+                for (int couleur : new int[] {IJoueur.NOIR, IJoueur.BLANC}) {
+                    long pieces = couleur == IJoueur.NOIR ? p.noirs : p.blancs;
+                    long paladins = pieces & ~p.licornes;
+                    long licorne = (pieces ^ p.noirs ^ p.blancs) & p.licornes;
+
+                    // Contrôle : rayons de chaque pièce jusqu'à sa portée, sans obstacle
+                    int[] attendu = new int[36];
+                    int total = 0;
+                    for (int r = 0; r < 6; r++) {
+                        for (int c = 0; c < 6; c++) {
+                            if (plateau[r][c] != couleur) continue;
+                            for (int[] d : new int[][] {{1, 0}, {-1, 0}, {0, 1}, {0, -1}}) {
+                                for (int pas = 1; pas <= EtatJeu.LISERE[r][c]; pas++) {
+                                    int nr = r + d[0] * pas, nc = c + d[1] * pas;
+                                    if (nr < 0 || nr >= 6 || nc < 0 || nc >= 6) break;
+                                    attendu[nr * 6 + nc]++;
+                                    total++;
+                                }
+                            }
+                        }
+                    }
+                    compterControle(pieces, tranches);
+                    for (int s = 0; s < 36; s++) {
+                        if (nbControleurs(tranches, s) != attendu[s]) {
+                            echec(p, "contrôle de la case " + s + " par " + couleur + " : "
+                                    + nbControleurs(tranches, s) + " au lieu de " + attendu[s]);
+                        }
+                    }
+                    if (nbControles(pieces) != total) {
+                        echec(p, "nbControles de " + couleur + " : " + nbControles(pieces) + " au lieu de " + total);
+                    }
+
+                    // Prises : coups de EtatJeu (sans contrainte de liseré) qui arrivent sur la licorne
+                    long attendues = 0;
+                    List<String> legaux = etat.genererCoups(plateau, types, couleur, 0);
+                    for (String coup : legaux) {
+                        int c = Coup.lire(coup);
+                        if (licorne != 0 && Coup.arrivee(c) == Long.numberOfTrailingZeros(licorne)) {
+                            attendues |= 1L << Coup.depart(c);
+                        }
+                    }
+                    long obtenues = prises(paladins, licorne, p.noirs | p.blancs);
+                    if (obtenues != attendues) {
+                        echec(p, "prises de " + couleur + " : " + Long.toHexString(obtenues)
+                                + " au lieu de " + Long.toHexString(attendues));
+                    }
+                    nbPrises += Long.bitCount(attendues);
+                }
+                positions++;
+                int nb = p.genererCoups(coups);
+                p.jouer(nb == 0 ? Coup.PASSE : coups[alea.entier(nb)]);
+            }
+        }
+        System.out.println("Vérification : cartes identiques à EtatJeu sur " + positions + " positions ("
+                + nbPrises + " prises)");
+    }
+
+    private static void echec(PlateauRapide p, String message) {
+        System.err.println("Cartes différentes en " + p + " : " + message);
+        System.exit(1);
+    }
+}
@@ -1,10 +1,7 @@
 package escampe;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.net.Socket;
-import java.util.StringTokenizer;
 
 /**
  * Cette classe permet de charger dynamiquement une classe de joueur, qui doit obligatoirement
@@ -50,9 +47,9 @@ public class ClientJeu {
     	
     	Socket clientSocket = null;
     	IJoueur joueur;
-    	String msg, firstToken;
-    	// permet d'analyser les chaînes de caractères lues
-    	StringTokenizer msgTokenizer;
+    	String msg;
+    	// permet d'analyser les messages de l'arbitre sans allocation (voir CodecProtocole)
+    	CodecProtocole codec;
     	// C'est la couleur qui doit jouer le prochain coup
     	int couleurAJouer;
     	// C'est ma couleur (quand je joue)
@@ -63,8 +60,9 @@ public class ClientJeu {
     	try {
     		// initialise la socket
     		clientSocket = new Socket(serverMachine, portNum);
+    		clientSocket.setTcpNoDelay(true);
     		PrintWriter out = new PrintWriter(clientSocket.getOutputStream(), true);
-    		BufferedReader in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
+    		codec = new CodecProtocole(clientSocket.getInputStream());
     		
     		// *****************************************************
     		System.out.print("Chargement de la classe joueur " + classeJoueur + "... ");
@@ -73,17 +71,18 @@ public class ClientJeu {
     		System.out.println("Ok");
     		// ****************************************************
     		
+    		// Les joueurs qui le permettent reçoivent les coups adverses déjà décodés
+    		IJoueurRapide joueurRapide = joueur instanceof IJoueurRapide ? (IJoueurRapide) joueur : null;
+    		
     		// Envoie de l'identifiant de votre quadrinome.
     		out.println(joueur.binoName());
     		System.out.println("Mon nom de quadrinome envoyé est " + joueur.binoName());
     		
-    		// Récupère le message sous forme de chaine de caractères
-    		msg = in.readLine();
-	    	System.out.println(msg);
+    		// Récupère le premier message, qui donne notre couleur
+    		codec.lire();
+	    	System.out.println(codec.argument());
 	    	
-	    	// Lit le contenu du message, toutes les infos du message
-	    	msgTokenizer = new StringTokenizer(msg, " \n\0");
-	    	if ((msgTokenizer.nextToken()).equals("Blanc")) {
+	    	if (codec.getCouleur() == BLANC) {
 	    		System.out.println("Je suis Blanc, j'attends le mouvement de Noir.");
 	    		maCouleur = BLANC;
 	    	}
@@ -98,38 +97,24 @@ public class ClientJeu {
 	    	// boucle générale de jeu
 	    	do {
 	    		// Lire le msg à partir du serveur
-	    		msg = in.readLine();
-	    		
-	    		msgTokenizer = new StringTokenizer(msg, " \n\0");
-	    		firstToken = msgTokenizer.nextToken();
+	    		int type = codec.lire();
 	    		
-	    		if (firstToken.equals("FIN!")) {
+	    		if (type == CodecProtocole.FIN_FLUX) {
 	    			jeuTermine = true;
-	    			String theWinnerIs = msgTokenizer.nextToken();
-	    			
-	    			if (theWinnerIs.equals("Blanc")) {
-	    				couleurAJouer = BLANC;
-	    			}
-	    			else {
-	    				if (theWinnerIs.equals("Noir"))
-	    					couleurAJouer = NOIR;
-	    				else
-	    					couleurAJouer = VIDE;
-	    			}
+	    		}
+	    		else if (type == CodecProtocole.FIN) {
+	    			jeuTermine = true;
+	    			// BLANC, NOIR, ou VIDE pour tout autre vainqueur
+	    			couleurAJouer = codec.getCouleur();
 	    			
 	    			if (couleurAJouer == maCouleur)
 	    				System.out.println("J'ai gagné!");
 	    			
 	    			joueur.declareLeVainqueur(couleurAJouer);
 	    		}
-	    		else if (firstToken.equals("JOUEUR")) {
+	    		else if (type == CodecProtocole.JOUEUR) {
 	    			// On demande au joueur de jouer
-	    			if ((msgTokenizer.nextToken()).equals("Blanc")) {
-	    				couleurAJouer = BLANC;
-	    			}
-	    			else {
-	    				couleurAJouer = NOIR;
-	    			}
+	    			couleurAJouer = codec.getCouleur() == BLANC ? BLANC : NOIR;
 	    			
 	    			if (couleurAJouer == maCouleur) {
 	    				// On appelle la classe du joueur pour choisir un mouvement
@@ -137,9 +122,13 @@ public class ClientJeu {
 	    				out.println(msg);
 	    			}
 	    		}
-	    		else if (firstToken.equals("MOUVEMENT")) {
+	    		else if (type == CodecProtocole.MOUVEMENT) {
 	    			// On lit ce que joue le joueur et on l'envoie à l'autre
-	    			joueur.mouvementEnnemi(msgTokenizer.nextToken());
+	    			int coup = codec.getCoup();
+	    			if (joueurRapide != null && coup != Coup.INVALIDE)
+	    				joueurRapide.mouvementEnnemi(coup);
+	    			else // placement initial
+	    				joueur.mouvementEnnemi(codec.argument());
 	    		}
 	    	} while (!jeuTermine);
 	    	
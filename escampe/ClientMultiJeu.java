@@ -0,0 +1,330 @@
+package escampe;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Variante de ClientJeu qui joue plusieurs parties en même temps dans une seule JVM.
+ *
+ * Toutes les connexions sont multiplexées sur un unique Selector NIO ; chaque connexion a son
+ * propre IJoueur, mais les calculs (choixMouvement) s'exécutent sur un pool de threads partagé
+ * dimensionné sur le nombre de coeurs. Le nombre de threads ne dépend donc pas du nombre de
+ * parties.
+ *
+ * Exemple: >java -cp . escampe.ClientMultiJeu escampe.MonJoueur 4 localhost:1234 localhost:1235
+ * ouvre 4 connexions vers chacun des deux serveurs.
+ *
+ * @see ClientJeu
+ */
+public class ClientMultiJeu {
+
+    static final int BLANC = -1;
+    static final int NOIR = 1;
+    static final int VIDE = 0;
+
+    private static final int TAILLE_TAMPON = 4096;
+    // Marque la fermeture du canal dans la file des messages d'une connexion (objet dédié :
+    // aucune ligne reçue ne peut l'égaler)
+    private static final Object FIN_CONNEXION = new Object();
+
+    private final Selector selector;
+    private final ExecutorService poolCalcul;
+    // Connexions ayant une réponse prête à être écrite par le thread du selector
+    private final Queue<Connexion> aEcrire = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger partiesEnCours = new AtomicInteger();
+    private final AtomicInteger victoires = new AtomicInteger();
+    private final AtomicInteger defaites = new AtomicInteger();
+    private final AtomicInteger nulles = new AtomicInteger();
+
+    public ClientMultiJeu(int nbThreads) throws IOException {
+        this.selector = Selector.open();
+        this.poolCalcul = Executors.newFixedThreadPool(nbThreads, r -> {
+            Thread t = new Thread(r, "escampe-calcul");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * @param args
+     *            Dans l'ordre : NomClasseJoueur NombreConnexionsParServeur Machine:Port [Machine:Port ...]
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("ClientMultiJeu Usage: NomClasseJoueur NombreConnexionsParServeur Machine:Port [Machine:Port ...]");
+            System.exit(1);
+        }
+
+        // Des dizaines de parties en parallèle : pas de trace de débogage sauf demande explicite
+        if (System.getProperty("escampe.debug") == null) {
+            System.setProperty("escampe.debug", "false");
+        }
+
+        String classeJoueur = args[0];
+        int nbConnexions = Integer.parseInt(args[1]);
+        int nbThreads = Integer.getInteger("escampe.threads", Runtime.getRuntime().availableProcessors());
+
+        ClientMultiJeu client = new ClientMultiJeu(nbThreads);
+        Class<?> cjoueur = Class.forName(classeJoueur);
+        for (int i = 2; i < args.length; i++) {
+            int sep = args[i].lastIndexOf(':');
+            String machine = args[i].substring(0, sep);
+            int port = Integer.parseInt(args[i].substring(sep + 1));
+            for (int n = 0; n < nbConnexions; n++) {
+                client.connecter(new InetSocketAddress(machine, port), (IJoueur) cjoueur.getDeclaredConstructor().newInstance());
+            }
+        }
+
+        System.out.println(client.partiesEnCours.get() + " parties lancées sur " + nbThreads + " threads de calcul");
+        client.boucle();
+        System.out.println("Toutes les parties sont finies : " + client.victoires.get() + " victoires, "
+                + client.defaites.get() + " défaites, " + client.nulles.get() + " nulles");
+    }
+
+    /**
+     * Ouvre une connexion non bloquante pour un nouveau joueur
+     */
+    public void connecter(InetSocketAddress adresse, IJoueur joueur) throws IOException {
+        SocketChannel canal = SocketChannel.open();
+        canal.configureBlocking(false);
+        canal.connect(adresse);
+        Connexion cx = new Connexion(canal, joueur, adresse.toString());
+        canal.register(selector, SelectionKey.OP_CONNECT, cx);
+        partiesEnCours.incrementAndGet();
+    }
+
+    /**
+     * Boucle du selector : connexions, lectures et écritures. Se termine quand toutes les
+     * parties sont finies.
+     */
+    public void boucle() throws IOException {
+        while (partiesEnCours.get() > 0) {
+            selector.select(1000);
+
+            // Réponses calculées par le pool, à écrire depuis ce thread
+            Connexion prete;
+            while ((prete = aEcrire.poll()) != null) {
+                SelectionKey cle = prete.canal.keyFor(selector);
+                if (cle != null && cle.isValid()) {
+                    cle.interestOps(cle.interestOps() | SelectionKey.OP_WRITE);
+                }
+            }
+
+            Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+            while (it.hasNext()) {
+                SelectionKey cle = it.next();
+                it.remove();
+                Connexion cx = (Connexion) cle.attachment();
+                try {
+                    if (cle.isConnectable() && cx.canal.finishConnect()) {
+                        // Envoi de l'identifiant du quadrinome dès la connexion
+                        cx.envoyer(cx.joueur.binoName());
+                        cle.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    }
+                    if (cle.isValid() && cle.isReadable()) {
+                        lire(cx);
+                    }
+                    if (cle.isValid() && cle.isWritable()) {
+                        if (cx.ecrire()) {
+                            cle.interestOps(SelectionKey.OP_READ);
+                        }
+                    }
+                } catch (IOException e) {
+                    System.out.println(cx.nom + ": " + e);
+                    fermer(cx);
+                    cx.recevoir(FIN_CONNEXION);
+                }
+            }
+        }
+        poolCalcul.shutdown();
+        selector.close();
+    }
+
+    /**
+     * Lit ce qui est disponible et découpe en lignes, transmises au joueur dans l'ordre
+     */
+    private void lire(Connexion cx) throws IOException {
+        int n = cx.canal.read(cx.entree);
+        if (n < 0) {
+            // Les messages déjà reçus (dont FIN!) sont traités avant de clore la partie
+            fermer(cx);
+            cx.recevoir(FIN_CONNEXION);
+            return;
+        }
+        cx.entree.flip();
+        while (cx.entree.hasRemaining()) {
+            byte b = cx.entree.get();
+            if (b == '\n' || b == '\0') {
+                if (cx.ligne.position() > 0) {
+                    cx.ligne.flip();
+                    String msg = StandardCharsets.ISO_8859_1.decode(cx.ligne).toString().trim();
+                    cx.ligne.clear();
+                    if (msg.startsWith("JOUEUR")) cx.traitRecuNs = System.nanoTime();
+                    if (!msg.isEmpty()) cx.recevoir(msg);
+                }
+            } else if (b != '\r') {
+                if (!cx.ligne.hasRemaining()) {
+                    // Ligne trop longue : message corrompu, la connexion est close comme par l'arbitre
+                    System.out.println(cx.nom + ": ligne de plus de " + TAILLE_TAMPON + " octets");
+                    fermer(cx);
+                    cx.recevoir(FIN_CONNEXION);
+                    return;
+                }
+                cx.ligne.put(b);
+            }
+        }
+        cx.entree.clear();
+    }
+
+    private void fermer(Connexion cx) {
+        try {
+            cx.canal.close();
+        } catch (IOException e) {
+            // rien à faire
+        }
+    }
+
+    /**
+     * Appelé par le pool une fois tous les messages de la partie traités
+     */
+    private void terminer(Connexion cx) {
+        fermer(cx);
+        if (cx.terminee.compareAndSet(false, true)) {
+            partiesEnCours.decrementAndGet();
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Une partie : le canal, le joueur, et la file des messages à lui transmettre.
+     * Les messages d'une même connexion sont traités dans l'ordre, un seul à la fois,
+     * par le pool partagé.
+     */
+    private class Connexion implements Runnable {
+        final SocketChannel canal;
+        final IJoueur joueur;
+        final String nom;
+        final ByteBuffer entree = ByteBuffer.allocate(TAILLE_TAMPON);
+        final ByteBuffer ligne = ByteBuffer.allocate(TAILLE_TAMPON);
+        final Queue<Object> messages = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean planifiee = new AtomicBoolean();
+        final AtomicBoolean terminee = new AtomicBoolean();
+        // Réponses en attente d'écriture (accès synchronisé sur sortie)
+        final Queue<ByteBuffer> sortie = new ArrayDeque<>();
+        int maCouleur = VIDE;
+        // Réception du dernier JOUEUR (thread du selector) : le temps de réflexion part de là,
+        // même si la demande attend un thread libre du pool
+        volatile long traitRecuNs;
+
+        Connexion(SocketChannel canal, IJoueur joueur, String nom) {
+            this.canal = canal;
+            this.joueur = joueur;
+            this.nom = nom;
+        }
+
+        void recevoir(Object msg) {
+            messages.add(msg);
+            if (planifiee.compareAndSet(false, true)) {
+                poolCalcul.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            Object msg;
+            while ((msg = messages.poll()) != null) {
+                if (msg == FIN_CONNEXION) {
+                    // Fermée sans FIN! : le joueur rend sa génération de table et son solveur
+                    if (!terminee.get() && joueur instanceof IJoueurConnexion) {
+                        ((IJoueurConnexion) joueur).connexionPerdue();
+                    }
+                    terminer(this);
+                    continue;
+                }
+                try {
+                    traiter((String) msg);
+                } catch (RuntimeException e) {
+                    System.out.println(nom + ": " + e);
+                }
+            }
+            planifiee.set(false);
+            // Un message a pu arriver entre le dernier poll et la libération
+            if (!messages.isEmpty() && planifiee.compareAndSet(false, true)) {
+                poolCalcul.execute(this);
+            }
+        }
+
+        /**
+         * Même logique que la boucle générale de ClientJeu
+         */
+        private void traiter(String msg) {
+            StringTokenizer msgTokenizer = new StringTokenizer(msg, " \n\0");
+            String firstToken = msgTokenizer.nextToken();
+
+            if (maCouleur == VIDE) {
+                maCouleur = firstToken.equals("Blanc") ? BLANC : NOIR;
+                joueur.initJoueur(maCouleur);
+                return;
+            }
+
+            if (firstToken.equals("FIN!")) {
+                String theWinnerIs = msgTokenizer.hasMoreTokens() ? msgTokenizer.nextToken() : "";
+                int couleurGagnant = theWinnerIs.equals("Blanc") ? BLANC : theWinnerIs.equals("Noir") ? NOIR : VIDE;
+                if (couleurGagnant == maCouleur) victoires.incrementAndGet();
+                else if (couleurGagnant == VIDE) nulles.incrementAndGet();
+                else defaites.incrementAndGet();
+                joueur.declareLeVainqueur(couleurGagnant);
+                terminer(this);
+            }
+            else if (firstToken.equals("JOUEUR")) {
+                int couleurAJouer = msgTokenizer.nextToken().equals("Blanc") ? BLANC : NOIR;
+                if (couleurAJouer == maCouleur) {
+                    envoyer(joueur instanceof IJoueurRapide
+                            ? ((IJoueurRapide) joueur).choixMouvementDepuis(traitRecuNs)
+                            : joueur.choixMouvement());
+                    aEcrire.add(this);
+                    selector.wakeup();
+                }
+            }
+            else if (firstToken.equals("MOUVEMENT")) {
+                joueur.mouvementEnnemi(msgTokenizer.nextToken());
+            }
+        }
+
+        void envoyer(String msg) {
+            byte[] octets = (msg + "\n").getBytes(StandardCharsets.ISO_8859_1);
+            synchronized (sortie) {
+                sortie.add(ByteBuffer.wrap(octets));
+            }
+        }
+
+        /**
+         * Écrit ce qui peut l'être ; renvoie vrai si tout a été écrit
+         */
+        boolean ecrire() throws IOException {
+            synchronized (sortie) {
+                while (!sortie.isEmpty()) {
+                    ByteBuffer b = sortie.peek();
+                    canal.write(b);
+                    if (b.hasRemaining()) return false;
+                    sortie.poll();
+                }
+                return true;
+            }
+        }
+    }
+}
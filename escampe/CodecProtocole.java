@@ -0,0 +1,201 @@
+package escampe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lecture des messages de l'arbitre directement depuis un tampon d'octets réutilisé, sans
+ * créer de String ni de StringTokenizer par message. Les coups "A1-B2" sont décodés en
+ * entiers (voir Coup) ; seuls les placements initiaux, deux par partie, passent par une chaîne.
+ *
+ * Utilisation :
+ *     while (codec.lire() != CodecProtocole.FIN_FLUX) {
+ *         switch (codec.getType()) ...
+ *     }
+ */
+public final class CodecProtocole {
+    // Types de messages
+    public static final int FIN_FLUX = -1;
+    public static final int INCONNU = 0;
+    public static final int COULEUR = 1;   // "Blanc" ou "Noir", premier message de la partie
+    public static final int JOUEUR = 2;    // "JOUEUR Couleur"
+    public static final int MOUVEMENT = 3; // "MOUVEMENT coup"
+    public static final int FIN = 4;       // "FIN! Couleur"
+
+    private static final byte[] MOT_BLANC = octets("Blanc");
+    private static final byte[] MOT_NOIR = octets("Noir");
+    private static final byte[] MOT_JOUEUR = octets("JOUEUR");
+    private static final byte[] MOT_MOUVEMENT = octets("MOUVEMENT");
+    private static final byte[] MOT_FIN = octets("FIN!");
+    private static final byte[] MOT_PASSE = octets("PASSE");
+
+    private final InputStream in;
+    private final byte[] tampon;
+    private int debut;
+    private int fin;
+
+    // Résultat du dernier message lu
+    private int type;
+    private int couleur;
+    private int coup;
+    private int debutArgument;
+    private int finArgument;
+
+    public CodecProtocole(InputStream in) {
+        this(in, 8192);
+    }
+
+    public CodecProtocole(InputStream in, int taille) {
+        this.in = in;
+        this.tampon = new byte[taille];
+    }
+
+    /**
+     * Lit le message suivant et renvoie son type (FIN_FLUX en fin de flux)
+     */
+    public int lire() throws IOException {
+        while (true) {
+            // Chercher une fin de ligne dans ce qui est déjà en tampon
+            int nl = indexOf(tampon, debut, fin, (byte) '\n');
+            if (nl >= 0) {
+                int d = debut;
+                debut = nl + 1;
+                if (analyser(tampon, d, nl)) return type;
+                continue;
+            }
+
+            // Compacter puis remplir
+            if (debut > 0) {
+                System.arraycopy(tampon, debut, tampon, 0, fin - debut);
+                fin -= debut;
+                debut = 0;
+            }
+            if (fin == tampon.length) {
+                throw new IOException("Message de l'arbitre trop long");
+            }
+            int n = in.read(tampon, fin, tampon.length - fin);
+            if (n < 0) {
+                // Dernière ligne sans fin de ligne
+                if (fin > debut) {
+                    int d = debut;
+                    debut = fin;
+                    if (analyser(tampon, d, fin)) return type;
+                }
+                type = FIN_FLUX;
+                return FIN_FLUX;
+            }
+            fin += n;
+        }
+    }
+
+    /**
+     * Analyse une ligne [deb, fin[ ; renvoie faux si elle est vide
+     */
+    boolean analyser(byte[] b, int deb, int fin) {
+        // Ignorer les blancs, '\0' et '\r' de début et de fin
+        while (deb < fin && estBlanc(b[deb])) deb++;
+        while (fin > deb && estBlanc(b[fin - 1])) fin--;
+        if (deb == fin) return false;
+
+        int finMot = deb;
+        while (finMot < fin && !estBlanc(b[finMot])) finMot++;
+        int arg = finMot;
+        while (arg < fin && estBlanc(b[arg])) arg++;
+        int finArg = arg;
+        while (finArg < fin && !estBlanc(b[finArg])) finArg++;
+
+        debutArgument = arg;
+        finArgument = finArg;
+        couleur = 0;
+        coup = Coup.INVALIDE;
+
+        if (egal(b, deb, finMot, MOT_JOUEUR)) {
+            type = JOUEUR;
+            couleur = lireCouleur(b, arg, finArg);
+        } else if (egal(b, deb, finMot, MOT_MOUVEMENT)) {
+            type = MOUVEMENT;
+            coup = lireCoup(b, arg, finArg);
+        } else if (egal(b, deb, finMot, MOT_FIN)) {
+            type = FIN;
+            couleur = lireCouleur(b, arg, finArg);
+        } else if ((couleur = lireCouleur(b, deb, finMot)) != 0) {
+            type = COULEUR;
+            debutArgument = deb;
+            finArgument = finMot;
+        } else {
+            type = INCONNU;
+            debutArgument = deb;
+            finArgument = fin;
+        }
+        return true;
+    }
+
+    /**
+     * Décode "Blanc"/"Noir" en BLANC/NOIR, 0 sinon
+     */
+    static int lireCouleur(byte[] b, int deb, int fin) {
+        if (egal(b, deb, fin, MOT_BLANC)) return IJoueur.BLANC;
+        if (egal(b, deb, fin, MOT_NOIR)) return IJoueur.NOIR;
+        return 0;
+    }
+
+    /**
+     * Décode "A1-B2" ou "PASSE" en entier (voir Coup) ; INVALIDE pour un placement ou
+     * tout autre format
+     */
+    public static int lireCoup(byte[] b, int deb, int fin) {
+        if (fin - deb == 5 && b[deb + 2] == '-') {
+            int dep = Coup.lireCase((char) b[deb], (char) b[deb + 1]);
+            int arr = Coup.lireCase((char) b[deb + 3], (char) b[deb + 4]);
+            return dep < 0 || arr < 0 ? Coup.INVALIDE : Coup.encoder(dep, arr);
+        }
+        if (egal(b, deb, fin, MOT_PASSE) || (fin - deb == 1 && b[deb] == 'E')) return Coup.PASSE;
+        return Coup.INVALIDE;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    // Couleur du message JOUEUR, FIN ou COULEUR (0 si aucune)
+    public int getCouleur() {
+        return couleur;
+    }
+
+    // Coup du message MOUVEMENT, Coup.INVALIDE si ce n'est pas un coup "A1-B2" ou "PASSE"
+    public int getCoup() {
+        return coup;
+    }
+
+    /**
+     * Argument du dernier message sous forme de chaîne (alloue : à réserver aux placements
+     * et aux messages inattendus)
+     */
+    public String argument() {
+        return new String(tampon, debutArgument, finArgument - debutArgument, StandardCharsets.ISO_8859_1);
+    }
+
+    private static boolean estBlanc(byte c) {
+        return c == ' ' || c == '\0' || c == '\r' || c == '\n' || c == '\t';
+    }
+
+    private static boolean egal(byte[] b, int deb, int fin, byte[] mot) {
+        if (fin - deb != mot.length) return false;
+        for (int i = 0; i < mot.length; i++) {
+            if (b[deb + i] != mot[i]) return false;
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] b, int deb, int fin, byte c) {
+        for (int i = deb; i < fin; i++) {
+            if (b[i] == c) return i;
+        }
+        return -1;
+    }
+
+    private static byte[] octets(String s) {
+        return s.getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,62 @@
+package escampe;
+
+/**
+ * Représentation entière d'un coup, pour éviter les chaînes "A1-B2" dans les chemins critiques.
+ * Une case est codée par son indice ligne * 6 + colonne (A1 = 0, F6 = 35), un coup par
+ * (départ << 6) | arrivée.
+ */
+public final class Coup {
+    public static final int PASSE = 1 << 12;
+    public static final int INVALIDE = -1;
+
+    private Coup() {
+    }
+
+    public static int encoder(int depart, int arrivee) {
+        return (depart << 6) | arrivee;
+    }
+
+    public static int encoder(int fr, int fc, int sr, int sc) {
+        return ((fr * 6 + fc) << 6) | (sr * 6 + sc);
+    }
+
+    public static int depart(int coup) {
+        return coup >>> 6;
+    }
+
+    public static int arrivee(int coup) {
+        return coup & 63;
+    }
+
+    /**
+     * Lit une case "A1" ; renvoie -1 si la notation est invalide
+     */
+    public static int lireCase(char colonne, char ligne) {
+        int c = colonne - 'A';
+        int r = ligne - '1';
+        if (c < 0 || c >= 6 || r < 0 || r >= 6) return -1;
+        return r * 6 + c;
+    }
+
+    /**
+     * Lit un coup "A1-B2" ou "PASSE" ; renvoie INVALIDE pour tout autre format
+     */
+    public static int lire(CharSequence s) {
+        if (s.length() == 5 && s.charAt(2) == '-') {
+            int dep = lireCase(s.charAt(0), s.charAt(1));
+            int arr = lireCase(s.charAt(3), s.charAt(4));
+            return dep < 0 || arr < 0 ? INVALIDE : encoder(dep, arr);
+        }
+        if ("PASSE".contentEquals(s) || "E".contentEquals(s)) return PASSE;
+        return INVALIDE;
+    }
+
+    /**
+     * Notation "A1-B2" du coup, telle qu'attendue par l'arbitre
+     */
+    public static String toString(int coup) {
+        if (coup == PASSE) return "PASSE";
+        int dep = depart(coup), arr = arrivee(coup);
+        return EtatJeu.toPos(dep / 6, dep % 6) + "-" + EtatJeu.toPos(arr / 6, arr % 6);
+    }
+}
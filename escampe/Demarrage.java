@@ -0,0 +1,123 @@
+package escampe;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Mesure du temps entre le lancement de la JVM et le premier coup, sans puis avec une archive
+ * AppCDS (classes déjà analysées et vérifiées, projetées au démarrage au lieu d'être lues dans
+ * les jars).
+ *
+ * Chaque mesure est une JVM neuve qui suit le chemin de ClientJeu : chargement réflexif du
+ * joueur, initJoueur (avec l'échauffement, voir Echauffement), premier coup (le placement),
+ * puis une première recherche à profondeur PROFONDEUR_RECHERCHE. Les temps sont comptés
+ * depuis le lancement du processus par le programme de mesure.
+ *
+ * L'archive est créée, si elle n'existe pas, par une exécution d'entraînement sur le même
+ * chemin (build.sh cds la crée aussi à côté du jar) :
+ *     >java -XX:ArchiveClassesAtExit=SkitouCamara.jsa -cp SkitouCamara.jar:escampeobf.jar escampe.Demarrage --entrainement
+ *     >java -XX:SharedArchiveFile=SkitouCamara.jsa -cp SkitouCamara.jar:escampeobf.jar escampe.ClientJeu ...
+ *
+ * Exemple: >java -cp SkitouCamara.jar:escampeobf.jar escampe.Demarrage SkitouCamara.jsa 5
+ */
+public final class Demarrage {
+    private static final String ARG_ENTRAINEMENT = "--entrainement";
+    private static final String ARG_MESURE = "--mesure";
+    private static final String POSITION_RECHERCHE = "4N1/1n4/3bn1/2b3/4b1/1B4 b 1";
+    private static final int PROFONDEUR_RECHERCHE = 4;
+    private static final String[] ETAPES = {"chargement", "initJoueur", "premierCoup", "premiereRecherche"};
+
+    private Demarrage() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals(ARG_ENTRAINEMENT)) {
+            parcourir(System.currentTimeMillis());
+            return;
+        }
+        if (args.length > 1 && args[0].equals(ARG_MESURE)) {
+            long[] t = parcourir(Long.parseLong(args[1]));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < t.length; i++) sb.append(i > 0 ? " " : "").append(t[i]);
+            System.out.println(sb);
+            return;
+        }
+
+        String archive = args.length > 0 ? args[0] : "SkitouCamara.jsa";
+        int nbMesures = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        if (!new File(archive).exists()) {
+            System.out.println("Création de l'archive " + archive + " ...");
+            executer("-XX:ArchiveClassesAtExit=" + archive, ARG_ENTRAINEMENT);
+        }
+        long[] sans = mediane(null, nbMesures);
+        long[] avec = mediane("-XX:SharedArchiveFile=" + archive, nbMesures);
+        System.out.printf("%-20s %10s %10s%n", "ms depuis le lancement", "sans CDS", "avec CDS");
+        for (int i = 0; i < ETAPES.length; i++) {
+            System.out.printf("%-20s %10d %10d%n", ETAPES[i], sans[i], avec[i]);
+        }
+    }
+
+    /**
+     * Chemin de démarrage d'un client, rend l'instant de fin de chaque étape (ms depuis t0)
+     */
+    private static long[] parcourir(long t0) throws ReflectiveOperationException {
+        long[] t = new long[ETAPES.length];
+        Class<?> classe = Class.forName("escampe.MonJoueur");
+        IJoueur joueur = (IJoueur) classe.getDeclaredConstructor().newInstance();
+        t[0] = System.currentTimeMillis() - t0;
+        joueur.initJoueur(IJoueur.NOIR);
+        t[1] = System.currentTimeMillis() - t0;
+        joueur.choixMouvement();
+        t[2] = System.currentTimeMillis() - t0;
+        MonJoueur m = (MonJoueur) joueur;
+        m.chargerPosition(NotationPosition.lire(POSITION_RECHERCHE));
+        m.setLimites(Long.MAX_VALUE / 2, PROFONDEUR_RECHERCHE);
+        m.choixMouvement();
+        t[3] = System.currentTimeMillis() - t0;
+        return t;
+    }
+
+    private static long[] mediane(String optionCds, int nbMesures) throws IOException, InterruptedException {
+        long[][] mesures = new long[ETAPES.length][nbMesures];
+        for (int k = 0; k < nbMesures; k++) {
+            String[] champs = executer(optionCds, ARG_MESURE, String.valueOf(System.currentTimeMillis())).split(" ");
+            for (int i = 0; i < ETAPES.length; i++) mesures[i][k] = Long.parseLong(champs[i]);
+        }
+        long[] m = new long[ETAPES.length];
+        for (int i = 0; i < ETAPES.length; i++) {
+            Arrays.sort(mesures[i]);
+            m[i] = mesures[i][nbMesures / 2];
+        }
+        return m;
+    }
+
+    /**
+     * Lance une JVM sur ce programme, rend sa dernière ligne
+     */
+    private static String executer(String optionCds, String... args) throws IOException, InterruptedException {
+        List<String> commande = new ArrayList<>();
+        commande.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        if (optionCds != null) commande.add(optionCds);
+        commande.add("-Xshare:auto");
+        commande.add("-Descampe.debug=false");
+        commande.add("-Descampe.echauffement=" + Echauffement.DUREE_MAX_MS);
+        commande.add("-cp");
+        commande.add(System.getProperty("java.class.path"));
+        commande.add(Demarrage.class.getName());
+        commande.addAll(Arrays.asList(args));
+        Process processus = new ProcessBuilder(commande).redirectErrorStream(true).start();
+        String derniere = null;
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(processus.getInputStream(), StandardCharsets.UTF_8))) {
+            String ligne;
+            while ((ligne = in.readLine()) != null) derniere = ligne;
+        }
+        if (processus.waitFor() != 0) throw new IOException("JVM de mesure en échec : " + derniere);
+        return derniere;
+    }
+}
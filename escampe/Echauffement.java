@@ -0,0 +1,182 @@
+package escampe;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Échauffement du JIT avant le premier coup : sans lui, le premier choixMouvement tourne dans
+ * l'interpréteur et le code C1, et atteint une profondeur bien moindre que les suivants avec
+ * le même temps.
+ *
+ * Un MonJoueur jetable, avec sa propre petite table et son propre cache, cherche à profondeur
+ * fixe sur des positions synthétiques (génération des coups, évaluation et alpha-beta) par
+ * tours, jusqu'à ce que le JIT ne compile presque plus rien pendant un tour ou que la durée
+ * maximale soit atteinte. Rien n'est laissé derrière : ni table, ni cache, ni métriques, ni
+ * table persistante consultée. Fait une fois par JVM, depuis MonJoueur.initJoueur.
+ *
+ * Durée maximale : -Descampe.echauffement=1000 (ms, 0 pour ne pas échauffer).
+ *
+ * Le main mesure le gain sur le premier coup : il lance deux JVM, avec et sans échauffement,
+ * qui jouent chacune un premier coup au temps de partie, et compare les profondeurs atteintes
+ * les noeuds cherchés et le temps pris.
+ *
+ * Exemple: >java -cp . escampe.Echauffement 1000 12
+ */
+public final class Echauffement {
+    public static final long DUREE_MAX_MS = Long.getLong("escampe.echauffement", 1000);
+
+    private static final String[] POSITIONS = {
+        "nnNnnn/6/6/6/6/bbBbbb b 0",
+        "n1N1n1/3n2/bn2bn/6/1b1b1b/2B3 b 2",
+        "bn4/6/6/4b1/n2B2/1N4 b 2",
+        "4N1/1n4/3bn1/2b3/4b1/1B4 b 1",
+        "1n2n1/n1N2n/6/6/b2b1b/1bB1b1 n 0",
+        "6/nN1n2/2b1n1/1n2b1/b4B/2b1n1 n 3",
+    };
+    private static final int PROFONDEUR = 5;
+    // Le JIT est jugé calme quand il compile moins de 1/20 de la durée d'un tour
+    private static final int RAPPORT_CALME = 20;
+    private static final String ARG_PREMIER_COUP = "--premierCoup";
+    // Mesure du premier coup : temps de partie de MonJoueur, position de milieu de partie
+    private static final long TEMPS_COUP_MS = 4500;
+    private static final String POSITION_PREMIER_COUP = POSITIONS[3];
+
+    private static final AtomicBoolean FAIT = new AtomicBoolean();
+
+    private Echauffement() {
+    }
+
+    /**
+     * Échauffe si ce n'est déjà fait dans cette JVM et si DUREE_MAX_MS > 0
+     *
+     * @return le bilan, null si rien n'a été fait
+     */
+    public static Bilan executerUneFois() {
+        if (DUREE_MAX_MS <= 0 || !FAIT.compareAndSet(false, true)) return null;
+        return executer(DUREE_MAX_MS);
+    }
+
+    /**
+     * Échauffe au plus dureeMaxMs
+     */
+    public static Bilan executer(long dureeMaxMs) {
+        List<PositionJeu> positions = new ArrayList<>();
+        for (String p : POSITIONS) positions.add(NotationPosition.lire(p));
+        TableTransposition table = new TableTransposition(16);
+        CacheEvaluation cache = new CacheEvaluation(12);
+        MonJoueur joueur = new MonJoueur();
+        joueur.setTable(table);
+        joueur.setCacheEvaluation(cache);
+        joueur.setTablePersistante(null);
+        joueur.setTrace(false);
+
+        CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+        boolean mesureJit = jit != null && jit.isCompilationTimeMonitoringSupported();
+        Bilan bilan = new Bilan();
+        long debut = System.nanoTime();
+        long fin = debut + dureeMaxMs * 1_000_000;
+        while (System.nanoTime() < fin) {
+            long debutTour = System.nanoTime();
+            long compileAvant = mesureJit ? jit.getTotalCompilationTime() : 0;
+            long noeuds = 0;
+            for (PositionJeu p : positions) {
+                long resteMs = (fin - System.nanoTime()) / 1_000_000;
+                if (resteMs <= 0) break;
+                table.vider();
+                cache.vider();
+                joueur.setLimites(resteMs, PROFONDEUR);
+                joueur.chargerPosition(p);
+                noeuds += joueur.analyser().noeuds;
+            }
+            long dureeTourNs = Math.max(1, System.nanoTime() - debutTour);
+            long compileMs = mesureJit ? jit.getTotalCompilationTime() - compileAvant : 0;
+            double nps = noeuds * 1e9 / dureeTourNs;
+            if (bilan.tours == 0) bilan.noeudsParSecondeDebut = nps;
+            bilan.noeudsParSecondeFin = nps;
+            bilan.tours++;
+            if (mesureJit && bilan.tours > 1 && compileMs * 1_000_000 * RAPPORT_CALME < dureeTourNs) {
+                bilan.jitCalme = true;
+                break;
+            }
+        }
+        bilan.dureeMs = (System.nanoTime() - debut) / 1_000_000;
+        return bilan;
+    }
+
+    /**
+     * Ce qu'a fait un échauffement
+     */
+    public static final class Bilan {
+        public int tours;
+        public long dureeMs;
+        public double noeudsParSecondeDebut;
+        public double noeudsParSecondeFin;
+        // Arrêté parce que le JIT ne compilait plus, plutôt que par la durée maximale
+        public boolean jitCalme;
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d tours en %d ms, %.2f -> %.2f M noeuds/s, %s", tours, dureeMs,
+                    noeudsParSecondeDebut / 1e6, noeudsParSecondeFin / 1e6,
+                    jitCalme ? "JIT calme" : "durée maximale atteinte");
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 1 && args[0].equals(ARG_PREMIER_COUP)) {
+            premierCoup(Integer.parseInt(args[1]));
+            return;
+        }
+        long dureeMs = args.length > 0 ? Long.parseLong(args[0]) : DUREE_MAX_MS;
+        int profondeur = args.length > 1 ? Integer.parseInt(args[1]) : 12;
+        String[] sans = lancerPremierCoup(0, profondeur);
+        String[] avec = lancerPremierCoup(dureeMs, profondeur);
+        // Quand les deux atteignent la profondeur demandée, le gain se lit sur le temps
+        System.out.println("Premier coup : profondeur " + sans[1] + " sans échauffement, " + avec[1] + " avec ("
+                + dureeMs + " ms), gain " + (Integer.parseInt(avec[1]) - Integer.parseInt(sans[1]))
+                + " ; noeuds " + sans[3] + " -> " + avec[3] + " ; temps " + sans[5] + " ms -> " + avec[5] + " ms");
+    }
+
+    /**
+     * Dans une JVM neuve : initJoueur (donc l'échauffement), puis un premier coup au temps de
+     * partie, la profondeur assez grande pour que le temps limite la recherche
+     */
+    private static void premierCoup(int profondeur) {
+        MonJoueur joueur = new MonJoueur();
+        PositionJeu p = NotationPosition.lire(POSITION_PREMIER_COUP);
+        joueur.initJoueur(p.trait);
+        joueur.chargerPosition(p);
+        joueur.setLimites(TEMPS_COUP_MS, profondeur);
+        String coup = joueur.choixMouvement();
+        ResultatRecherche r = joueur.getDernierResultat();
+        System.out.println("profondeur " + r.profondeur + " noeuds " + r.noeuds + " temps " + r.tempsMs + " coup " + coup);
+    }
+
+    private static String[] lancerPremierCoup(long echauffementMs, int profondeur) throws IOException, InterruptedException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder pb = new ProcessBuilder(java, "-Descampe.debug=false", "-Descampe.echauffement=" + echauffementMs,
+                "-cp", System.getProperty("java.class.path"), Echauffement.class.getName(), ARG_PREMIER_COUP,
+                String.valueOf(profondeur));
+        pb.redirectErrorStream(true);
+        Process processus = pb.start();
+        String derniere = null;
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(processus.getInputStream(), StandardCharsets.UTF_8))) {
+            String ligne;
+            while ((ligne = in.readLine()) != null) derniere = ligne;
+        }
+        if (processus.waitFor() != 0 || derniere == null || !derniere.startsWith("profondeur ")) {
+            throw new IOException("Mesure du premier coup en échec : " + derniere);
+        }
+        System.out.println((echauffementMs > 0 ? "Avec" : "Sans") + " échauffement : " + derniere);
+        return derniere.split(" ");
+    }
+}
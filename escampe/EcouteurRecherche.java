@@ -0,0 +1,11 @@
+package escampe;
+
+/**
+ * Rappel facultatif de la recherche de MonJoueur, appelé à la fin de chaque itération de
+ * l'approfondissement itératif (outils d'analyse, réglage, métriques).
+ * Il est appelé depuis le thread de recherche : il doit rester rapide.
+ */
+public interface EcouteurRecherche {
+
+    void iterationTerminee(StatistiquesIteration iteration);
+}
@@ -26,6 +26,21 @@ public class EtatJeu {
         {3,2,2,1,3,2}
     };
     
+    // MASQUES_LISERE[l] : cases de liseré l (bit r * 6 + c) ; CASES_LISERE[l] : les mêmes en liste
+    public static final long[] MASQUES_LISERE = new long[4];
+    public static final int[][] CASES_LISERE = new int[4][];
+    
+    static {
+        int[] nb = new int[4];
+        for (int l = 1; l < 4; l++) CASES_LISERE[l] = new int[12];
+        for (int s = 0; s < 36; s++) {
+            int l = LISERE[s / 6][s % 6];
+            MASQUES_LISERE[l] |= 1L << s;
+            CASES_LISERE[l][nb[l]++] = s;
+        }
+        CASES_LISERE[0] = new int[0];
+    }
+    
     // Valeurs stratégiques des positions sur le plateau
     public static final int[][] VALEUR_POSITION = {
         {3, 4, 4, 5, 3, 4}, // Ligne 0
@@ -44,9 +59,18 @@ public class EtatJeu {
     private int[] licorneNoire = new int[2]; // [row, col]
     private int[] licorneBlanche = new int[2]; // [row, col]
     private boolean initialDone;
-    
-    // Pour le débogage
-    private static final boolean DEBUG = true;
+    // Cases occupées par chaque couleur (bit r * 6 + c), tenues à jour avec le plateau : les
+    // pièces sur un liseré sont piecesNoires & MASQUES_LISERE[l]
+    private long piecesNoires;
+    private long piecesBlanches;
+    // Clés Zobrist (point de vue du joueur) des positions depuis les placements, dans l'ordre
+    private long[] hachages = new long[64];
+    private int nbHachages;
+    
+    // Pour le débogage (désactivable par -Descampe.debug=false)
+    private static final boolean DEBUG = Boolean.parseBoolean(System.getProperty("escampe.debug", "true"));
+    // Trace de cet état (DEBUG par défaut ; coupée par les bancs d'essai)
+    private boolean trace = DEBUG;
     
     /**
      * Constructeur
@@ -71,6 +95,9 @@ public class EtatJeu {
     public void reinitialiser() {
         this.lastLisere = 0;
         this.initialDone = false;
+        this.piecesNoires = 0;
+        this.piecesBlanches = 0;
+        this.nbHachages = 0;
         
         for (int i = 0; i < 6; i++) {
             Arrays.fill(plateau[i], VIDE);
@@ -78,6 +105,31 @@ public class EtatJeu {
         }
     }
     
+    /**
+     * Remplace l'état par une position complète (voir NotationPosition) ; le placement
+     * initial est considéré comme fait
+     */
+    public void chargerPosition(PositionJeu position) {
+        piecesNoires = 0;
+        piecesBlanches = 0;
+        for (int r = 0; r < 6; r++) {
+            System.arraycopy(position.plateau[r], 0, plateau[r], 0, 6);
+            System.arraycopy(position.typePiece[r], 0, typePiece[r], 0, 6);
+            for (int c = 0; c < 6; c++) {
+                if (plateau[r][c] == NOIR) piecesNoires |= 1L << (r * 6 + c);
+                else if (plateau[r][c] == BLANC) piecesBlanches |= 1L << (r * 6 + c);
+                if (typePiece[r][c] != LICORNE) continue;
+                int[] licorne = plateau[r][c] == NOIR ? licorneNoire : licorneBlanche;
+                licorne[0] = r;
+                licorne[1] = c;
+            }
+        }
+        lastLisere = position.lisere;
+        initialDone = true;
+        nbHachages = 0;
+        noterPosition(position.trait);
+    }
+
     /**
      * Applique le placement initial des pièces
      */
@@ -90,6 +142,7 @@ public class EtatJeu {
         int lr = Integer.parseInt(licornePos.substring(1)) - 1;
         plateau[lr][lc] = couleurJoueur;
         typePiece[lr][lc] = LICORNE;
+        poser(couleurJoueur, lr, lc);
         
         // Mémoriser la position de notre licorne
         if (couleurJoueur == NOIR) {
@@ -107,16 +160,54 @@ public class EtatJeu {
             int r = Integer.parseInt(pos.substring(1)) - 1;
             plateau[r][c] = couleurJoueur;
             typePiece[r][c] = PALADIN;
+            poser(couleurJoueur, r, c);
         }
         
         initialDone = true;
+        reprendreHistorique();
         
-        if (DEBUG) {
+        if (trace) {
             System.out.println("Placement initial: " + placement);
             afficherPlateau();
         }
     }
     
+    /**
+     * Vérifie qu'un placement initial "A1/B2/C3/D4/E5/F6" est légal pour le joueur :
+     * six cases distinctes et libres sur les deux premières lignes d'un bord, le bord
+     * opposé à celui de l'adversaire s'il a déjà placé ses pièces
+     */
+    public boolean estPlacementLegal(String placement) {
+        if (placement == null) return false;
+        String[] positions = placement.split("/");
+        if (positions.length != 6) return false;
+
+        // Bord déjà pris par l'adversaire (0 = haut, 1 = bas, -1 = aucun)
+        int bordAdverse = -1;
+        for (int r = 0; r < 6; r++) {
+            for (int c = 0; c < 6; c++) {
+                if (plateau[r][c] == -couleurJoueur) bordAdverse = r < 3 ? 0 : 1;
+            }
+        }
+
+        int bord = -1;
+        boolean[] prises = new boolean[36];
+        for (String pos : positions) {
+            if (pos.length() != 2) return false;
+            int c = pos.charAt(0) - 'A';
+            int r = pos.charAt(1) - '1';
+            if (c < 0 || c >= 6 || r < 0 || r >= 6) return false;
+            if (r >= 2 && r <= 3) return false;
+            if (prises[r * 6 + c] || plateau[r][c] != VIDE) return false;
+            prises[r * 6 + c] = true;
+
+            int b = r < 2 ? 0 : 1;
+            if (bord == -1) bord = b;
+            else if (bord != b) return false;
+        }
+        return bord != bordAdverse;
+    }
+
     /**
      * Applique un coup sur le plateau et met à jour les informations nécessaires
      */
@@ -143,13 +234,15 @@ public class EtatJeu {
         }
         
         // Déplacer la pièce
+        deplacerPiece(plateau[fr][fc], fr * 6 + fc, sr * 6 + sc);
         plateau[sr][sc] = plateau[fr][fc];
         plateau[fr][fc] = VIDE;
         
         // Mettre à jour le liseré contraint
         lastLisere = LISERE[sr][sc];
+        noterPosition(-couleurJoueur);
         
-        if (DEBUG) {
+        if (trace) {
             System.out.println("Coup appliqué: " + move);
             System.out.println("Nouveau liseré contraint: " + lastLisere);
             afficherPlateau();
@@ -160,7 +253,7 @@ public class EtatJeu {
      * Applique un coup de l'adversaire
      */
     public void appliquerCoupAdversaire(String coup) {
-        if (DEBUG) {
+        if (trace) {
             System.out.println("Mouvement ennemi reçu: " + coup);
             System.out.println("État du plateau avant application:");
             afficherPlateau();
@@ -168,8 +261,9 @@ public class EtatJeu {
         
         // Traiter le cas spécial où l'adversaire entre "E" (passer son tour)
         if (coup.equals("E") || coup.equals("PASSE")) {
-            if (DEBUG) System.out.println("L'adversaire passe son tour, lisère réinitialisé à 0");
+            if (trace) System.out.println("L'adversaire passe son tour, lisère réinitialisé à 0");
             lastLisere = 0;
+            noterPosition(couleurJoueur);
             return;
         }
         
@@ -183,6 +277,7 @@ public class EtatJeu {
             int lr = Integer.parseInt(licornePos.substring(1)) - 1;
             plateau[lr][lc] = advCol;
             typePiece[lr][lc] = LICORNE;
+            poser(advCol, lr, lc);
             
             // Mémoriser la position de la licorne adverse
             if (advCol == NOIR) {
@@ -200,9 +295,11 @@ public class EtatJeu {
                 int r = Integer.parseInt(pos.substring(1)) - 1;
                 plateau[r][c] = advCol;
                 typePiece[r][c] = PALADIN;
+                poser(advCol, r, c);
             }
+            reprendreHistorique();
             
-            if (DEBUG) {
+            if (trace) {
                 System.out.println("Placement initial de l'adversaire appliqué");
                 afficherPlateau();
             }
@@ -210,21 +307,37 @@ public class EtatJeu {
         }
         
         // Vérifier si le coup est au format standard "A1-B2"
-        if (!coup.contains("-") || coup.length() != 5) {
-            if (DEBUG) System.out.println("Format de coup non standard: " + coup + ", interprété comme PASSE");
+        int code = Coup.lire(coup);
+        if (code == Coup.INVALIDE || code == Coup.PASSE) {
+            if (trace) System.out.println("Format de coup non standard: " + coup + ", interprété comme PASSE");
             lastLisere = 0;
+            noterPosition(couleurJoueur);
             return;
         }
+        appliquerCoupAdversaire(code);
+    }
     
-        String[] p = coup.split("-");
-        int fr = Integer.parseInt(p[0].substring(1)) - 1;
-        int fc = p[0].charAt(0) - 'A';
-        int sr = Integer.parseInt(p[1].substring(1)) - 1;
-        int sc = p[1].charAt(0) - 'A';
+    /**
+     * Applique un coup de l'adversaire déjà décodé (voir Coup), sans passer par une chaîne
+     */
+    public void appliquerCoupAdversaire(int coup) {
+        if (coup == Coup.PASSE) {
+            if (trace) System.out.println("L'adversaire passe son tour, lisère réinitialisé à 0");
+            lastLisere = 0;
+            noterPosition(couleurJoueur);
+            return;
+        }
+        
+        int dep = Coup.depart(coup);
+        int arr = Coup.arrivee(coup);
+        int fr = dep / 6;
+        int fc = dep % 6;
+        int sr = arr / 6;
+        int sc = arr % 6;
     
         // Vérifier que la case de départ contient bien une pièce adverse
-        if (plateau[fr][fc] != -couleurJoueur && DEBUG) {
-            System.out.println("ALERTE: Case départ " + p[0] + " ne contient pas une pièce adverse: " + plateau[fr][fc]);
+        if (plateau[fr][fc] != -couleurJoueur && trace) {
+            System.out.println("ALERTE: Case départ " + toPos(fr, fc) + " ne contient pas une pièce adverse: " + plateau[fr][fc]);
         }
         
         // Mettre à jour le type de pièce
@@ -242,10 +355,12 @@ public class EtatJeu {
             }
         }
     
+        deplacerPiece(plateau[fr][fc], dep, arr);
         plateau[sr][sc] = plateau[fr][fc];
         plateau[fr][fc] = VIDE;
         lastLisere = LISERE[sr][sc];
-        if (DEBUG) {
+        noterPosition(couleurJoueur);
+        if (trace) {
             System.out.println("Nouvelle lisère contrainte: " + lastLisere + " (position " + toPos(sr, sc) + ")");
             // Afficher les pièces qui ont ce liseré
             System.out.println("Pièces avec lisère " + lastLisere + ":");
@@ -258,14 +373,121 @@ public class EtatJeu {
             }
         }
     
-        if (DEBUG) {
-            System.out.println("Mouvement ennemi appliqué: " + coup);
+        if (trace) {
+            System.out.println("Mouvement ennemi appliqué: " + Coup.toString(coup));
             System.out.println("Nouvelle lisère contrainte: " + lastLisere);
             System.out.println("État du plateau après application:");
             afficherPlateau();
         }
     }
     
+    private void poser(int couleur, int r, int c) {
+        if (couleur == NOIR) piecesNoires |= 1L << (r * 6 + c);
+        else piecesBlanches |= 1L << (r * 6 + c);
+    }
+    
+    /**
+     * Met à jour les masques pour le déplacement dep -> arr d'une pièce de couleur (une
+     * licorne prise en arr disparaît du masque adverse)
+     */
+    private void deplacerPiece(int couleur, int dep, int arr) {
+        long bitDep = 1L << dep, bitArr = 1L << arr;
+        if (couleur == NOIR) {
+            piecesNoires = (piecesNoires & ~bitDep) | bitArr;
+            piecesBlanches &= ~bitArr;
+        } else {
+            piecesBlanches = (piecesBlanches & ~bitDep) | bitArr;
+            piecesNoires &= ~bitArr;
+        }
+    }
+    
+    /**
+     * Cases occupées par les pièces de couleur
+     */
+    public long getPieces(int couleur) {
+        return couleur == NOIR ? piecesNoires : piecesBlanches;
+    }
+    
+    /**
+     * Pièces de couleur sur le liseré lisere (0 : aucune)
+     */
+    public long getPiecesSurLisere(int couleur, int lisere) {
+        return getPieces(couleur) & MASQUES_LISERE[lisere];
+    }
+    
+    /**
+     * Pièces de notre joueur qui peuvent bouger : celles du liseré contraint s'il y en a,
+     * toutes sinon
+     */
+    private long piecesMobiles() {
+        long pieces = getPieces(couleurJoueur);
+        long contraintes = lastLisere > 0 ? pieces & MASQUES_LISERE[lastLisere] : 0;
+        return contraintes != 0 ? contraintes : pieces;
+    }
+    
+    /**
+     * Cases d'un masque, pour les traces
+     */
+    private static List<String> cases(long masque) {
+        List<String> l = new ArrayList<>();
+        for (long m = masque; m != 0; m &= m - 1) {
+            int s = Long.numberOfTrailingZeros(m);
+            l.add(toPos(s / 6, s % 6));
+        }
+        return l;
+    }
+    
+    /**
+     * Notre joueur passe son tour : la contrainte de liseré est levée pour l'adversaire
+     */
+    public void passer() {
+        lastLisere = 0;
+        noterPosition(-couleurJoueur);
+    }
+    
+    /**
+     * Ajoute la position courante, trait au joueur trait, à l'historique des clés
+     */
+    private void noterPosition(int trait) {
+        if (nbHachages == hachages.length) hachages = Arrays.copyOf(hachages, nbHachages * 2);
+        hachages[nbHachages++] = Zobrist.hacher(plateau, typePiece, trait, lastLisere, couleurJoueur);
+    }
+    
+    /**
+     * Après un placement, l'historique repart de zéro ; une fois les deux camps posés, il
+     * commence par la position de départ, trait à Blanc qui a placé en second
+     */
+    private void reprendreHistorique() {
+        nbHachages = 0;
+        if (piecesNoires != 0 && piecesBlanches != 0) noterPosition(BLANC);
+    }
+    
+    /**
+     * Clés des positions de la partie depuis les placements (les getNbHachages() premières),
+     * la dernière étant la position courante ; les clés sont celles de Zobrist.hacher avec le
+     * joueur comme point de vue
+     */
+    public long[] getHachages() {
+        return hachages;
+    }
+    
+    public int getNbHachages() {
+        return nbHachages;
+    }
+    
+    /**
+     * Nombre de fois où la position courante a déjà été rencontrée dans la partie
+     */
+    public int getRepetitions() {
+        if (nbHachages == 0) return 0;
+        long courante = hachages[nbHachages - 1];
+        int n = 0;
+        for (int i = nbHachages - 2; i >= 0; i--) {
+            if (hachages[i] == courante) n++;
+        }
+        return n;
+    }
+    
     /**
      * Vérifie si un coup est légal selon les règles d'Escampe
      */
@@ -304,36 +526,22 @@ public class EtatJeu {
     
         // Vérifier que la case de départ contient une pièce du joueur
         if (plateau[fromRow][fromCol_idx] != couleurJoueur) {
-            if (DEBUG) System.out.println("Case départ " + from + " ne contient pas une pièce du joueur: " + plateau[fromRow][fromCol_idx]);
+            if (trace) System.out.println("Case départ " + from + " ne contient pas une pièce du joueur: " + plateau[fromRow][fromCol_idx]);
             return false;
         }
     
         // Vérifier la contrainte de lisère
-        if (lastLisere > 0) {
-            boolean hasConstrainedPiece = false;
-            List<String> piecesWithConstrainedLisere = new ArrayList<>();
-            
-            for (int r = 0; r < 6; r++) {
-                for (int c = 0; c < 6; c++) {
-                    if (plateau[r][c] == couleurJoueur && LISERE[r][c] == lastLisere) {
-                        hasConstrainedPiece = true;
-                        piecesWithConstrainedLisere.add(toPos(r, c));
-                    }
-                }
-            }
-    
-            if (hasConstrainedPiece && LISERE[fromRow][fromCol_idx] != lastLisere) {
-                if (DEBUG) {
-                    System.out.println("Contrainte de lisère non respectée: " + lastLisere + " vs " + LISERE[fromRow][fromCol_idx]);
-                    System.out.println("Pièces avec le lisère contraint " + lastLisere + ": " + piecesWithConstrainedLisere);
-                }
-                return false;
+        if ((piecesMobiles() & (1L << (fromRow * 6 + fromCol_idx))) == 0) {
+            if (trace) {
+                System.out.println("Contrainte de lisère non respectée: " + lastLisere + " vs " + LISERE[fromRow][fromCol_idx]);
+                System.out.println("Pièces avec le lisère contraint " + lastLisere + ": " + cases(piecesMobiles()));
             }
+            return false;
         }
     
         // Vérifier que le mouvement est orthogonal (pas diagonal)
         if (fromRow != toRow && fromCol_idx != toCol_idx) {
-            if (DEBUG) System.out.println("Mouvement diagonal non autorisé");
+            if (trace) System.out.println("Mouvement diagonal non autorisé");
             return false;
         }
     
@@ -343,7 +551,7 @@ public class EtatJeu {
         // Vérifier que la distance est conforme au lisère
         int maxDistance = LISERE[fromRow][fromCol_idx];
         if (distance == 0 || distance > maxDistance) {
-            if (DEBUG) System.out.println("Distance non conforme au lisère: " + distance + " vs max " + maxDistance);
+            if (trace) System.out.println("Distance non conforme au lisère: " + distance + " vs max " + maxDistance);
             return false;
         }
     
@@ -356,7 +564,7 @@ public class EtatJeu {
     
         while (r != toRow || c != toCol_idx) {
             if (plateau[r][c] != VIDE) {
-                if (DEBUG) System.out.println("Obstacle sur le chemin en " + toPos(r, c) + ": " + plateau[r][c]);
+                if (trace) System.out.println("Obstacle sur le chemin en " + toPos(r, c) + ": " + plateau[r][c]);
                 return false;
             }
             r += dr;
@@ -369,29 +577,29 @@ public class EtatJeu {
             if (plateau[toRow][toCol_idx] == -couleurJoueur) {
                 // Vérifier si c'est une licorne (seule pièce prenable)
                 if (typePiece[toRow][toCol_idx] != LICORNE) {
-                    if (DEBUG) System.out.println("Impossible de prendre un paladin adverse");
+                    if (trace) System.out.println("Impossible de prendre un paladin adverse");
                     return false;
                 }
                 
                 // Vérifier que la pièce qui prend est un paladin
                 if (typePiece[fromRow][fromCol_idx] != PALADIN) {
-                    if (DEBUG) System.out.println("Seul un paladin peut prendre la licorne adverse");
+                    if (trace) System.out.println("Seul un paladin peut prendre la licorne adverse");
                     return false;
                 }
                 
                 // Vérifier que la capture se fait à la distance maximale autorisée par le liseré
                 if (distance != maxDistance) {
-                    if (DEBUG) System.out.println("La capture doit se faire à la distance maximale: " + maxDistance + ", distance actuelle: " + distance);
+                    if (trace) System.out.println("La capture doit se faire à la distance maximale: " + maxDistance + ", distance actuelle: " + distance);
                     return false;
                 }
             } else {
-                if (DEBUG) System.out.println("Case d'arrivée " + to + " occupée par: " + plateau[toRow][toCol_idx]);
+                if (trace) System.out.println("Case d'arrivée " + to + " occupée par: " + plateau[toRow][toCol_idx]);
                 return false;
             }
         }
     
         // Afficher l'état du plateau pour débogage
-        if (DEBUG) {
+        if (trace) {
             System.out.println("Coup " + coup + " validé");
         }
     
@@ -404,114 +612,91 @@ public class EtatJeu {
     public List<String> genererCoupsLegaux() {
         List<String> legalMoves = new ArrayList<>();
     
-        // Vérifier s'il y a des pièces avec le lisère contraint
-        boolean hasConstrainedPiece = false;
-        List<String> piecesWithConstrainedLisere = new ArrayList<>();
-        
-        if (lastLisere > 0) {
-            for (int r = 0; r < 6; r++) {
-                for (int c = 0; c < 6; c++) {
-                    if (plateau[r][c] == couleurJoueur && LISERE[r][c] == lastLisere) {
-                        hasConstrainedPiece = true;
-                        piecesWithConstrainedLisere.add(toPos(r, c));
-                    }
-                }
-            }
-            
-            if (DEBUG && hasConstrainedPiece) {
-                System.out.println("Pièces avec lisère contraint " + lastLisere + ": " + piecesWithConstrainedLisere);
-            }
+        // Pièces qui peuvent bouger, selon la contrainte de lisère
+        long mobiles = piecesMobiles();
+        if (trace && mobiles != getPieces(couleurJoueur)) {
+            System.out.println("Pièces avec lisère contraint " + lastLisere + ": " + cases(mobiles));
         }
     
-        // Parcourir toutes les pièces du joueur
-        for (int r = 0; r < 6; r++) {
-            for (int c = 0; c < 6; c++) {
-                if (plateau[r][c] == couleurJoueur) {
-                    // Si contrainte de lisère et cette pièce n'a pas le bon lisère, passer
-                    if (hasConstrainedPiece && LISERE[r][c] != lastLisere) {
-                        if (DEBUG) {
-                            System.out.println("Pièce " + toPos(r, c) + " ignorée car lisère " + 
-                                              LISERE[r][c] + " ≠ " + lastLisere);
-                        }
-                        continue;
+        // Parcourir les pièces qui peuvent bouger
+        for (long m = mobiles; m != 0; m &= m - 1) {
+            int s = Long.numberOfTrailingZeros(m);
+            int r = s / 6, c = s % 6;
+            
+            // Déterminer la portée de la pièce selon son lisère
+            int portee = LISERE[r][c];
+
+            // Directions: haut, bas, gauche, droite
+            int[][] directions = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+
+            // Explorer chaque direction
+            for (int[] dir : directions) {
+                for (int distance = 1; distance <= portee; distance++) {
+                    int nr = r + dir[0] * distance;
+                    int nc = c + dir[1] * distance;
+        
+                    // Vérifier si la position est dans les limites du plateau
+                    if (nr < 0 || nr >= 6 || nc < 0 || nc >= 6) {
+                        break; // Sortie du plateau
                     }
         
-                    // Déterminer la portée de la pièce selon son lisère
-                    int portee = LISERE[r][c];
+                    // Vérifier s'il y a un obstacle sur le chemin
+                    boolean blocked = false;
+                    for (int i = 1; i < distance; i++) {
+                        int checkR = r + dir[0] * i;
+                        int checkC = c + dir[1] * i;
+                        if (plateau[checkR][checkC] != VIDE) {
+                            blocked = true;
+                            break;
+                        }
+                    }
         
-                    // Directions: haut, bas, gauche, droite
-                    int[][] directions = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+                    if (blocked) {
+                        break; // Obstacle sur le chemin
+                    }
         
-                    // Explorer chaque direction
-                    for (int[] dir : directions) {
-                        for (int distance = 1; distance <= portee; distance++) {
-                            int nr = r + dir[0] * distance;
-                            int nc = c + dir[1] * distance;
-                
-                            // Vérifier si la position est dans les limites du plateau
-                            if (nr < 0 || nr >= 6 || nc < 0 || nc >= 6) {
-                                break; // Sortie du plateau
-                            }
-                
-                            // Vérifier s'il y a un obstacle sur le chemin
-                            boolean blocked = false;
-                            for (int i = 1; i < distance; i++) {
-                                int checkR = r + dir[0] * i;
-                                int checkC = c + dir[1] * i;
-                                if (plateau[checkR][checkC] != VIDE) {
-                                    blocked = true;
-                                    break;
-                                }
-                            }
-                
-                            if (blocked) {
-                                break; // Obstacle sur le chemin
-                            }
-                
-                            // Vérifier la case d'arrivée
-                            if (plateau[nr][nc] == VIDE) {
-                                // Case vide, coup valide
-                                String move = toPos(r, c) + "-" + toPos(nr, nc);
-                                if (estCoupLegal(move)) {
-                                    legalMoves.add(move);
-                                }
-                            } else if (plateau[nr][nc] == -couleurJoueur) {
-                                // Case occupée par une pièce adverse
-                                
-                                // Vérifier si c'est une licorne (seule pièce prenable)
-                                if (typePiece[nr][nc] == LICORNE) {
-                                    // Vérifier que la pièce qui prend est un paladin
-                                    if (typePiece[r][c] == PALADIN) {
-                                        // Vérifier que la distance est exactement égale à la portée
-                                        if (distance == portee) {
-                                            String move = toPos(r, c) + "-" + toPos(nr, nc);
-                                            if (estCoupLegal(move)) {
-                                                legalMoves.add(move);
-                                            }
-                                        } else if (DEBUG) {
-                                            System.out.println("Capture non autorisée à distance " + distance + 
-                                                             " (doit être exactement " + portee + "): " + 
-                                                             toPos(r, c) + "-" + toPos(nr, nc));
-                                        }
-                                    } else if (DEBUG) {
-                                        System.out.println("Seul un paladin peut prendre la licorne adverse: " + 
-                                                         toPos(r, c) + "-" + toPos(nr, nc));
+                    // Vérifier la case d'arrivée
+                    if (plateau[nr][nc] == VIDE) {
+                        // Case vide, coup valide
+                        String move = toPos(r, c) + "-" + toPos(nr, nc);
+                        if (estCoupLegal(move)) {
+                            legalMoves.add(move);
+                        }
+                    } else if (plateau[nr][nc] == -couleurJoueur) {
+                        // Case occupée par une pièce adverse
+                        
+                        // Vérifier si c'est une licorne (seule pièce prenable)
+                        if (typePiece[nr][nc] == LICORNE) {
+                            // Vérifier que la pièce qui prend est un paladin
+                            if (typePiece[r][c] == PALADIN) {
+                                // Vérifier que la distance est exactement égale à la portée
+                                if (distance == portee) {
+                                    String move = toPos(r, c) + "-" + toPos(nr, nc);
+                                    if (estCoupLegal(move)) {
+                                        legalMoves.add(move);
                                     }
-                                } else if (DEBUG) {
-                                    System.out.println("Impossible de prendre un paladin adverse: " + 
+                                } else if (trace) {
+                                    System.out.println("Capture non autorisée à distance " + distance + 
+                                                     " (doit être exactement " + portee + "): " + 
                                                      toPos(r, c) + "-" + toPos(nr, nc));
                                 }
-                                
-                                // Dans tous les cas, on ne peut pas aller plus loin dans cette direction
-                                break;
+                            } else if (trace) {
+                                System.out.println("Seul un paladin peut prendre la licorne adverse: " + 
+                                                 toPos(r, c) + "-" + toPos(nr, nc));
                             }
+                        } else if (trace) {
+                            System.out.println("Impossible de prendre un paladin adverse: " + 
+                                             toPos(r, c) + "-" + toPos(nr, nc));
                         }
+                        
+                        // Dans tous les cas, on ne peut pas aller plus loin dans cette direction
+                        break;
                     }
                 }
             }
         }
     
-        if (DEBUG) {
+        if (trace) {
             System.out.println("Coups légaux générés: " + legalMoves.size());
             for (String move : legalMoves) {
                 System.out.println(" - " + move);
@@ -521,23 +706,22 @@ public class EtatJeu {
         return legalMoves;
     }
     
+    /**
+     * Le joueur a-t-il une pièce sur le liseré lisere ? (seules les 12 cases du liseré sont lues)
+     */
+    public static boolean aPieceSurLisere(int[][] board, int joueur, int lisere) {
+        for (int s : CASES_LISERE[lisere]) {
+            if (board[s / 6][s % 6] == joueur) return true;
+        }
+        return false;
+    }
+    
     /**
      * Génère les coups possibles pour l'algorithme minimax
      */
     public List<String> genererCoups(int[][] board, int[][] types, int joueur, int lisereContr) {
         List<String> moves = new ArrayList<>();
-        boolean hasConstrainedPiece = false;
-        if (lisereContr > 0) {
-            outer:
-            for (int r = 0; r < 6; r++) {
-                for (int c = 0; c < 6; c++) {
-                    if (board[r][c] == joueur && LISERE[r][c] == lisereContr) {
-                        hasConstrainedPiece = true;
-                        break outer;
-                    }
-                }
-            }
-        }
+        boolean hasConstrainedPiece = aPieceSurLisere(board, joueur, lisereContr);
         int lisereEff = hasConstrainedPiece ? lisereContr : 0;
 
         for (int r = 0; r < 6; r++) {
@@ -683,6 +867,10 @@ public class EtatJeu {
         this.initialDone = initialDone;
     }
     
+    void setTrace(boolean trace) {
+        this.trace = trace;
+    }
+
     public int getCouleurJoueur() {
         return couleurJoueur;
     }
@@ -0,0 +1,98 @@
+package escampe;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Historique compact d'une partie pour l'affichage : un coup entier par demi-coup et une copie
+ * du plateau (36 octets) tous les PERIODE_INSTANTANES demi-coups. Un plateau quelconque est
+ * reconstruit à la demande depuis l'instantané précédent ; le dernier plateau reconstruit est
+ * gardé pour que le défilement pas à pas ne rejoue qu'un coup.
+ *
+ * Une case vaut couleur * type, comme dans Applet : 1 paladin noir, 2 licorne noire,
+ * -1 paladin blanc, -2 licorne blanche, 0 vide. Les plateaux qui ne se déduisent pas du
+ * précédent par leur coup (placements, positions chargées) sont gardés en instantané.
+ *
+ * Non synchronisé : à utiliser depuis un seul thread (celui de Swing pour Applet).
+ */
+public final class HistoriquePlateaux {
+    public static final int PERIODE_INSTANTANES = 16;
+
+    private int[] coups = new int[64];
+    private int taille;
+    private final TreeMap<Integer, byte[]> instantanes = new TreeMap<>();
+    // Libellés qui ne se déduisent pas du coup (placements, titres)
+    private final Map<Integer, String> libelles = new HashMap<>();
+
+    private final byte[] dernier = new byte[36];
+    private final byte[] essai = new byte[36];
+    private final byte[] cache = new byte[36];
+    private int indiceCache = -1;
+
+    /**
+     * Ajoute le plateau obtenu après le coup libelle ("A1-B2", "PASSE", placement ou titre)
+     */
+    public void ajouter(String libelle, byte[] plateau) {
+        int coup = Coup.lire(libelle);
+        boolean deduit = false;
+        if (taille > 0 && coup != Coup.INVALIDE) {
+            System.arraycopy(dernier, 0, essai, 0, 36);
+            jouer(essai, coup);
+            deduit = Arrays.equals(essai, plateau);
+        }
+        if (taille == coups.length) coups = Arrays.copyOf(coups, taille * 2);
+        coups[taille] = deduit ? coup : Coup.INVALIDE;
+        if (!deduit || taille % PERIODE_INSTANTANES == 0) instantanes.put(taille, plateau.clone());
+        if (!deduit || coup == Coup.INVALIDE) libelles.put(taille, libelle);
+        System.arraycopy(plateau, 0, dernier, 0, 36);
+        taille++;
+    }
+
+    public void vider() {
+        taille = 0;
+        instantanes.clear();
+        libelles.clear();
+        indiceCache = -1;
+    }
+
+    public int taille() {
+        return taille;
+    }
+
+    public String libelle(int i) {
+        String l = libelles.get(i);
+        return l != null ? l : Coup.toString(coups[i]);
+    }
+
+    /**
+     * Coup du demi-coup i, Coup.INVALIDE s'il n'est pas un déplacement connu
+     */
+    public int coup(int i) {
+        return coups[i];
+    }
+
+    /**
+     * Copie dans dest le plateau après le demi-coup i
+     */
+    public void plateau(int i, byte[] dest) {
+        if (i < 0 || i >= taille) throw new IndexOutOfBoundsException("Demi-coup " + i + " sur " + taille);
+        int depart = instantanes.floorKey(i);
+        if (indiceCache >= depart && indiceCache <= i) {
+            depart = indiceCache;
+        } else {
+            System.arraycopy(instantanes.get(depart), 0, cache, 0, 36);
+        }
+        for (int k = depart + 1; k <= i; k++) jouer(cache, coups[k]);
+        indiceCache = i;
+        System.arraycopy(cache, 0, dest, 0, 36);
+    }
+
+    private static void jouer(byte[] p, int coup) {
+        if (coup == Coup.PASSE) return;
+        int dep = Coup.depart(coup), arr = Coup.arrivee(coup);
+        p[arr] = p[dep];
+        p[dep] = 0;
+    }
+}
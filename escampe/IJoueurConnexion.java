@@ -0,0 +1,14 @@
+package escampe;
+
+/**
+ * Extension facultative de IJoueur : le client prévient le joueur quand la connexion se ferme
+ * sans que la partie ait été déclarée finie (serveur arrêté, réseau coupé), pour qu'il rende
+ * ce que declareLeVainqueur aurait rendu.
+ */
+public interface IJoueurConnexion extends IJoueur {
+
+    /**
+     * La partie en cours est abandonnée : aucun autre message ne viendra pour elle
+     */
+    public void connexionPerdue();
+}
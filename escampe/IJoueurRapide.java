@@ -0,0 +1,28 @@
+package escampe;
+
+/**
+ * Extension facultative de IJoueur : le client peut transmettre directement le coup adverse
+ * décodé en entier (voir Coup et CodecProtocole) au lieu de construire une chaîne "A1-B2".
+ * Les placements initiaux passent toujours par mouvementEnnemi(String). Un client qui fait
+ * attendre les demandes de coup (pool de threads partagé) donne l'instant de réception du
+ * trait par choixMouvementDepuis.
+ */
+public interface IJoueurRapide extends IJoueur {
+
+    /**
+     * Équivalent de mouvementEnnemi(String) pour un coup "A1-B2" ou "PASSE" déjà décodé
+     *
+     * @param coup
+     *            le coup encodé par Coup.encoder, ou Coup.PASSE
+     */
+    public void mouvementEnnemi(int coup);
+
+    /**
+     * Équivalent de choixMouvement, le temps de réflexion comptant depuis debutNs
+     * (System.nanoTime) et non depuis l'appel
+     *
+     * @param debutNs
+     *            l'instant de réception du message JOUEUR
+     */
+    public String choixMouvementDepuis(long debutNs);
+}
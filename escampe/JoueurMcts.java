@@ -0,0 +1,515 @@
+package escampe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Joueur Monte Carlo Tree Search : sélection UCT, parties aléatoires jusqu'à la prise d'une
+ * licorne, arbre conservé d'un coup à l'autre.
+ *
+ * La recherche est parallélisée à la racine : chaque thread développe son propre arbre sur
+ * la même position et les visites des coups de la racine sont additionnées à la fin. Les
+ * noeuds de chaque arbre sont rangés dans des tableaux alloués une seule fois (une arène et
+ * sa copie, pour compacter le sous-arbre conservé entre deux coups) : la recherche ne crée
+ * aucun objet.
+ *
+ * Threads et arbres sont communs à tous les JoueurMcts de la JVM (voir Arenes) : la mémoire
+ * (environ 46 Mo par arbre de 2^20 noeuds) et le nombre de threads ne dépendent pas du
+ * nombre de parties. Chaque coup emprunte sa part des arbres libres et les rend ensuite.
+ *
+ * Le placement initial est délégué à MonJoueur, sans son échauffement ni sa table.
+ *
+ * Réglages : -Descampe.threads (coeurs par défaut), -Descampe.mcts.noeuds (noeuds par arbre,
+ * 2^20 par défaut), -Descampe.mcts.temps (ms par coup, 4500 par défaut).
+ *
+ * Comparaison avec MonJoueur : lancer ServeurArbitre puis un client par joueur, par exemple
+ *     >java -cp . escampe.ClientMultiJeu escampe.JoueurMcts 10 localhost:1234
+ *     >java -cp . escampe.ClientMultiJeu escampe.MonJoueur 10 localhost:1234
+ */
+public class JoueurMcts implements IJoueurRapide, IJoueurConnexion {
+    private static final long TEMPS_REFLEXION = Long.getLong("escampe.mcts.temps", 4500);
+    private static final int CAPACITE_ARBRE = Integer.getInteger("escampe.mcts.noeuds", 1 << 20);
+    private static final int NB_THREADS = Integer.getInteger("escampe.threads", Runtime.getRuntime().availableProcessors());
+    private static final double EXPLORATION = 1.4;
+    // Visites d'une feuille avant de la développer
+    private static final int SEUIL_EXPANSION = 4;
+    // Au-delà, la partie aléatoire est déclarée nulle
+    private static final int MAX_DEMI_COUPS_PARTIE = 200;
+    private static final int MAX_PROFONDEUR_ARBRE = 256;
+
+    private static final boolean DEBUG = Boolean.parseBoolean(System.getProperty("escampe.debug", "true"));
+
+    private EtatJeu etatJeu;
+    private final MonJoueur placement = new MonJoueur();
+    private final PlateauRapide racine = new PlateauRapide();
+    private long tempsMax = TEMPS_REFLEXION;
+    // Compté dans les joueurs actifs d'Arenes entre initJoueur et la fin de la partie
+    private boolean actif;
+
+    // Coups joués depuis la racine des arbres (le nôtre puis celui de l'adversaire)
+    private final int[] coupsDepuisRacine = new int[4];
+    private int nbCoupsDepuisRacine;
+
+    // Statistiques du dernier coup
+    private long dernierNbParties;
+    private long derniereDureeMs;
+
+    @Override
+    public void initJoueur(int mycolour) {
+        etatJeu = new EtatJeu(mycolour);
+        placement.initPlacement(mycolour);
+        nbCoupsDepuisRacine = 0;
+        if (!actif) {
+            actif = true;
+            Arenes.entrer();
+        }
+    }
+
+    private void terminerPartie() {
+        if (actif) {
+            actif = false;
+            Arenes.sortir();
+        }
+    }
+
+    @Override
+    public int getNumJoueur() {
+        return etatJeu.getCouleurJoueur();
+    }
+
+    public void setTempsMax(long tempsMaxMs) {
+        this.tempsMax = tempsMaxMs;
+    }
+
+    @Override
+    public String choixMouvement() {
+        return choixMouvementDepuis(System.nanoTime());
+    }
+
+    @Override
+    public String choixMouvementDepuis(long debut) {
+        if (!etatJeu.isInitialDone()) {
+            String coup = placement.choixMouvement();
+            etatJeu.appliquerPlacementInitial(coup);
+            return coup;
+        }
+
+        List<String> legaux = etatJeu.genererCoupsLegaux();
+        if (legaux.isEmpty()) {
+            noterCoup(Coup.PASSE);
+            return "PASSE";
+        }
+        String coup;
+        if (legaux.size() == 1) {
+            coup = legaux.get(0);
+        } else {
+            int c = rechercher(debut + tempsMax * 1000000L);
+            coup = Coup.toString(c);
+            if (c == Coup.INVALIDE) {
+                // Aucun arbre libéré avant l'échéance : un coup au hasard plutôt qu'une défaite au temps
+                coup = legaux.get(Alea.courant().entier(legaux.size()));
+            } else if (!etatJeu.estCoupLegal(coup)) {
+                System.err.println("ERREUR: Le coup MCTS n'est pas légal: " + coup);
+                coup = legaux.get(Alea.courant().entier(legaux.size()));
+            }
+        }
+        etatJeu.appliquerCoup(coup);
+        noterCoup(Coup.lire(coup));
+        return coup;
+    }
+
+    /**
+     * Développe les arbres empruntés en parallèle jusqu'à l'échéance (System.nanoTime) et
+     * renvoie le coup de la racine le plus visité, Coup.INVALIDE si aucun arbre n'a été libre
+     * à temps
+     */
+    private int rechercher(long echeance) {
+        long debut = System.currentTimeMillis();
+        racine.charger(etatJeu, etatJeu.getCouleurJoueur());
+        List<Arbre> arbres;
+        try {
+            arbres = Arenes.emprunter(this, echeance);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Coup.INVALIDE;
+        }
+        if (arbres.isEmpty()) return Coup.INVALIDE;
+        try {
+            return rechercher(arbres, echeance, debut);
+        } finally {
+            nbCoupsDepuisRacine = 0;
+            Arenes.rendre(arbres);
+        }
+    }
+
+    private int rechercher(List<Arbre> arbres, long echeance, long debut) {
+        long conserves = 0;
+        for (Arbre a : arbres) {
+            a.reenraciner(racine, coupsDepuisRacine, nbCoupsDepuisRacine);
+            conserves += a.nbNoeuds - 1;
+        }
+
+        List<Callable<Void>> taches = new ArrayList<>(arbres.size());
+        for (Arbre a : arbres) {
+            taches.add(() -> {
+                a.developper(echeance);
+                return null;
+            });
+        }
+        try {
+            Arenes.POOL.invokeAll(taches);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Additionner les visites des fils de la racine de chaque arbre
+        int[] visites = new int[Coup.PASSE + 1];
+        long parties = 0;
+        int meilleur = Coup.INVALIDE;
+        for (Arbre a : arbres) {
+            parties += a.parties;
+            int f = a.enfants[0];
+            for (int i = 0; f >= 0 && i < a.nbEnfants[0]; i++) {
+                int c = a.coup[f + i];
+                visites[c] += a.visites[f + i];
+                if (meilleur == Coup.INVALIDE || visites[c] > visites[meilleur]) meilleur = c;
+            }
+        }
+
+        derniereDureeMs = System.currentTimeMillis() - debut;
+        dernierNbParties = parties;
+        if (DEBUG) {
+            System.out.println("MCTS: " + parties + " parties sur " + arbres.size() + " arbres en " + derniereDureeMs + " ms ("
+                    + getPartiesParSeconde() + "/s), coup " + Coup.toString(meilleur)
+                    + " visité " + (meilleur >= 0 ? visites[meilleur] : 0) + " fois, "
+                    + conserves + " noeuds conservés du coup précédent");
+        }
+        return meilleur;
+    }
+
+    private void noterCoup(int coup) {
+        if (nbCoupsDepuisRacine < coupsDepuisRacine.length) coupsDepuisRacine[nbCoupsDepuisRacine] = coup;
+        nbCoupsDepuisRacine++;
+    }
+
+    // Parties aléatoires par seconde au dernier coup
+    public long getPartiesParSeconde() {
+        return derniereDureeMs > 0 ? dernierNbParties * 1000 / derniereDureeMs : 0;
+    }
+
+    @Override
+    public void mouvementEnnemi(String coup) {
+        etatJeu.appliquerCoupAdversaire(coup);
+        if (coup.contains("/")) {
+            placement.mouvementEnnemi(coup);
+            return;
+        }
+        int c = Coup.lire(coup);
+        noterCoup(c == Coup.INVALIDE ? Coup.PASSE : c);
+    }
+
+    @Override
+    public void mouvementEnnemi(int coup) {
+        etatJeu.appliquerCoupAdversaire(coup);
+        noterCoup(coup);
+    }
+
+    @Override
+    public void connexionPerdue() {
+        terminerPartie();
+    }
+
+    @Override
+    public void declareLeVainqueur(int couleurGagnant) {
+        terminerPartie();
+        if (couleurGagnant == etatJeu.getCouleurJoueur()) System.out.println("J'ai gagné !");
+        else if (couleurGagnant == 0) System.out.println("Match nul !");
+        else System.out.println("J'ai perdu !");
+    }
+
+    @Override
+    public String binoName() {
+        return "MonEquipe-MCTS";
+    }
+
+    /**
+     * Threads et arbres de tous les JoueurMcts de la JVM, créés au premier coup cherché :
+     * NB_THREADS de chaque, quel que soit le nombre de parties. Un coup emprunte sa part des
+     * arbres libres (NB_THREADS / joueurs actifs, au moins un), de préférence ceux qu'il avait
+     * déjà et qui gardent son sous-arbre, et les rend à la fin.
+     */
+    private static final class Arenes {
+        static final ExecutorService POOL = Executors.newFixedThreadPool(NB_THREADS, r -> {
+            Thread t = new Thread(r, "escampe-mcts");
+            t.setDaemon(true);
+            return t;
+        });
+        private static final Arbre[] ARBRES = new Arbre[NB_THREADS];
+        private static int joueursActifs;
+
+        static synchronized void entrer() {
+            joueursActifs++;
+        }
+
+        static synchronized void sortir() {
+            joueursActifs--;
+        }
+
+        /**
+         * Arbres pour un coup de joueur, en attendant au plus jusqu'à l'échéance qu'un arbre
+         * se libère ; liste vide si aucun ne l'a été
+         */
+        static synchronized List<Arbre> emprunter(JoueurMcts joueur, long echeance) throws InterruptedException {
+            while (libres() == 0) {
+                long resteMs = (echeance - System.nanoTime()) / 1000000;
+                if (resteMs <= 0) return new ArrayList<>();
+                Arenes.class.wait(resteMs);
+            }
+            int part = Math.max(1, NB_THREADS / Math.max(1, joueursActifs));
+            List<Arbre> pris = new ArrayList<>(part);
+            // Les arbres de ce joueur d'abord, puis les autres (vidés)
+            for (int passe = 0; passe < 2; passe++) {
+                for (int i = 0; i < ARBRES.length && pris.size() < part; i++) {
+                    if (ARBRES[i] == null) {
+                        if (passe == 0) continue;
+                        ARBRES[i] = new Arbre(CAPACITE_ARBRE);
+                    }
+                    Arbre a = ARBRES[i];
+                    if (a.emprunte || (passe == 0) != (a.proprietaire == joueur)) continue;
+                    if (a.proprietaire != joueur) {
+                        a.vider();
+                        a.proprietaire = joueur;
+                    }
+                    a.emprunte = true;
+                    pris.add(a);
+                }
+            }
+            return pris;
+        }
+
+        static synchronized void rendre(List<Arbre> arbres) {
+            for (Arbre a : arbres) a.emprunte = false;
+            Arenes.class.notifyAll();
+        }
+
+        private static int libres() {
+            int n = 0;
+            for (Arbre a : ARBRES) {
+                if (a == null || !a.emprunte) n++;
+            }
+            return n;
+        }
+    }
+
+    /**
+     * Arbre d'un thread. Les noeuds sont des indices dans des tableaux parallèles ; les fils
+     * d'un noeud sont contigus. Le noeud 0 est la racine.
+     */
+    static final class Arbre {
+        final int capacite;
+        int[] coup;        // coup qui mène au noeud
+        int[] enfants;     // indice du premier fils, -1 si le noeud n'est pas développé
+        int[] nbEnfants;
+        int[] visites;
+        float[] gains;     // gains du joueur qui a joué coup, 1 par victoire, 0.5 par nulle
+        int nbNoeuds;
+
+        // Seconde arène, cible du compactage lors du réenracinement
+        private int[] coup2, enfants2, nbEnfants2, visites2;
+        private float[] gains2;
+        private final int[] file;
+
+        final PlateauRapide plateauRacine = new PlateauRapide();
+        private final PlateauRapide plateau = new PlateauRapide();
+        private final int[] coups = new int[PlateauRapide.MAX_COUPS];
+        private final int[] chemin = new int[MAX_PROFONDEUR_ARBRE];
+        long parties;
+        // Joueur dont l'arbre garde le sous-arbre, et emprunt en cours (sous le verrou d'Arenes)
+        JoueurMcts proprietaire;
+        boolean emprunte;
+
+        Arbre(int capacite) {
+            this.capacite = capacite;
+            coup = new int[capacite];
+            enfants = new int[capacite];
+            nbEnfants = new int[capacite];
+            visites = new int[capacite];
+            gains = new float[capacite];
+            coup2 = new int[capacite];
+            enfants2 = new int[capacite];
+            nbEnfants2 = new int[capacite];
+            visites2 = new int[capacite];
+            gains2 = new float[capacite];
+            file = new int[capacite];
+            vider();
+        }
+
+        void vider() {
+            nbNoeuds = 1;
+            coup[0] = Coup.INVALIDE;
+            enfants[0] = -1;
+            nbEnfants[0] = 0;
+            visites[0] = 0;
+            gains[0] = 0;
+            plateauRacine.trait = 0; // aucune position
+        }
+
+        /**
+         * Place la racine sur la position p : descend le long des coups joués depuis
+         * l'ancienne racine si l'arbre les a développés et compacte ce sous-arbre, sinon
+         * repart d'un arbre vide
+         */
+        void reenraciner(PlateauRapide p, int[] coupsJoues, int nbCoupsJoues) {
+            int n = 0;
+            boolean garde = plateauRacine.trait != 0 && nbCoupsJoues <= coupsJoues.length;
+            for (int i = 0; garde && i < nbCoupsJoues; i++) {
+                int fils = trouverFils(n, coupsJoues[i]);
+                if (fils < 0) garde = false;
+                else {
+                    plateauRacine.jouer(coupsJoues[i]);
+                    n = fils;
+                }
+            }
+            plateauRacine.demiCoups = 0;
+            if (!garde || !plateauRacine.memePosition(p)) {
+                vider();
+            } else if (n != 0) {
+                compacter(n);
+            }
+            plateauRacine.copier(p);
+            parties = 0;
+        }
+
+        private int trouverFils(int n, int c) {
+            int f = enfants[n];
+            for (int i = 0; f >= 0 && i < nbEnfants[n]; i++) {
+                if (coup[f + i] == c) return f + i;
+            }
+            return -1;
+        }
+
+        /**
+         * Recopie le sous-arbre de n dans la seconde arène (parcours en largeur, fils
+         * contigus), puis échange les arènes
+         */
+        private void compacter(int n) {
+            // file[i] : ancien indice du noeud copié en i
+            copierNoeud(n, 0);
+            file[0] = n;
+            int copies = 1;
+            for (int nouveau = 0; nouveau < copies; nouveau++) {
+                int f = enfants[file[nouveau]];
+                if (f < 0) continue;
+                enfants2[nouveau] = copies;
+                for (int i = 0; i < nbEnfants[file[nouveau]]; i++) {
+                    copierNoeud(f + i, copies);
+                    file[copies++] = f + i;
+                }
+            }
+            nbNoeuds = copies;
+
+            int[] t = coup; coup = coup2; coup2 = t;
+            t = enfants; enfants = enfants2; enfants2 = t;
+            t = nbEnfants; nbEnfants = nbEnfants2; nbEnfants2 = t;
+            t = visites; visites = visites2; visites2 = t;
+            float[] g = gains; gains = gains2; gains2 = g;
+        }
+
+        private void copierNoeud(int ancien, int nouveau) {
+            coup2[nouveau] = coup[ancien];
+            enfants2[nouveau] = -1;
+            nbEnfants2[nouveau] = nbEnfants[ancien];
+            visites2[nouveau] = visites[ancien];
+            gains2[nouveau] = gains[ancien];
+        }
+
+        /**
+         * Itérations sélection / développement / partie aléatoire / rétropropagation
+         * jusqu'à l'échéance (System.nanoTime)
+         */
+        void developper(long echeance) {
+            Alea alea = Alea.courant();
+            int trait = plateauRacine.trait;
+            do {
+                for (int k = 0; k < 64; k++) {
+                    iterer(alea, trait);
+                }
+            } while (System.nanoTime() < echeance);
+        }
+
+        private void iterer(Alea alea, int traitRacine) {
+            plateau.copier(plateauRacine);
+            int n = 0;
+            int longueur = 0;
+            chemin[longueur++] = 0;
+
+            // Sélection
+            while (enfants[n] >= 0 && plateau.vainqueur == 0 && longueur < chemin.length - 1) {
+                n = selectionner(n);
+                plateau.jouer(coup[n]);
+                chemin[longueur++] = n;
+            }
+
+            // Développement
+            if (plateau.vainqueur == 0 && (visites[n] >= SEUIL_EXPANSION || n == 0) && longueur < chemin.length - 1) {
+                int nb = plateau.genererCoups(coups);
+                if (nb == 0) {
+                    coups[0] = Coup.PASSE;
+                    nb = 1;
+                }
+                if (nbNoeuds + nb <= capacite) {
+                    int f = nbNoeuds;
+                    nbNoeuds += nb;
+                    for (int i = 0; i < nb; i++) {
+                        coup[f + i] = coups[i];
+                        enfants[f + i] = -1;
+                        nbEnfants[f + i] = 0;
+                        visites[f + i] = 0;
+                        gains[f + i] = 0;
+                    }
+                    nbEnfants[n] = nb;
+                    enfants[n] = f;
+                    n = f + alea.entier(nb);
+                    plateau.jouer(coup[n]);
+                    chemin[longueur++] = n;
+                }
+            }
+
+            // Partie aléatoire
+            int vainqueur = plateau.jouerPartieAleatoire(alea, coups, MAX_DEMI_COUPS_PARTIE);
+            parties++;
+
+            // Rétropropagation : le noeud de profondeur p a été joué par traitRacine si p est impair
+            for (int p = 0; p < longueur; p++) {
+                int noeud = chemin[p];
+                visites[noeud]++;
+                int joueur = (p & 1) == 1 ? traitRacine : -traitRacine;
+                gains[noeud] += vainqueur == 0 ? 0.5f : vainqueur == joueur ? 1f : 0f;
+            }
+        }
+
+        /**
+         * Fils maximisant UCT ; les fils jamais visités d'abord
+         */
+        private int selectionner(int n) {
+            int f = enfants[n];
+            int nb = nbEnfants[n];
+            double logN = Math.log(Math.max(1, visites[n]));
+            int meilleur = f;
+            double meilleurScore = Double.NEGATIVE_INFINITY;
+            for (int i = f; i < f + nb; i++) {
+                int v = visites[i];
+                if (v == 0) return i;
+                double score = gains[i] / v + EXPLORATION * Math.sqrt(logN / v);
+                if (score > meilleurScore) {
+                    meilleurScore = score;
+                    meilleur = i;
+                }
+            }
+            return meilleur;
+        }
+    }
+}
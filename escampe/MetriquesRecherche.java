@@ -0,0 +1,363 @@
+package escampe;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.ObjectName;
+
+/**
+ * Métriques de recherche partagées par toutes les instances de MonJoueur d'une JVM.
+ *
+ * Tous les compteurs sont sans verrou (LongAdder, tableaux atomiques) et ne sont mis à jour
+ * qu'une fois par coup : la recherche elle-même ne compte ses noeuds que dans un champ local.
+ * Les métriques sont exposées en JMX (escampe:type=MetriquesRecherche) et peuvent être
+ * écrites périodiquement dans un fichier :
+ *     -Descampe.metriques.fichier=metriques.csv (ou .json) -Descampe.metriques.periode=10
+ */
+public class MetriquesRecherche implements MetriquesRechercheMBean {
+    public static final String NOM_JMX = "escampe:type=MetriquesRecherche";
+
+    private static final long[] BORNES_TEMPS = {10, 50, 100, 250, 500, 1000, 2000, 3000, 4000, 4500, 5000, Long.MAX_VALUE};
+    private static final int MAX_PROFONDEUR = 32;
+
+    private static final MetriquesRecherche GLOBAL = creer();
+
+    private final LongAdder nbCoups = new LongAdder();
+    private final LongAdder nbNoeuds = new LongAdder();
+    private final LongAdder tempsTotalNs = new LongAdder();
+    private final AtomicLong tempsMaxNs = new AtomicLong();
+    private final LongAdder sommeProfondeurs = new LongAdder();
+    private final AtomicInteger derniereProfondeur = new AtomicInteger();
+    private final AtomicLong noeudsParSecondeDernier = new AtomicLong();
+    private final LongAdder nbDepassements = new LongAdder();
+    private final LongAdder nbCoupsAleatoires = new LongAdder();
+    private final LongAdder nbCoupsSansRecherche = new LongAdder();
+    private final LongAdder tempsGcMs = new LongAdder();
+    private final LongAdder nbCoupsAvecGc = new LongAdder();
+    private final LongAdder nbEntreesTrouvees = new LongAdder();
+    private final LongAdder nbEntreesAutresParties = new LongAdder();
+    private final AtomicLongArray histogrammeTemps = new AtomicLongArray(BORNES_TEMPS.length);
+    private final AtomicLongArray histogrammeProfondeur = new AtomicLongArray(MAX_PROFONDEUR + 1);
+
+    // Chargés en arrière-plan avec l'enregistrement JMX (voir creer)
+    private volatile List<GarbageCollectorMXBean> collecteurs;
+
+    public static MetriquesRecherche global() {
+        return GLOBAL;
+    }
+
+    private static MetriquesRecherche creer() {
+        MetriquesRecherche m = new MetriquesRecherche();
+        // Le serveur JMX et les beans de GC coûtent ~200 ms au démarrage : hors du chemin du
+        // premier coup, dans un thread démon
+        Thread jmx = new Thread(() -> {
+            m.collecteurs = ManagementFactory.getGarbageCollectorMXBeans();
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(m, new ObjectName(NOM_JMX));
+            } catch (Exception e) {
+                System.err.println("Métriques non enregistrées en JMX: " + e);
+            }
+        }, "escampe-jmx");
+        jmx.setDaemon(true);
+        jmx.start();
+
+        String fichier = System.getProperty("escampe.metriques.fichier");
+        if (fichier != null) {
+            long periode = Long.getLong("escampe.metriques.periode", 10);
+            m.demarrerExport(Paths.get(fichier), periode);
+        }
+        return m;
+    }
+
+    /**
+     * Temps de GC cumulé de la JVM, à relever au début et à la fin d'une recherche ; -1 tant
+     * que les beans de GC ne sont pas chargés
+     */
+    public long tempsGcCumuleMs() {
+        List<GarbageCollectorMXBean> collecteurs = this.collecteurs;
+        if (collecteurs == null) return -1;
+        long total = 0;
+        for (int i = 0; i < collecteurs.size(); i++) {
+            long t = collecteurs.get(i).getCollectionTime();
+            if (t > 0) total += t;
+        }
+        return total;
+    }
+
+    /**
+     * Enregistre un coup cherché (les placements et coups forcés passent par
+     * enregistrerCoupSansRecherche et ne comptent pas dans les histogrammes)
+     *
+     * @param dureeNs temps de réflexion
+     * @param profondeur profondeur complètement explorée
+     * @param noeuds noeuds visités
+     * @param limiteMs budget de temps du coup
+     * @param gcMs temps de GC écoulé pendant la réflexion
+     */
+    public void enregistrerCoup(long dureeNs, int profondeur, long noeuds, long limiteMs, long gcMs) {
+        nbCoups.increment();
+        nbNoeuds.add(noeuds);
+        tempsTotalNs.add(dureeNs);
+        long max;
+        while (dureeNs > (max = tempsMaxNs.get()) && !tempsMaxNs.compareAndSet(max, dureeNs)) {
+            // réessayer
+        }
+
+        long dureeMs = dureeNs / 1000000;
+        int classe = 0;
+        while (dureeMs >= BORNES_TEMPS[classe]) classe++;
+        histogrammeTemps.incrementAndGet(classe);
+        if (dureeMs > limiteMs) nbDepassements.increment();
+
+        int p = Math.max(0, Math.min(profondeur, MAX_PROFONDEUR));
+        histogrammeProfondeur.incrementAndGet(p);
+        sommeProfondeurs.add(p);
+        derniereProfondeur.set(p);
+        noeudsParSecondeDernier.set(dureeNs > 0 ? noeuds * 1000000000L / dureeNs : 0);
+
+        if (gcMs > 0) {
+            tempsGcMs.add(gcMs);
+            nbCoupsAvecGc.increment();
+        }
+    }
+
+    public void enregistrerCoupAleatoire() {
+        nbCoupsAleatoires.increment();
+    }
+
+    /**
+     * Enregistre un coup joué sans recherche : placement, seul coup légal ou passe
+     */
+    public void enregistrerCoupSansRecherche() {
+        nbCoupsSansRecherche.increment();
+    }
+
+    /**
+     * Entrées trouvées dans la table de transposition pendant un coup, dont celles écrites par
+     * une autre partie (table globale partagée)
+     */
+    public void enregistrerSondagesTable(long trouvees, long autresParties) {
+        nbEntreesTrouvees.add(trouvees);
+        nbEntreesAutresParties.add(autresParties);
+    }
+
+    @Override
+    public long getNbCoups() {
+        return nbCoups.sum();
+    }
+
+    @Override
+    public long getNbNoeuds() {
+        return nbNoeuds.sum();
+    }
+
+    @Override
+    public long getNoeudsParSeconde() {
+        long ns = tempsTotalNs.sum();
+        return ns > 0 ? nbNoeuds.sum() * 1000000000L / ns : 0;
+    }
+
+    @Override
+    public long getNoeudsParSecondeDernierCoup() {
+        return noeudsParSecondeDernier.get();
+    }
+
+    @Override
+    public long getTempsMoyenMs() {
+        long n = nbCoups.sum();
+        return n > 0 ? tempsTotalNs.sum() / n / 1000000 : 0;
+    }
+
+    @Override
+    public long getTempsMaxMs() {
+        return tempsMaxNs.get() / 1000000;
+    }
+
+    @Override
+    public double getProfondeurMoyenne() {
+        long n = nbCoups.sum();
+        return n > 0 ? (double) sommeProfondeurs.sum() / n : 0;
+    }
+
+    @Override
+    public int getDerniereProfondeur() {
+        return derniereProfondeur.get();
+    }
+
+    @Override
+    public long getNbDepassements() {
+        return nbDepassements.sum();
+    }
+
+    @Override
+    public long getNbCoupsAleatoires() {
+        return nbCoupsAleatoires.sum();
+    }
+
+    @Override
+    public long getNbCoupsSansRecherche() {
+        return nbCoupsSansRecherche.sum();
+    }
+
+    @Override
+    public long getTempsGcPendantRechercheMs() {
+        return tempsGcMs.sum();
+    }
+
+    @Override
+    public long getNbCoupsAvecGc() {
+        return nbCoupsAvecGc.sum();
+    }
+
+    @Override
+    public long getNbEntreesTrouvees() {
+        return nbEntreesTrouvees.sum();
+    }
+
+    @Override
+    public long getNbEntreesAutresParties() {
+        return nbEntreesAutresParties.sum();
+    }
+
+    @Override
+    public long[] getBornesHistogrammeTemps() {
+        return BORNES_TEMPS.clone();
+    }
+
+    @Override
+    public long[] getHistogrammeTemps() {
+        return copier(histogrammeTemps);
+    }
+
+    @Override
+    public long[] getHistogrammeProfondeur() {
+        return copier(histogrammeProfondeur);
+    }
+
+    @Override
+    public void reinitialiser() {
+        nbCoups.reset();
+        nbNoeuds.reset();
+        tempsTotalNs.reset();
+        tempsMaxNs.set(0);
+        sommeProfondeurs.reset();
+        derniereProfondeur.set(0);
+        noeudsParSecondeDernier.set(0);
+        nbDepassements.reset();
+        nbCoupsAleatoires.reset();
+        nbCoupsSansRecherche.reset();
+        tempsGcMs.reset();
+        nbCoupsAvecGc.reset();
+        nbEntreesTrouvees.reset();
+        nbEntreesAutresParties.reset();
+        for (int i = 0; i < histogrammeTemps.length(); i++) histogrammeTemps.set(i, 0);
+        for (int i = 0; i < histogrammeProfondeur.length(); i++) histogrammeProfondeur.set(i, 0);
+    }
+
+    @Override
+    public String getInstantaneJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"horodatage\":").append(System.currentTimeMillis())
+          .append(",\"coups\":").append(getNbCoups())
+          .append(",\"noeuds\":").append(getNbNoeuds())
+          .append(",\"noeudsParSeconde\":").append(getNoeudsParSeconde())
+          .append(",\"tempsMoyenMs\":").append(getTempsMoyenMs())
+          .append(",\"tempsMaxMs\":").append(getTempsMaxMs())
+          .append(",\"profondeurMoyenne\":").append(String.format(java.util.Locale.ROOT, "%.2f", getProfondeurMoyenne()))
+          .append(",\"depassements\":").append(getNbDepassements())
+          .append(",\"coupsAleatoires\":").append(getNbCoupsAleatoires())
+          .append(",\"coupsSansRecherche\":").append(getNbCoupsSansRecherche())
+          .append(",\"gcPendantRechercheMs\":").append(getTempsGcPendantRechercheMs())
+          .append(",\"coupsAvecGc\":").append(getNbCoupsAvecGc())
+          .append(",\"entreesTrouvees\":").append(getNbEntreesTrouvees())
+          .append(",\"entreesAutresParties\":").append(getNbEntreesAutresParties())
+          .append(",\"histogrammeTemps\":");
+        ajouterTableau(sb, getHistogrammeTemps(), true);
+        sb.append(",\"histogrammeProfondeur\":");
+        ajouterTableau(sb, getHistogrammeProfondeur(), true);
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Ligne CSV, dans l'ordre de enteteCsv()
+     */
+    public String getInstantaneCsv() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(System.currentTimeMillis()).append(',').append(getNbCoups()).append(',').append(getNbNoeuds())
+          .append(',').append(getNoeudsParSeconde()).append(',').append(getTempsMoyenMs())
+          .append(',').append(getTempsMaxMs())
+          .append(',').append(String.format(java.util.Locale.ROOT, "%.2f", getProfondeurMoyenne()))
+          .append(',').append(getNbDepassements()).append(',').append(getNbCoupsAleatoires())
+          .append(',').append(getNbCoupsSansRecherche())
+          .append(',').append(getTempsGcPendantRechercheMs()).append(',').append(getNbCoupsAvecGc())
+          .append(',').append(getNbEntreesTrouvees()).append(',').append(getNbEntreesAutresParties()).append(',');
+        ajouterTableau(sb, getHistogrammeTemps(), false);
+        sb.append(',');
+        ajouterTableau(sb, getHistogrammeProfondeur(), false);
+        return sb.toString();
+    }
+
+    public static String enteteCsv() {
+        return "horodatage,coups,noeuds,noeudsParSeconde,tempsMoyenMs,tempsMaxMs,profondeurMoyenne,"
+             + "depassements,coupsAleatoires,coupsSansRecherche,gcPendantRechercheMs,coupsAvecGc,entreesTrouvees,entreesAutresParties,"
+             + "histogrammeTemps,histogrammeProfondeur";
+    }
+
+    /**
+     * Ajoute périodiquement un instantané au fichier (JSON par ligne si l'extension est .json,
+     * CSV sinon), depuis un thread démon
+     */
+    public void demarrerExport(Path fichier, long periodeSecondes) {
+        boolean json = fichier.toString().endsWith(".json");
+        ScheduledExecutorService exportateur = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "escampe-metriques");
+            t.setDaemon(true);
+            return t;
+        });
+        exportateur.scheduleAtFixedRate(() -> {
+            try {
+                boolean nouveau = !Files.exists(fichier);
+                try (Writer w = Files.newBufferedWriter(fichier, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    if (nouveau && !json) w.write(enteteCsv() + "\n");
+                    w.write((json ? getInstantaneJson() : getInstantaneCsv()) + "\n");
+                }
+            } catch (IOException e) {
+                System.err.println("Export des métriques impossible: " + e.getMessage());
+            }
+        }, periodeSecondes, periodeSecondes, TimeUnit.SECONDS);
+    }
+
+    private static long[] copier(AtomicLongArray a) {
+        long[] copie = new long[a.length()];
+        for (int i = 0; i < copie.length; i++) copie[i] = a.get(i);
+        return copie;
+    }
+
+    /**
+     * Tableau JSON [a,b,c] ou champ CSV a;b;c
+     */
+    private static void ajouterTableau(StringBuilder sb, long[] t, boolean json) {
+        if (json) sb.append('[');
+        for (int i = 0; i < t.length; i++) {
+            if (i > 0) sb.append(json ? ',' : ';');
+            sb.append(t[i]);
+        }
+        if (json) sb.append(']');
+    }
+}
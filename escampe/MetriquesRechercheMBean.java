@@ -0,0 +1,59 @@
+package escampe;
+
+/**
+ * Interface JMX des métriques de recherche de MonJoueur (voir MetriquesRecherche).
+ * Visible dans jconsole / VisualVM sous escampe:type=MetriquesRecherche.
+ */
+public interface MetriquesRechercheMBean {
+
+    // Coups cherchés
+    long getNbCoups();
+
+    long getNbNoeuds();
+
+    // Noeuds par seconde sur l'ensemble des recherches
+    long getNoeudsParSeconde();
+
+    // Noeuds par seconde du dernier coup
+    long getNoeudsParSecondeDernierCoup();
+
+    long getTempsMoyenMs();
+
+    long getTempsMaxMs();
+
+    double getProfondeurMoyenne();
+
+    int getDerniereProfondeur();
+
+    // Coups rendus après la limite de temps
+    long getNbDepassements();
+
+    // Coups aléatoires joués en secours (coup illégal ou exception)
+    long getNbCoupsAleatoires();
+
+    // Placements, seuls coups légaux et passes, joués sans recherche (hors histogrammes)
+    long getNbCoupsSansRecherche();
+
+    // Temps de GC cumulé pendant les fenêtres de recherche
+    long getTempsGcPendantRechercheMs();
+
+    // Coups dont la fenêtre de recherche a vu au moins une collection
+    long getNbCoupsAvecGc();
+
+    // Entrées trouvées dans la table de transposition, dont celles d'une autre partie
+    long getNbEntreesTrouvees();
+
+    long getNbEntreesAutresParties();
+
+    // Bornes supérieures (ms) des classes de l'histogramme des temps de réflexion
+    long[] getBornesHistogrammeTemps();
+
+    long[] getHistogrammeTemps();
+
+    // Nombre de coups par profondeur atteinte (indice = profondeur)
+    long[] getHistogrammeProfondeur();
+
+    String getInstantaneJson();
+
+    void reinitialiser();
+}
@@ -1,15 +1,20 @@
 package escampe;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Classe qui implémente l'intelligence artificielle pour le jeu Escampe
  */
-public class MonJoueur implements IJoueur {
+public class MonJoueur implements IJoueurRapide, IJoueurConnexion {
     // Paramètres pour la gestion du temps
     private static final long MAX_THINKING_TIME = 4500; // 4.5 secondes max pour réfléchir
     private static final int MAX_DEPTH = 6; // Profondeur maximale absolue
     private static final int MIN_DEPTH = 1; // Profondeur minimale garantie
+    private static final int LOG2_TABLE = Integer.getInteger("escampe.table", 20); // 2^20 entrées, 16 Mo
+    private static final int LOG2_CACHE = Integer.getInteger("escampe.cacheEval", 16); // 2^16 entrées, 1 Mo
     
     // Poids des heuristiques pour le placement initial
     private static final int POIDS_LISERE = 10;
@@ -17,22 +22,127 @@ public class MonJoueur implements IJoueur {
     private static final int POIDS_CENTRE = 2;
     private static final int POIDS_CASES_CONTROLEES = 3;
     
-    // Poids des heuristiques pour l'évaluation du plateau
-    private static final int POIDS_LISERE_PIECES = 4;
-    private static final int POIDS_MOBILITE = 3;
-    private static final int POIDS_POSITION_STRATEGIQUE = 3;
-    private static final int POIDS_CONTROLE_TERRITOIRE = 5;
+    // Poids des heuristiques pour l'évaluation du plateau (fichier de poids chargé au démarrage)
+    private static final PoidsHeuristique POIDS = PoidsHeuristique.charger();
     
-    // Pour le débogage
-    private static final boolean DEBUG = true;
+    // Pour le débogage (désactivable par -Descampe.debug=false)
+    private static final boolean DEBUG = Boolean.parseBoolean(System.getProperty("escampe.debug", "true"));
+    // Traces de la recherche, coupées pour les recherches internes (échauffement)
+    private boolean trace = DEBUG;
     
     // État du jeu
     private EtatJeu etatJeu;
-    private static final Random rand = new Random();
+    
+    // Métriques de la recherche en cours, publiées une fois par coup
+    private static final MetriquesRecherche METRIQUES = MetriquesRecherche.global();
+    private long noeuds;
+    private int profondeurAtteinte;
+    private long coupures;
+    private long succesTable;
+    private int profondeurSelective;
+    private int profondeurIteration;
+    
+    // Limites de la recherche, modifiables par les outils d'analyse
+    private long tempsMax = MAX_THINKING_TIME;
+    private int profondeurMax = MAX_DEPTH;
+    private long noeudsMax = Long.MAX_VALUE;
+    private EcouteurRecherche ecouteur;
+    private ResultatRecherche dernierResultat;
+    
+    // Table de transposition : la table globale de la JVM, partagée par toutes les parties,
+    // sauf si une autre est fournie ; generation marque les entrées de la partie en cours
+    private TableTransposition table;
+    private int generation = TableTransposition.HORS_PARTIE;
+    // Entrées trouvées dans la table depuis le début du coup, dont celles d'une autre partie
+    private long entreesTrouvees;
+    private long entreesAutresParties;
+    // Le coup en cours passe par la recherche (ni placement, ni seul coup légal, ni passe)
+    private boolean coupCherche;
+    private CacheEvaluation cacheEvaluation;
+    // Résultats profonds des parties précédentes (-Descampe.tablePersistante), en lecture seule ;
+    // consultés près de la racine quand la table ne connaît pas la position
+    private static final int PLY_MAX_PERSISTANTE = 4;
+    private TablePersistante persistante = TablePersistante.configuree();
+    private long sondagesCache;
+    private long succesCache;
+    private boolean interrompue;
+    // Demande d'arrêt venue d'un autre thread (voir arreter)
+    private volatile boolean arretDemande;
+    
+    // Prises forcées de la licorne (voir SolveurPn), cherchées pendant la recherche sur un pool
+    // partagé par tous les joueurs de la JVM ; une prise prouvée arrête la recherche et remplace
+    // son coup. Chaque thread du pool a son solveur et sa table : threads et mémoire ne
+    // dépendent pas du nombre de parties (-Descampe.solveur.threads). Par défaut seulement avec
+    // plusieurs processeurs : sur un seul, le solveur prendrait son temps à la recherche
+    // (-Descampe.solveur.noeuds=0 pour ne pas chercher)
+    private static final long NOEUDS_SOLVEUR = Long.getLong("escampe.solveur.noeuds",
+            Runtime.getRuntime().availableProcessors() > 1 ? 2_000_000 : 0);
+    private static final int DEMI_COUPS_SOLVEUR = Integer.getInteger("escampe.solveur.demiCoups", 11);
+    private static final int LOG2_SOLVEUR = Integer.getInteger("escampe.solveur.table", 18); // 2^18 entrées, 4 Mo
+    private static final int THREADS_SOLVEUR = Integer.getInteger("escampe.solveur.threads",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    private static final ThreadLocal<SolveurPn> SOLVEUR_DU_THREAD =
+            ThreadLocal.withInitial(() -> new SolveurPn(LOG2_SOLVEUR));
+    // Résolution du coup en cours, null hors recherche
+    private volatile Resolution resolution;
+    
+    // Variante principale : table triangulaire indexée par demi-coup
+    private static final int MAX_PLY = 64;
+    private final int[][] variante = new int[MAX_PLY][MAX_PLY];
+    private final int[] longueurVariante = new int[MAX_PLY];
+    
+    // Pile des clés : positions de la partie (EtatJeu), puis la racine en basePile et la
+    // variante en cours au-dessus ; une position déjà présente est une nulle
+    private static final int SCORE_NULLE = 0;
+    // Mépris de la nulle : une répétition vaut SCORE_NULLE - MEPRIS_REPETITION fois le nombre de
+    // retours de la racine dans la partie, pour sortir d'un cycle plutôt que d'y rester
+    private static final int MEPRIS_REPETITION = Integer.getInteger("escampe.mepris", 30);
+    private int scoreNulle = SCORE_NULLE;
+    private long[] pileCles = new long[256];
+    private int basePile;
+    private long noeudsRepetes;
+    // Nulles dont la valeur dépend de cette partie : répétition d'une position jouée avant la
+    // racine, ou mépris non nul ; les noeuds au-dessus ne vont pas dans la table
+    private long nullesPartie;
+    // Temps de la recherche en cours : tempsMax, réduit quand la position se répète
+    private long tempsAlloue = MAX_THINKING_TIME;
+    
+    // Plateau de chaque demi-coup de la recherche (la racine en 0) et tampons de coups : un
+    // noeud n'alloue rien, il copie le plateau de son parent et y joue son coup
+    private final PlateauRapide[] plateaux = new PlateauRapide[MAX_PLY + 1];
+    private final int[][] coupsParPly = new int[MAX_PLY + 1][PlateauRapide.MAX_COUPS];
+    
+    {
+        for (int i = 0; i < plateaux.length; i++) plateaux[i] = new PlateauRapide();
+    }
 
     @Override
     public void initJoueur(int mycolour) {
         etatJeu = new EtatJeu(mycolour);
+        etatJeu.setTrace(trace);
+        terminerPartie();
+        if (table == null) table = TableTransposition.globale();
+        generation = table.ouvrirPartie();
+        // Compile la recherche avant le premier coup (une fois par JVM, voir Echauffement)
+        Echauffement.Bilan bilan = Echauffement.executerUneFois();
+        if (DEBUG && bilan != null) System.out.println("Échauffement : " + bilan);
+    }
+
+    /**
+     * Prépare le joueur pour le seul placement (JoueurMcts) : ni échauffement, ni génération
+     * de table
+     */
+    void initPlacement(int mycolour) {
+        etatJeu = new EtatJeu(mycolour);
+        etatJeu.setTrace(trace);
+    }
+
+    /**
+     * Place le joueur dans une position donnée, avec la couleur au trait (pour l'analyse)
+     */
+    public void chargerPosition(PositionJeu position) {
+        etatJeu = position.versEtatJeu();
+        etatJeu.setTrace(trace);
     }
 
     @Override
@@ -42,6 +152,155 @@ public class MonJoueur implements IJoueur {
 
     @Override
     public String choixMouvement() {
+        long debut = System.nanoTime();
+        long gcDebut = METRIQUES.tempsGcCumuleMs();
+        noeuds = 0;
+        profondeurAtteinte = 0;
+        entreesTrouvees = 0;
+        entreesAutresParties = 0;
+        coupCherche = false;
+        try {
+            return choisirCoup();
+        } finally {
+            // Placements et coups forcés à part : à profondeur 0, ils fausseraient les histogrammes
+            if (coupCherche) {
+                METRIQUES.enregistrerCoup(System.nanoTime() - debut, profondeurAtteinte, noeuds,
+                        tempsMax, gcDebut < 0 ? 0 : METRIQUES.tempsGcCumuleMs() - gcDebut);
+                METRIQUES.enregistrerSondagesTable(entreesTrouvees, entreesAutresParties);
+            } else {
+                METRIQUES.enregistrerCoupSansRecherche();
+            }
+        }
+    }
+
+    @Override
+    public String choixMouvementDepuis(long debutNs) {
+        // Le temps déjà passé à attendre est retiré du budget de ce coup
+        long budget = tempsMax;
+        tempsMax = Math.max(1, budget - (System.nanoTime() - debutNs) / 1000000);
+        try {
+            return choixMouvement();
+        } finally {
+            tempsMax = budget;
+        }
+    }
+
+    /**
+     * Analyse la position courante sans jouer de coup
+     *
+     * @return le résultat de la recherche, meilleurCoup valant "PASSE" s'il n'y a aucun coup légal
+     */
+    public ResultatRecherche analyser() {
+        noeuds = 0;
+        profondeurAtteinte = 0;
+        List<String> legalMoves = etatJeu.genererCoupsLegaux();
+        if (legalMoves.isEmpty()) {
+            dernierResultat = new ResultatRecherche("PASSE", 0, Collections.<String>emptyList(), 0, 0, 0, 0, 0, 0, 0, 0,
+                    Collections.<StatistiquesIteration>emptyList());
+            return dernierResultat;
+        }
+        return rechercheIterative(legalMoves);
+    }
+
+    /**
+     * Fixe le temps de réflexion (ms) et la profondeur maximale des recherches suivantes
+     */
+    public void setLimites(long tempsMaxMs, int profondeurMax) {
+        this.tempsMax = tempsMaxMs;
+        this.profondeurMax = Math.min(profondeurMax, MAX_PLY - 2);
+    }
+
+    /**
+     * Nombre maximal de noeuds des recherches suivantes (Long.MAX_VALUE pour aucune limite) :
+     * contrairement au temps, la limite donne le même arbre d'une machine à l'autre
+     */
+    public void setLimiteNoeuds(long noeudsMax) {
+        this.noeudsMax = noeudsMax;
+    }
+
+    /**
+     * Table de transposition à utiliser, éventuellement partagée avec d'autres joueurs
+     * (null pour revenir à la table globale) ; la partie en cours est fermée dans l'ancienne
+     */
+    public void setTable(TableTransposition table) {
+        terminerPartie();
+        this.table = table;
+    }
+
+    /**
+     * Ferme la partie en cours dans la table (ses entrées seront remplacées en premier) et
+     * arrête la recherche de prise forcée en cours, qui rend son thread au pool
+     */
+    void terminerPartie() {
+        Resolution r = resolution;
+        if (r != null) r.arreter();
+        if (table != null) table.fermerPartie(generation);
+        generation = TableTransposition.HORS_PARTIE;
+    }
+
+    /**
+     * Cache des évaluations à utiliser, éventuellement partagé avec d'autres joueurs
+     * (null pour revenir à un cache propre)
+     */
+    public void setCacheEvaluation(CacheEvaluation cache) {
+        this.cacheEvaluation = cache;
+    }
+
+    /**
+     * Table persistante à consulter (null pour aucune) ; par défaut celle de
+     * -Descampe.tablePersistante
+     */
+    public void setTablePersistante(TablePersistante persistante) {
+        this.persistante = persistante;
+    }
+
+    void setTrace(boolean trace) {
+        this.trace = trace;
+        if (etatJeu != null) etatJeu.setTrace(trace);
+    }
+
+    /**
+     * Table de transposition en usage (null avant la première recherche)
+     */
+    public TableTransposition getTable() {
+        return table;
+    }
+
+    /**
+     * Arrête au plus tôt la recherche en cours, depuis n'importe quel thread ; elle rend le
+     * résultat de la dernière itération terminée. Les recherches suivantes s'arrêtent aussi
+     * immédiatement jusqu'à l'appel de reprendre.
+     */
+    public void arreter() {
+        arretDemande = true;
+    }
+
+    public void reprendre() {
+        arretDemande = false;
+    }
+
+    /**
+     * Rappel appelé à chaque itération terminée (null pour aucun)
+     */
+    public void setEcouteur(EcouteurRecherche ecouteur) {
+        this.ecouteur = ecouteur;
+    }
+
+    /**
+     * Résultat de la dernière recherche (null si aucune recherche n'a eu lieu)
+     */
+    public ResultatRecherche getDernierResultat() {
+        return dernierResultat;
+    }
+
+    public EtatJeu getEtatJeu() {
+        return etatJeu;
+    }
+
+    /**
+     * Choix du coup à jouer (placement, coup forcé ou recherche)
+     */
+    private String choisirCoup() {
         try {
             if (!etatJeu.isInitialDone()) {
                 // Utiliser un placement intelligent au lieu d'un placement fixe
@@ -61,6 +320,7 @@ public class MonJoueur implements IJoueur {
                     System.out.println("ALERTE: Aucun coup légal trouvé!");
                     etatJeu.afficherPlateau();
                 }
+                etatJeu.passer();
                 return "PASSE";
             }
             
@@ -71,14 +331,27 @@ public class MonJoueur implements IJoueur {
                 return move;
             }
 
-            // Utiliser l'approfondissement itératif avec contrôle du temps
-            String bestMove = rechercheIterative(legalMoves);
+            // Utiliser l'approfondissement itératif avec contrôle du temps, le solveur de prises
+            // forcées en parallèle
+            long debut = System.currentTimeMillis();
+            coupCherche = true;
+            Resolution r = lancerSolveur();
+            String bestMove = rechercheIterative(legalMoves).meilleurCoup;
+            String prise = attendreSolveur(r, tempsAlloue - (System.currentTimeMillis() - debut));
+            if (prise != null) {
+                if (trace) {
+                    System.out.println("Prise forcée prouvée en " + DEMI_COUPS_SOLVEUR + " demi-coups au plus: " + prise
+                            + " (au lieu de " + bestMove + ", " + r.noeuds + " noeuds)");
+                }
+                bestMove = prise;
+            }
             
             // Vérifier une dernière fois que le coup est légal
             if (!etatJeu.estCoupLegal(bestMove)) {
                 System.out.println("ERREUR: Le coup choisi n'est pas légal: " + bestMove);
                 // Choisir un coup aléatoire parmi les coups légaux
-                bestMove = legalMoves.get(rand.nextInt(legalMoves.size()));
+                bestMove = legalMoves.get(Alea.courant().entier(legalMoves.size()));
+                METRIQUES.enregistrerCoupAleatoire();
                 System.out.println("Choix d'un coup aléatoire à la place: " + bestMove);
             }
             
@@ -98,7 +371,8 @@ public class MonJoueur implements IJoueur {
             try {
                 List<String> legalMoves = etatJeu.genererCoupsLegaux();
                 if (!legalMoves.isEmpty()) {
-                    String move = legalMoves.get(rand.nextInt(legalMoves.size()));
+                    String move = legalMoves.get(Alea.courant().entier(legalMoves.size()));
+                    METRIQUES.enregistrerCoupAleatoire();
                     etatJeu.appliquerCoup(move);
                     return move;
                 }
@@ -114,142 +388,139 @@ public class MonJoueur implements IJoueur {
      * Recherche itérative qui augmente progressivement la profondeur
      * tout en respectant la contrainte de temps
      */
-    private String rechercheIterative(List<String> legalMoves) {
+    private ResultatRecherche rechercheIterative(List<String> legalMoves) {
         long startTime = System.currentTimeMillis();
         String bestMove = legalMoves.get(0); // Coup par défaut
+        int scoreRetenu = 0;
+        List<String> varianteRetenue = Collections.singletonList(bestMove);
+        List<StatistiquesIteration> iterations = new ArrayList<>();
+        coupures = 0;
+        succesTable = 0;
+        profondeurSelective = 0;
+        interrompue = false;
+        long noeudsIterationPrecedente = 0;
+        if (table == null) table = TableTransposition.globale();
+        if (cacheEvaluation == null) cacheEvaluation = new CacheEvaluation(LOG2_CACHE);
+        sondagesCache = 0;
+        succesCache = 0;
+        int joueur = etatJeu.getCouleurJoueur();
         
-        // Trier les coups pour optimiser l'élagage alpha-beta
-        Collections.sort(legalMoves, (a, b) -> {
-            String[] pa = a.split("-");
-            String[] pb = b.split("-");
-            
-            // Vérifier que les coups sont au format valide
-            if (pa.length != 2 || pb.length != 2) {
-                return 0; // Ignorer les coups mal formatés
-            }
-            
-            // Vérifier que les positions sont valides
-            if (pa[0].length() < 2 || pa[1].length() < 2 || 
-                pb[0].length() < 2 || pb[1].length() < 2) {
-                return 0; // Ignorer les positions mal formatées
-            }
-            
-            try {
-                int sra = Integer.parseInt(pa[1].substring(1)) - 1;
-                int sca = pa[1].charAt(0) - 'A';
-                int srb = Integer.parseInt(pb[1].substring(1)) - 1;
-                int scb = pb[1].charAt(0) - 'A';
-                
-                // Vérifier que les indices sont dans les limites du plateau
-                if (sra < 0 || sra >= 6 || sca < 0 || sca >= 6 ||
-                    srb < 0 || srb >= 6 || scb < 0 || scb >= 6) {
-                    return 0; // Ignorer les positions hors limites
-                }
-                
-                int[][] plateau = etatJeu.getPlateau();
-                int[][] typePiece = etatJeu.getTypePiece();
-                int couleur = etatJeu.getCouleurJoueur();
-                
-                // Priorité aux captures de licorne
-                boolean captureA = plateau[sra][sca] == -couleur && typePiece[sra][sca] == EtatJeu.LICORNE;
-                boolean captureB = plateau[srb][scb] == -couleur && typePiece[srb][scb] == EtatJeu.LICORNE;
-                
-                if (captureA && !captureB) return -1;
-                if (!captureA && captureB) return 1;
-                
-                // Ensuite, priorité aux positions avec une lisère élevée
-                int lisereA = EtatJeu.LISERE[sra][sca];
-                int lisereB = EtatJeu.LISERE[srb][scb];
-                
-                if (lisereA > lisereB) return -1;
-                if (lisereA < lisereB) return 1;
-                
-                // Enfin, priorité aux positions stratégiques
-                int valeurA = EtatJeu.VALEUR_POSITION[sra][sca];
-                int valeurB = EtatJeu.VALEUR_POSITION[srb][scb];
-                
-                return valeurB - valeurA;
-            } catch (Exception e) {
-                System.err.println("Erreur lors du tri des coups: " + e.getMessage());
-                return 0; // En cas d'erreur, ne pas modifier l'ordre
-            }
-        });
+        // Historique de la partie sous la racine, pour reconnaître les cycles
+        int nbPartie = etatJeu.getNbHachages();
+        if (pileCles.length < nbPartie + MAX_PLY + 1) {
+            pileCles = new long[Math.max(pileCles.length * 2, nbPartie + MAX_PLY + 1)];
+        }
+        System.arraycopy(etatJeu.getHachages(), 0, pileCles, 0, nbPartie);
+        basePile = nbPartie;
+        pileCles[basePile] = Zobrist.hacher(etatJeu.getPlateau(), etatJeu.getTypePiece(), joueur,
+                etatJeu.getLastLisere(), joueur);
+        noeudsRepetes = 0;
+        PlateauRapide racine = plateaux[0];
+        racine.charger(etatJeu, joueur);
+        
+        // Une position qui revient a déjà été cherchée (la table en garde le résultat) :
+        // on y passe moins de temps à chaque retour, et les nulles par répétition y valent
+        // de moins en moins
+        int repetitions = etatJeu.getRepetitions();
+        tempsAlloue = tempsMax / (1 + repetitions);
+        scoreNulle = SCORE_NULLE - MEPRIS_REPETITION * repetitions;
+        
+        // Trier les coups pour optimiser l'élagage alpha-beta : prises de la licorne, puis
+        // arrivées les moins contrôlées par les paladins adverses, puis liseré et valeur de
+        // l'arrivée les plus hauts
+        long prises = CartesControle.prises(racine);
+        long licorneAdverse = (racine.trait == IJoueur.NOIR ? racine.blancs : racine.noirs) & racine.licornes;
+        long[] controleAdverse = new long[3];
+        CartesControle.compterControle((racine.trait == IJoueur.NOIR ? racine.blancs : racine.noirs)
+                & ~racine.licornes, controleAdverse);
+        Map<String, Integer> cles = new HashMap<>();
+        for (String m : legalMoves) {
+            int coup = Coup.lire(m);
+            int dep = Coup.depart(coup), arr = Coup.arrivee(coup);
+            boolean prise = (prises >>> dep & 1) != 0 && (licorneAdverse >>> arr & 1) != 0;
+            cles.put(m, (prise ? 0 : 1 << 12)
+                    | CartesControle.nbControleurs(controleAdverse, arr) << 8
+                    | (3 - PlateauRapide.LISERE[arr]) << 4
+                    | (5 - EtatJeu.VALEUR_POSITION[arr / 6][arr % 6]));
+        }
+        legalMoves.sort(Comparator.comparingInt(cles::get));
         
         // Commencer par une profondeur minimale garantie
         int currentDepth = MIN_DEPTH;
         
-        while (currentDepth <= MAX_DEPTH) {
+        while (currentDepth <= profondeurMax) {
             // Vérifier si on a encore du temps
-            long currentTime = System.currentTimeMillis();
-            if (currentTime - startTime > MAX_THINKING_TIME) {
-                if (DEBUG) System.out.println("Profondeur atteinte: " + (currentDepth - 1));
+            if (tempsEcoule(startTime)) {
+                if (trace) System.out.println("Profondeur atteinte: " + (currentDepth - 1));
                 break;
             }
             
             int bestScore = Integer.MIN_VALUE;
             String currentBestMove = null;
+            List<String> currentVariante = null;
+            long noeudsAvant = noeuds;
+            long coupuresAvant = coupures;
+            long succesAvant = succesTable;
+            profondeurIteration = currentDepth;
+            
+            // Le meilleur coup de l'itération précédente est essayé en premier
+            if (currentDepth > MIN_DEPTH && legalMoves.remove(bestMove)) {
+                legalMoves.add(0, bestMove);
+            }
             
             for (String move : legalMoves) {
-                // Vérifier que le coup est légal avant de l'évaluer
-                if (!etatJeu.estCoupLegal(move)) {
-                    if (DEBUG) System.out.println("Coup illégal ignoré: " + move);
+                // Les coups viennent de genererCoupsLegaux : seul le format est revérifié
+                int coup = Coup.lire(move);
+                if (coup == Coup.INVALIDE || coup == Coup.PASSE) {
+                    if (trace) System.out.println("Coup illégal ignoré: " + move);
                     continue;
                 }
                 
-                // Créer une copie du plateau et des types de pièces
-                int[][] clonePlateau = EtatJeu.copierPlateau(etatJeu.getPlateau());
-                int[][] cloneTypePiece = EtatJeu.copierPlateau(etatJeu.getTypePiece());
+                // Jouer le coup sur le plateau du premier demi-coup
+                long cle = pileCles[basePile] ^ Zobrist.deplacement(racine, coup);
+                plateaux[1].copier(racine);
+                plateaux[1].jouer(coup);
                 
-                try {
-                    // Appliquer le coup sur les clones
-                    String[] p = move.split("-");
-                    int fr = Integer.parseInt(p[0].substring(1)) - 1;
-                    int fc = p[0].charAt(0) - 'A';
-                    int sr = Integer.parseInt(p[1].substring(1)) - 1;
-                    int sc = p[1].charAt(0) - 'A';
-                    
-                    // Vérifier que les indices sont dans les limites du plateau
-                    if (fr < 0 || fr >= 6 || fc < 0 || fc >= 6 ||
-                        sr < 0 || sr >= 6 || sc < 0 || sc >= 6) {
-                        if (DEBUG) System.out.println("Coup hors limites ignoré: " + move);
-                        continue;
-                    }
-                    
-                    cloneTypePiece[sr][sc] = cloneTypePiece[fr][fc];
-                    cloneTypePiece[fr][fc] = 0;
-                    
-                    clonePlateau[sr][sc] = clonePlateau[fr][fc];
-                    clonePlateau[fr][fc] = 0;
-                    
-                    int newLisere = EtatJeu.LISERE[sr][sc];
-                    
-                    // Évaluer avec alpha-beta pruning
-                    int score = alphaBeta(clonePlateau, cloneTypePiece, currentDepth, Integer.MIN_VALUE, Integer.MAX_VALUE, false, etatJeu.getCouleurJoueur(), newLisere, startTime);
-                    
-                    // Si on a dépassé le temps, arrêter la recherche
-                    if (System.currentTimeMillis() - startTime > MAX_THINKING_TIME) {
-                        break;
-                    }
-                    
-                    if (score > bestScore) {
-                        bestScore = score;
-                        currentBestMove = move;
-                    }
-                } catch (Exception e) {
-                    System.err.println("Erreur lors de l'évaluation du coup " + move + ": " + e.getMessage());
-                    continue; // Ignorer ce coup en cas d'erreur
+                // Évaluer avec alpha-beta pruning
+                int score = alphaBeta(currentDepth, Integer.MIN_VALUE, Integer.MAX_VALUE, false, joueur, cle, startTime);
+                
+                // Si on a dépassé le temps, arrêter la recherche
+                if (tempsEcoule(startTime)) {
+                    break;
+                }
+                
+                if (score > bestScore) {
+                    bestScore = score;
+                    currentBestMove = move;
+                    majVariante(0, coup);
+                    currentVariante = lireVariante();
                 }
             }
             
             // Si on a trouvé un meilleur coup à cette profondeur, le mémoriser
             if (currentBestMove != null) {
                 bestMove = currentBestMove;
+                scoreRetenu = bestScore;
+                varianteRetenue = currentVariante;
             }
             
             // Si on a dépassé le temps, arrêter la recherche
-            if (System.currentTimeMillis() - startTime > MAX_THINKING_TIME) {
+            if (tempsEcoule(startTime)) {
                 break;
             }
+            profondeurAtteinte = currentDepth;
+            
+            // Statistiques de l'itération terminée
+            long noeudsIteration = noeuds - noeudsAvant;
+            StatistiquesIteration iteration = new StatistiquesIteration(currentDepth, profondeurSelective, bestMove,
+                    scoreRetenu, varianteRetenue, noeudsIteration, System.currentTimeMillis() - startTime,
+                    coupures - coupuresAvant, succesTable - succesAvant,
+                    noeudsIterationPrecedente > 0 ? (double) noeudsIteration / noeudsIterationPrecedente : 0);
+            noeudsIterationPrecedente = noeudsIteration;
+            iterations.add(iteration);
+            if (ecouteur != null) {
+                ecouteur.iterationTerminee(iteration);
+            }
             
             currentDepth++;
         }
@@ -258,221 +529,355 @@ public class MonJoueur implements IJoueur {
         if (!etatJeu.estCoupLegal(bestMove) && !legalMoves.isEmpty()) {
             System.out.println("ALERTE: Le meilleur coup trouvé n'est pas légal: " + bestMove);
             // Choisir un coup aléatoire parmi les coups légaux
-            bestMove = legalMoves.get(rand.nextInt(legalMoves.size()));
+            bestMove = legalMoves.get(Alea.courant().entier(legalMoves.size()));
+            METRIQUES.enregistrerCoupAleatoire();
             System.out.println("Choix d'un coup aléatoire à la place: " + bestMove);
+            varianteRetenue = Collections.singletonList(bestMove);
+        }
+        
+        if (trace && (repetitions > 0 || noeudsRepetes > 0)) {
+            System.out.println("Répétitions: position vue " + (repetitions + 1) + " fois, " + noeudsRepetes
+                    + " noeuds nuls par répétition");
         }
         
-        return bestMove;
+        dernierResultat = new ResultatRecherche(bestMove, scoreRetenu, varianteRetenue, profondeurAtteinte,
+                profondeurSelective, noeuds, System.currentTimeMillis() - startTime, succesTable, coupures,
+                sondagesCache, succesCache, iterations);
+        return dernierResultat;
     }
     
     /**
-     * Algorithme Alpha-Beta avec contrôle du temps
+     * Confie la position courante au pool des solveurs
+     *
+     * @return la résolution en cours, null si le solveur est désactivé
      */
-    private int alphaBeta(int[][] board, int[][] types, int depth, int alpha, int beta, boolean maximizing, 
-                          int player, int lisere, long startTime) {
-        // Vérifier si on a dépassé le temps alloué
-        if (System.currentTimeMillis() - startTime > MAX_THINKING_TIME) {
-            return maximizing ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+    private Resolution lancerSolveur() {
+        if (NOEUDS_SOLVEUR <= 0) return null;
+        Resolution r = new Resolution(new PositionJeu(etatJeu));
+        resolution = r;
+        PoolSolveur.POOL.execute(r);
+        return r;
+    }
+
+    /**
+     * Laisse au solveur le temps que la recherche n'a pas pris (elle s'arrête tôt à la
+     * profondeur maximale), puis l'arrête s'il cherche encore
+     *
+     * @return le premier coup de la prise forcée s'il l'a prouvée, null sinon
+     */
+    private String attendreSolveur(Resolution r, long resteMs) {
+        if (r == null) return null;
+        int etat;
+        try {
+            etat = r.attendre(resteMs);
+        } catch (InterruptedException e) {
+            r.arreter();
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            resolution = null;
         }
-        
-        // Vérifier si la partie est terminée
-        boolean licorneNoireTrouvee = false;
-        boolean licorneBlancheTrouvee = false;
-        
-        for (int r = 0; r < 6; r++) {
-            for (int c = 0; c < 6; c++) {
-                if (board[r][c] == EtatJeu.NOIR && types[r][c] == EtatJeu.LICORNE) {
-                    licorneNoireTrouvee = true;
-                }
-                if (board[r][c] == EtatJeu.BLANC && types[r][c] == EtatJeu.LICORNE) {
-                    licorneBlancheTrouvee = true;
+        if (etat != SolveurPn.PROUVE) return null;
+        String coup = Coup.toString(r.coupGagnant);
+        return etatJeu.estCoupLegal(coup) ? coup : null;
+    }
+
+    /**
+     * Pool des solveurs, créé au premier coup qui en a besoin
+     */
+    private static final class PoolSolveur {
+        static final ExecutorService POOL = Executors.newFixedThreadPool(THREADS_SOLVEUR, r -> {
+            Thread t = new Thread(r, "escampe-solveur");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Recherche de prise forcée pour un coup, exécutée par un thread du pool avec le solveur
+     * de ce thread ; le résultat est publié sous le verrou de l'objet
+     */
+    private static final class Resolution implements Runnable {
+        private final PositionJeu position;
+        private SolveurPn solveur;
+        private boolean demarree;
+        private boolean finie;
+        private boolean arret;
+        // Lu par la recherche (tempsEcoule) pour s'arrêter dès la preuve
+        volatile boolean prouvee;
+        int etat = SolveurPn.INCONNU;
+        int coupGagnant = Coup.INVALIDE;
+        long noeuds;
+
+        Resolution(PositionJeu position) {
+            this.position = position;
+        }
+
+        @Override
+        public void run() {
+            SolveurPn s = SOLVEUR_DU_THREAD.get();
+            s.preparer(position);
+            synchronized (this) {
+                // Arrêtée avant d'avoir eu un thread : rien à faire
+                if (arret) return;
+                solveur = s;
+                demarree = true;
+            }
+            int r = SolveurPn.INCONNU;
+            try {
+                r = s.resoudre(DEMI_COUPS_SOLVEUR, NOEUDS_SOLVEUR);
+            } finally {
+                synchronized (this) {
+                    solveur = null;
+                    etat = r;
+                    coupGagnant = s.getCoupGagnant();
+                    noeuds = s.getNoeuds();
+                    finie = true;
+                    notifyAll();
                 }
             }
+            if (r == SolveurPn.PROUVE) prouvee = true;
+        }
+
+        /**
+         * Arrête au plus tôt, depuis n'importe quel thread
+         */
+        synchronized void arreter() {
+            arret = true;
+            if (solveur != null) solveur.arreter();
+        }
+
+        /**
+         * Attend la fin au plus resteMs, puis arrête la résolution et attend qu'elle rende son
+         * thread (sans attendre un thread du pool si elle n'en a pas encore eu)
+         *
+         * @return l'état du solveur, INCONNU si la résolution n'a pas abouti
+         */
+        synchronized int attendre(long resteMs) throws InterruptedException {
+            long fin = System.currentTimeMillis() + Math.max(0, resteMs);
+            long reste;
+            while (!finie && (reste = fin - System.currentTimeMillis()) > 0) wait(reste);
+            arreter();
+            while (demarree && !finie) wait();
+            return finie ? etat : SolveurPn.INCONNU;
+        }
+    }
+
+    /**
+     * Temps de la recherche écoulé, arrêt demandé, ou prise forcée prouvée par le solveur
+     */
+    private boolean tempsEcoule(long startTime) {
+        Resolution r = resolution;
+        return arretDemande || (r != null && r.prouvee) || noeuds >= noeudsMax || System.currentTimeMillis() - startTime > tempsAlloue;
+    }
+    
+    /**
+     * Mémorise le résultat d'un noeud, sauf si la recherche a été interrompue (score partiel)
+     */
+    private void enregistrer(long cle, int depth, int value, int alphaInitial, int betaInitial, int meilleur) {
+        if (interrompue || meilleur == Coup.INVALIDE) return;
+        int borne = value <= alphaInitial ? TableTransposition.MAJORANT
+                  : value >= betaInitial ? TableTransposition.MINORANT
+                  : TableTransposition.EXACTE;
+        table.enregistrer(cle, depth, value, borne, meilleur, generation);
+    }
+    
+    /**
+     * Le coup joué au demi-coup ply devient la tête de la variante principale de ce demi-coup
+     */
+    private void majVariante(int ply, int move) {
+        variante[ply][ply] = move;
+        int fin = longueurVariante[ply + 1];
+        for (int i = ply + 1; i < fin; i++) {
+            variante[ply][i] = variante[ply + 1][i];
+        }
+        longueurVariante[ply] = Math.max(fin, ply + 1);
+    }
+    
+    private List<String> lireVariante() {
+        List<String> coups = new ArrayList<>(longueurVariante[0]);
+        for (int i = 0; i < longueurVariante[0]; i++) coups.add(Coup.toString(variante[0][i]));
+        return coups;
+    }
+    
+    /**
+     * Indice sur la pile de la position cle, au demi-coup ply de la recherche, -1 si elle n'y
+     * est pas (avant basePile : jouée dans la partie). Le trait fait partie de la clé : seules
+     * les positions au même joueur peuvent égaler.
+     */
+    private int positionRepetee(long cle, int ply) {
+        for (int i = basePile + ply - 2; i >= 0; i--) {
+            if (pileCles[i] == cle) return i;
+        }
+        return -1;
+    }
+    
+    /**
+     * Algorithme Alpha-Beta avec contrôle du temps, sur plateaux[ply] ; n'alloue rien
+     */
+    private int alphaBeta(int depth, int alpha, int beta, boolean maximizing, int player, long cle, long startTime) {
+        noeuds++;
+        int ply = profondeurIteration - depth + 1;
+        longueurVariante[ply] = ply;
+        if (ply > profondeurSelective) profondeurSelective = ply;
+        
+        // Vérifier si on a dépassé le temps alloué
+        if (tempsEcoule(startTime)) {
+            interrompue = true;
+            return maximizing ? Integer.MIN_VALUE : Integer.MAX_VALUE;
         }
         
-        if (!licorneNoireTrouvee) {
-            return player == EtatJeu.BLANC ? 10000 : -10000;
+        // Position déjà rencontrée dans la partie ou la variante : nulle, sans recherche
+        int repetee = positionRepetee(cle, ply);
+        if (repetee >= 0) {
+            noeudsRepetes++;
+            if (repetee < basePile || scoreNulle != SCORE_NULLE) nullesPartie++;
+            return scoreNulle;
         }
+        pileCles[basePile + ply] = cle;
         
-        if (!licorneBlancheTrouvee) {
-            return player == EtatJeu.NOIR ? 10000 : -10000;
+        // Vérifier si la partie est terminée (une licorne a été prise)
+        PlateauRapide plateau = plateaux[ply];
+        if (plateau.vainqueur != 0) {
+            return plateau.vainqueur == player ? 10000 : -10000;
         }
         
         // Cas de base: profondeur atteinte
         if (depth == 0) {
-            return heuristique(board, types, player);
+            return evaluer(plateau, player, cle);
         }
         
-        // Générer les coups légaux pour le joueur actuel
-        List<String> coups = genererCoupsSecurise(board, types, maximizing ? player : -player, lisere);
-        if (coups.isEmpty()) {
+        // Consulter la table de transposition
+        int alphaInitial = alpha, betaInitial = beta;
+        int coupTable = Coup.INVALIDE;
+        long entree = table.sonder(cle);
+        if (entree != TableTransposition.AUCUNE) {
+            entreesTrouvees++;
+            if (TableTransposition.generation(entree) != generation) {
+                // Lue par cette partie, même sur une coupure : elle ne doit pas être remplacée en premier
+                entreesAutresParties++;
+                table.rafraichir(cle, generation);
+            }
+        } else if (persistante != null && ply <= PLY_MAX_PERSISTANTE) {
+            entree = persistante.sonder(cle);
+            if (entree != TableTransposition.AUCUNE) {
+                table.enregistrer(cle, TableTransposition.profondeur(entree), TableTransposition.score(entree),
+                        TableTransposition.borne(entree), TableTransposition.coup(entree), generation);
+            }
+        }
+        if (entree != TableTransposition.AUCUNE) {
+            coupTable = TableTransposition.coup(entree);
+            if (TableTransposition.profondeur(entree) >= depth) {
+                int score = TableTransposition.score(entree);
+                int borne = TableTransposition.borne(entree);
+                if (borne == TableTransposition.EXACTE
+                        || (borne == TableTransposition.MINORANT && score >= beta)
+                        || (borne == TableTransposition.MAJORANT && score <= alpha)) {
+                    succesTable++;
+                    return score;
+                }
+            }
+        }
+        
+        // Générer les coups légaux du joueur au trait
+        int[] coups = coupsParPly[ply];
+        int nbCoups = plateau.genererCoups(coups);
+        if (nbCoups == 0) {
             // Si aucun coup n'est possible, c'est mauvais pour le joueur actuel
             return 0; // Valeur neutre car le joueur passe son tour
         }
         
+        // Le coup de la table est essayé en premier, puis les prises de la licorne adverse
+        // (qui terminent la partie), les autres gardent leur ordre
+        int essayes = 0;
+        if (coupTable != Coup.INVALIDE) {
+            for (int i = 0; i < nbCoups; i++) {
+                if (coups[i] == coupTable) {
+                    System.arraycopy(coups, 0, coups, 1, i);
+                    coups[0] = coupTable;
+                    essayes = 1;
+                    break;
+                }
+            }
+        }
+        long prises = CartesControle.prises(plateau);
+        if (prises != 0) {
+            long licorneAdverse = (plateau.trait == IJoueur.NOIR ? plateau.blancs : plateau.noirs) & plateau.licornes;
+            for (int i = essayes; i < nbCoups; i++) {
+                int c = coups[i];
+                if ((prises >>> Coup.depart(c) & 1) != 0 && (licorneAdverse >>> Coup.arrivee(c) & 1) != 0) {
+                    System.arraycopy(coups, essayes, coups, essayes + 1, i - essayes);
+                    coups[essayes++] = c;
+                }
+            }
+        }
+        int meilleur = Coup.INVALIDE;
+        PlateauRapide fille = plateaux[ply + 1];
+        // Une nulle de la partie dans le sous-arbre rend sa valeur propre à l'historique de
+        // cette partie : elle n'entre pas dans la table, partagée entre parties et persistée
+        long nullesAvant = nullesPartie;
+        
         if (maximizing) {
             int value = Integer.MIN_VALUE;
-            for (String move : coups) {
-                try {
-                    // Créer une copie du plateau et des types de pièces
-                    int[][] clonePlateau = EtatJeu.copierPlateau(board);
-                    int[][] cloneTypePiece = EtatJeu.copierPlateau(types);
-                    
-                    // Appliquer le coup sur les clones
-                    String[] p = move.split("-");
-                    int fr = Integer.parseInt(p[0].substring(1)) - 1;
-                    int fc = p[0].charAt(0) - 'A';
-                    int sr = Integer.parseInt(p[1].substring(1)) - 1;
-                    int sc = p[1].charAt(0) - 'A';
-                    
-                    cloneTypePiece[sr][sc] = cloneTypePiece[fr][fc];
-                    cloneTypePiece[fr][fc] = 0;
-                    
-                    clonePlateau[sr][sc] = clonePlateau[fr][fc];
-                    clonePlateau[fr][fc] = 0;
-                    
-                    int newLisere = EtatJeu.LISERE[sr][sc];
-                    
-                    value = Math.max(value, alphaBeta(clonePlateau, cloneTypePiece, depth - 1, alpha, beta, false, player, newLisere, startTime));
-                    alpha = Math.max(alpha, value);
-                    
-                    // Élagage alpha-beta
-                    if (beta <= alpha) break;
-                    
-                    // Vérifier le temps
-                    if (System.currentTimeMillis() - startTime > MAX_THINKING_TIME) {
-                        break;
-                    }
-                } catch (Exception e) {
-                    // Ignorer les coups qui causent des erreurs
-                    continue;
+            for (int i = 0; i < nbCoups; i++) {
+                int move = coups[i];
+                long cleFille = cle ^ Zobrist.deplacement(plateau, move);
+                fille.copier(plateau);
+                fille.jouer(move);
+                
+                int v = alphaBeta(depth - 1, alpha, beta, false, player, cleFille, startTime);
+                if (v > value) {
+                    value = v;
+                    meilleur = move;
+                    majVariante(ply, move);
+                }
+                alpha = Math.max(alpha, value);
+                
+                // Élagage alpha-beta
+                if (beta <= alpha) {
+                    coupures++;
+                    break;
+                }
+                
+                // Vérifier le temps
+                if (tempsEcoule(startTime)) {
+                    interrompue = true;
+                    break;
                 }
             }
+            if (nullesPartie == nullesAvant) enregistrer(cle, depth, value, alphaInitial, betaInitial, meilleur);
             return value;
         } else {
             int value = Integer.MAX_VALUE;
-            for (String move : coups) {
-                try {
-                    // Créer une copie du plateau et des types de pièces
-                    int[][] clonePlateau = EtatJeu.copierPlateau(board);
-                    int[][] cloneTypePiece = EtatJeu.copierPlateau(types);
-                    
-                    // Appliquer le coup sur les clones
-                    String[] p = move.split("-");
-                    int fr = Integer.parseInt(p[0].substring(1)) - 1;
-                    int fc = p[0].charAt(0) - 'A';
-                    int sr = Integer.parseInt(p[1].substring(1)) - 1;
-                    int sc = p[1].charAt(0) - 'A';
-                    
-                    cloneTypePiece[sr][sc] = cloneTypePiece[fr][fc];
-                    cloneTypePiece[fr][fc] = 0;
-                    
-                    clonePlateau[sr][sc] = clonePlateau[fr][fc];
-                    clonePlateau[fr][fc] = 0;
-                    
-                    int newLisere = EtatJeu.LISERE[sr][sc];
-                    
-                    value = Math.min(value, alphaBeta(clonePlateau, cloneTypePiece, depth - 1, alpha, beta, true, player, newLisere, startTime));
-                    beta = Math.min(beta, value);
-                    
-                    // Élagage alpha-beta
-                    if (beta <= alpha) break;
-                    
-                    // Vérifier le temps
-                    if (System.currentTimeMillis() - startTime > MAX_THINKING_TIME) {
-                        break;
-                    }
-                } catch (Exception e) {
-                    // Ignorer les coups qui causent des erreurs
-                    continue;
+            for (int i = 0; i < nbCoups; i++) {
+                int move = coups[i];
+                long cleFille = cle ^ Zobrist.deplacement(plateau, move);
+                fille.copier(plateau);
+                fille.jouer(move);
+                
+                int v = alphaBeta(depth - 1, alpha, beta, true, player, cleFille, startTime);
+                if (v < value) {
+                    value = v;
+                    meilleur = move;
+                    majVariante(ply, move);
                 }
-            }
-            return value;
-        }
-    }
-    
-    /**
-     * Version sécurisée de la génération de coups pour éviter les erreurs
-     */
-    private List<String> genererCoupsSecurise(int[][] board, int[][] types, int joueur, int lisereContr) {
-        List<String> moves = new ArrayList<>();
-        try {
-            boolean hasConstrainedPiece = false;
-            if (lisereContr > 0) {
-                outer:
-                for (int r = 0; r < 6; r++) {
-                    for (int c = 0; c < 6; c++) {
-                        if (board[r][c] == joueur && EtatJeu.LISERE[r][c] == lisereContr) {
-                            hasConstrainedPiece = true;
-                            break outer;
-                        }
-                    }
+                beta = Math.min(beta, value);
+                
+                // Élagage alpha-beta
+                if (beta <= alpha) {
+                    coupures++;
+                    break;
                 }
-            }
-            int lisereEff = hasConstrainedPiece ? lisereContr : 0;
-
-            for (int r = 0; r < 6; r++) {
-                for (int c = 0; c < 6; c++) {
-                    if (board[r][c] == joueur) {
-                        if (lisereEff > 0 && EtatJeu.LISERE[r][c] != lisereEff) continue;
-                        int max = EtatJeu.LISERE[r][c];
-                        int[][] dirs = {{1,0}, {-1,0}, {0,1}, {0,-1}};
-                        for (int[] d : dirs) {
-                            for (int step = 1; step <= max; step++) {
-                                int nr = r + d[0] * step;
-                                int nc = c + d[1] * step;
-                                
-                                // Vérifier les limites du plateau
-                                if (nr < 0 || nr >= 6 || nc < 0 || nc >= 6) {
-                                    break;
-                                }
-                                
-                                // Vérifier s'il y a un obstacle sur le chemin
-                                boolean blocked = false;
-                                for (int i = 1; i < step; i++) {
-                                    int checkR = r + d[0] * i;
-                                    int checkC = c + d[1] * i;
-                                    if (board[checkR][checkC] != EtatJeu.VIDE) {
-                                        blocked = true;
-                                        break;
-                                    }
-                                }
-                                
-                                if (blocked) {
-                                    break;
-                                }
-                                
-                                // Vérifier la case d'arrivée
-                                if (board[nr][nc] == EtatJeu.VIDE) {
-                                    // Case vide, coup valide
-                                    moves.add(EtatJeu.toPos(r, c) + "-" + EtatJeu.toPos(nr, nc));
-                                } else if (board[nr][nc] == -joueur) {
-                                    // Case occupée par une pièce adverse
-                                    
-                                    // Vérifier si c'est une licorne (seule pièce prenable)
-                                    if (types[nr][nc] == EtatJeu.LICORNE) {
-                                        // Vérifier que la pièce qui prend est un paladin
-                                        if (types[r][c] == EtatJeu.PALADIN) {
-                                            // Vérifier que la distance est exactement égale à la portée
-                                            if (step == max) {
-                                                moves.add(EtatJeu.toPos(r, c) + "-" + EtatJeu.toPos(nr, nc));
-                                            }
-                                        }
-                                    }
-                                    
-                                    // Dans tous les cas, on ne peut pas aller plus loin dans cette direction
-                                    break;
-                                }
-                            }
-                        }
-                    }
+                
+                // Vérifier le temps
+                if (tempsEcoule(startTime)) {
+                    interrompue = true;
+                    break;
                 }
             }
-        } catch (Exception e) {
-            System.err.println("Erreur lors de la génération des coups: " + e.getMessage());
-            e.printStackTrace();
+            if (nullesPartie == nullesAvant) enregistrer(cle, depth, value, alphaInitial, betaInitial, meilleur);
+            return value;
         }
-        return moves;
     }
     
     /**
@@ -574,133 +979,74 @@ public class MonJoueur implements IJoueur {
     }
 
     /**
-     * Fonction d'évaluation heuristique pour un état de plateau
+     * Évaluation statique d'une feuille, lue dans le cache si elle y est
      */
-    private int heuristique(int[][] board, int[][] types, int player) {
-        int score = 0;
+    private int evaluer(PlateauRapide plateau, int player, long cle) {
+        sondagesCache++;
+        int score = cacheEvaluation.sonder(cle);
+        if (score != CacheEvaluation.ABSENT) {
+            succesCache++;
+            return score;
+        }
+        score = heuristique(player == EtatJeu.NOIR ? plateau.noirs : plateau.blancs,
+                player == EtatJeu.NOIR ? plateau.blancs : plateau.noirs, plateau.licornes, POIDS);
+        cacheEvaluation.enregistrer(cle, score);
+        return score;
+    }
+    
+    /**
+     * Évaluation avec un jeu de poids donné (utilisée aussi par TunerTexel)
+     */
+    static int heuristique(int[][] board, int[][] types, int player, PoidsHeuristique poids) {
+        // Masques des pièces (voir CartesControle), en un seul parcours du plateau
+        long propres = 0, adverses = 0, licornes = 0;
+        for (int s = 0; s < 36; s++) {
+            int couleur = board[s / 6][s % 6];
+            if (couleur == EtatJeu.VIDE) continue;
+            if (couleur == player) propres |= 1L << s;
+            else adverses |= 1L << s;
+            if (types[s / 6][s % 6] == EtatJeu.LICORNE) licornes |= 1L << s;
+        }
         
+        return heuristique(propres, adverses, licornes, poids);
+    }
+    
+    /**
+     * Évaluation sur les masques des pièces du joueur, de l'adversaire et des licornes
+     */
+    static int heuristique(long propres, long adverses, long licornes, PoidsHeuristique poids) {
         // Bonus très élevé si la licorne adverse est capturée
-        boolean licorneNoireTrouvee = false;
-        boolean licorneBlancheTrouvee = false;
-        
-        for (int r = 0; r < 6; r++) {
-            for (int c = 0; c < 6; c++) {
-                if (board[r][c] == EtatJeu.NOIR && types[r][c] == EtatJeu.LICORNE) {
-                    licorneNoireTrouvee = true;
-                }
-                if (board[r][c] == EtatJeu.BLANC && types[r][c] == EtatJeu.LICORNE) {
-                    licorneBlancheTrouvee = true;
-                }
-            }
-        }
+        if ((adverses & licornes) == 0) return 10000;
+        if ((propres & licornes) == 0) return -10000;
         
-        if (!licorneNoireTrouvee && player == EtatJeu.BLANC) return 10000;
-        if (!licorneBlancheTrouvee && player == EtatJeu.NOIR) return 10000;
-        if (!licorneNoireTrouvee && player == EtatJeu.NOIR) return -10000;
-        if (!licorneBlancheTrouvee && player == EtatJeu.BLANC) return -10000;
+        int score = 0;
         
-        // Variables pour le contrôle du territoire
-        int controleSelf = 0;
-        int controleOpponent = 0;
+        for (long p = propres; p != 0; p &= p - 1) {
+            int s = Long.numberOfTrailingZeros(p);
+            // 1. Bonus pour les pièces avec une lisère élevée
+            score += PlateauRapide.LISERE[s] * poids.lisere;
+            // 2. Bonus pour la position stratégique
+            score += poids.valeurPosition[s / 6][s % 6] * poids.position;
+        }
         
-        // Carte de chaleur pour le contrôle du territoire
-        int[][] controleMap = new int[6][6];
+        // 3. Bonus pour la licorne, toujours sur le plateau ici
+        score += poids.bonusLicorne;
         
-        // Évaluer chaque pièce sur le plateau
-        for (int r = 0; r < 6; r++) {
-            for (int c = 0; c < 6; c++) {
-                if (board[r][c] == player) {
-                    // 1. Bonus pour les pièces avec une lisère élevée
-                    score += EtatJeu.LISERE[r][c] * POIDS_LISERE_PIECES;
-                    
-                    // 2. Bonus pour la position stratégique
-                    score += EtatJeu.VALEUR_POSITION[r][c] * POIDS_POSITION_STRATEGIQUE;
-                    
-                    // 3. Bonus supplémentaire pour la licorne
-                    if (types[r][c] == EtatJeu.LICORNE) {
-                        score += 50; // Valeur élevée pour protéger la licorne
-                    }
-                    
-                    // 4. Calculer la mobilité et le contrôle du territoire
-                    int casesControlees = 0;
-                    int max = EtatJeu.LISERE[r][c];
-                    int[][] dirs = {{1,0}, {-1,0}, {0,1}, {0,-1}};
-                    
-                    for (int[] d : dirs) {
-                        int nr = r, nc = c;
-                        for (int step = 1; step <= max; step++) {
-                            nr += d[0];
-                            nc += d[1];
-                            if (nr >= 0 && nr < 6 && nc >= 0 && nc < 6) {
-                                casesControlees++;
-                                // Marquer cette case comme contrôlée par le joueur
-                                controleMap[nr][nc]++;
-                                
-                                // Bonus si un paladin peut capturer la licorne adverse
-                                if (types[r][c] == EtatJeu.PALADIN && 
-                                    board[nr][nc] == -player && 
-                                    types[nr][nc] == EtatJeu.LICORNE && 
-                                    step == max) {
-                                    score += 500; // Très forte valeur pour la capture potentielle
-                                }
-                            }
-                        }
-                    }
-                    
-                    controleSelf += casesControlees;
-                    score += casesControlees * POIDS_MOBILITE;
-                } 
-                else if (board[r][c] == -player) {
-                    // Évaluer le contrôle de l'adversaire
-                    int casesControlees = 0;
-                    int max = EtatJeu.LISERE[r][c];
-                    int[][] dirs = {{1,0}, {-1,0}, {0,1}, {0,-1}};
-                    
-                    for (int[] d : dirs) {
-                        int nr = r, nc = c;
-                        for (int step = 1; step <= max; step++) {
-                            nr += d[0];
-                            nc += d[1];
-                            if (nr >= 0 && nr < 6 && nc >= 0 && nc < 6) {
-                                casesControlees++;
-                                // Marquer cette case comme contrôlée par l'adversaire
-                                controleMap[nr][nc]--;
-                                
-                                // Malus si un paladin adverse peut capturer notre licorne
-                                if (types[r][c] == EtatJeu.PALADIN && 
-                                    board[nr][nc] == player && 
-                                    types[nr][nc] == EtatJeu.LICORNE && 
-                                    step == max) {
-                                    score -= 500; // Très forte pénalité pour la capture potentielle
-                                }
-                            }
-                        }
-                    }
-                    
-                    controleOpponent += casesControlees;
-                }
-            }
-        }
+        // 4. Mobilité : nombre de cases contrôlées par nos pièces
+        int controleSelf = CartesControle.nbControles(propres);
+        int controleOpponent = CartesControle.nbControles(adverses);
+        score += controleSelf * poids.mobilite;
         
-        // 5. Évaluer le contrôle global du territoire
-        int controleTerritory = 0;
-        for (int r = 0; r < 6; r++) {
-            for (int c = 0; c < 6; c++) {
-                if (controleMap[r][c] > 0) {
-                    // Case dominée par le joueur
-                    controleTerritory += controleMap[r][c];
-                } else if (controleMap[r][c] < 0) {
-                    // Case dominée par l'adversaire
-                    controleTerritory += controleMap[r][c];
-                }
-            }
-        }
+        // Paladins à portée exacte d'une licorne : capture potentielle
+        score += Long.bitCount(CartesControle.menaces(propres & ~licornes, adverses & licornes)) * poids.bonusMenace;
+        score -= Long.bitCount(CartesControle.menaces(adverses & ~licornes, propres & licornes)) * poids.bonusMenace;
         
-        // Ajouter le score de contrôle du territoire
-        score += controleTerritory * POIDS_CONTROLE_TERRITOIRE;
+        // 5. Contrôle du territoire : la somme de la carte de contrôle (+1 par case et par
+        // pièce à nous, -1 par pièce adverse) est la différence des contrôles
+        score += (controleSelf - controleOpponent) * poids.controle;
         
         // 6. Différence de mobilité
-        score += (controleSelf - controleOpponent) * POIDS_MOBILITE;
+        score += (controleSelf - controleOpponent) * poids.mobilite;
         
         return score;
     }
@@ -710,8 +1056,19 @@ public class MonJoueur implements IJoueur {
         etatJeu.appliquerCoupAdversaire(coup);
     }
 
+    @Override
+    public void mouvementEnnemi(int coup) {
+        etatJeu.appliquerCoupAdversaire(coup);
+    }
+
+    @Override
+    public void connexionPerdue() {
+        terminerPartie();
+    }
+
     @Override
     public void declareLeVainqueur(int couleurGagnant) {
+        terminerPartie();
         if (couleurGagnant == etatJeu.getCouleurJoueur()) System.out.println("J'ai gagné !");
         else if (couleurGagnant == 0) System.out.println("Match nul !");
         else System.out.println("J'ai perdu !");
@@ -721,6 +1078,122 @@ public class MonJoueur implements IJoueur {
     public String binoName() {
         return "MonEquipe";
     }
+
+    /**
+     * Mode bench : java escampe.MonJoueur bench [Profondeur=8] [NoeudsParPosition=0]
+     * Mode parties : java -Descampe.debug=false escampe.MonJoueur parties [Parties=16] [Threads] [Coups=30] [TempsCoupMs=100]
+     */
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length > 0 && args[0].equals("parties")) {
+            parties(args.length > 1 ? Integer.parseInt(args[1]) : 16,
+                    args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors(),
+                    args.length > 3 ? Integer.parseInt(args[3]) : 30,
+                    args.length > 4 ? Long.parseLong(args[4]) : 100);
+            return;
+        }
+        if (args.length == 0 || !args[0].equals("bench")) {
+            System.err.println("MonJoueur Usage: bench [Profondeur=8] [NoeudsParPosition=0]");
+            System.err.println("                 parties [Parties=16] [Threads] [Coups=30] [TempsCoupMs=100]");
+            System.exit(1);
+        }
+        int profondeur = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        long noeudsMax = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        bench(profondeur, noeudsMax > 0 ? noeudsMax : Long.MAX_VALUE);
+    }
+
+    // Positions du bench : ne pas modifier, la signature en dépend
+    private static final String[] POSITIONS_BENCH = {
+        "nnNnnn/6/6/6/6/bbBbbb b 0",
+        "nnNnnn/6/6/6/6/bbBbbb n 0",
+        "n1N1n1/3n2/bn2bn/6/1b1b1b/2B3 b 2",
+        "bn4/6/6/4b1/n2B2/1N4 b 2",
+        "4N1/1n4/3bn1/2b3/4b1/1B4 b 1",
+        "4N1/1n4/3bn1/2b3/4b1/1B4 n 2",
+        "1n2n1/n1N2n/6/6/b2b1b/1bB1b1 n 0",
+        "6/nN1n2/2b1n1/1n2b1/b4B/2b1n1 n 3",
+    };
+
+    /**
+     * Cherche chaque position du bench à profondeur fixe (et au plus noeudsMax noeuds), sans
+     * limite de temps, table et cache vidés et générateur aléatoire fixé avant chaque position :
+     * le total des noeuds ne dépend que du code et sert de signature ; les noeuds par seconde
+     * mesurent la vitesse de la machine.
+     */
+    public static void bench(int profondeur, long noeudsMax) {
+        MonJoueur joueur = new MonJoueur();
+        TableTransposition table = new TableTransposition(LOG2_TABLE);
+        CacheEvaluation cache = new CacheEvaluation(LOG2_CACHE);
+        joueur.setTable(table);
+        joueur.setCacheEvaluation(cache);
+        joueur.setTablePersistante(null);
+        joueur.setTrace(false);
+        joueur.setLimites(Long.MAX_VALUE / 2, profondeur);
+        joueur.setLimiteNoeuds(noeudsMax);
+
+        long total = 0;
+        long debut = System.nanoTime();
+        for (int i = 0; i < POSITIONS_BENCH.length; i++) {
+            table.vider();
+            cache.vider();
+            Alea.fixer(i);
+            joueur.chargerPosition(NotationPosition.lire(POSITIONS_BENCH[i]));
+            ResultatRecherche r = joueur.analyser();
+            total += r.noeuds;
+            System.out.printf("Position %d/%d : %-6s score %6d profondeur %2d noeuds %10d%n", i + 1,
+                    POSITIONS_BENCH.length, r.meilleurCoup, r.score, r.profondeur, r.noeuds);
+        }
+        long dureeNs = Math.max(1, System.nanoTime() - debut);
+        System.out.println("===========================");
+        System.out.printf("Temps (ms)  : %d%n", dureeNs / 1_000_000);
+        System.out.printf("Noeuds      : %d%n", total);
+        System.out.printf("Noeuds/s    : %d%n", total * 1_000_000_000L / dureeNs);
+    }
+
+    /**
+     * Joue nbParties parties simultanées sur nbThreads threads, toutes sur la table globale,
+     * chacune depuis une position du bench et pour au plus nbCoups coups, puis donne la part
+     * des entrées trouvées qui venaient d'une autre partie
+     */
+    public static void parties(int nbParties, int nbThreads, int nbCoups, long tempsCoupMs) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(nbThreads);
+        METRIQUES.reinitialiser();
+        long debut = System.nanoTime();
+        for (int i = 0; i < nbParties; i++) {
+            PositionJeu depart = NotationPosition.lire(POSITIONS_BENCH[i % POSITIONS_BENCH.length]);
+            pool.execute(() -> jouerPartie(depart, nbCoups, tempsCoupMs));
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+
+        long trouvees = METRIQUES.getNbEntreesTrouvees();
+        long autres = METRIQUES.getNbEntreesAutresParties();
+        long octets = 16L * TableTransposition.globale().getNbEntrees();
+        System.out.printf("Parties     : %d sur %d threads, %d coups en %d ms%n", nbParties, nbThreads,
+                METRIQUES.getNbCoups() + METRIQUES.getNbCoupsSansRecherche(), (System.nanoTime() - debut) / 1_000_000);
+        System.out.printf("Table       : %d Mo partagés (%d Mo avec une table par joueur)%n", octets >> 20,
+                (2 * nbParties * octets) >> 20);
+        System.out.printf("Entrées     : %d trouvées, dont %d d'une autre partie (%.1f %%)%n", trouvees, autres,
+                trouvees > 0 ? 100.0 * autres / trouvees : 0);
+    }
+
+    private static void jouerPartie(PositionJeu depart, int nbCoups, long tempsCoupMs) {
+        MonJoueur[] joueurs = new MonJoueur[2];
+        for (int k = 0; k < 2; k++) {
+            PositionJeu p = new PositionJeu();
+            p.copier(depart);
+            if (k == 1) p.trait = -depart.trait;
+            joueurs[k] = new MonJoueur();
+            joueurs[k].setTrace(false);
+            joueurs[k].initJoueur(p.trait);
+            joueurs[k].chargerPosition(p);
+            joueurs[k].setLimites(tempsCoupMs, MAX_DEPTH);
+        }
+        for (int c = 0; c < nbCoups && !joueurs[c % 2].getEtatJeu().estPartieTerminee(); c++) {
+            String coup = joueurs[c % 2].choixMouvement();
+            joueurs[1 - c % 2].mouvementEnnemi(coup);
+        }
+        for (MonJoueur j : joueurs) j.terminerPartie();
+    }
     
     // Classes utilitaires pour le placement intelligent
     private static class Position {
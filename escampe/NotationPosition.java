@@ -0,0 +1,345 @@
+package escampe;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Notation d'une position sur une ligne, pour alimenter analyses, benchmarks et suites de
+ * positions depuis des fichiers :
+ *
+ *     n1N1n1/3n2/bn2bn/6/1b1b1b/2B3 b 2
+ *
+ * - plateau : les six lignes depuis la ligne 1 (celle de "01" dans plateau.txt), séparées
+ *   par '/', chacune de A à F ; 'n'/'N' paladin/licorne noirs, 'b'/'B' paladin/licorne
+ *   blancs, '-' case vide ou un chiffre pour plusieurs cases vides consécutives.
+ *   Les '/' sont facultatifs : les 36 cases d'affilée (format de TunerTexel) sont acceptées.
+ * - trait : 'n' ou 'b', la couleur qui doit jouer
+ * - lisere : le liseré contraint, 0 (ou absent) si le joueur est libre
+ *
+ * La lecture se fait directement dans la séquence source, sans sous-chaîne ni découpage,
+ * vers une PositionJeu réutilisable ; les champs qui suivent la notation sur la ligne sont
+ * laissés à l'appelant (lire() renvoie l'indice où elle s'arrête).
+ *
+ * Exemple: >java -cp . escampe.NotationPosition plateau.txt b 2
+ */
+public final class NotationPosition {
+
+    private NotationPosition() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("NotationPosition Usage: FichierPlateau [Trait=n] [Lisere=0] | \"notation\"");
+            System.exit(1);
+        }
+        Path fichier = Paths.get(args[0]);
+        if (Files.isRegularFile(fichier)) {
+            int trait = args.length > 1 ? lireTrait(args[1], 0, args[1].length()) : IJoueur.NOIR;
+            int lisere = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+            System.out.println(ecrire(chargerPlateau(fichier, trait, lisere)));
+        } else {
+            System.out.print(versPlateauTexte(lire(String.join(" ", args))));
+        }
+    }
+
+    /**
+     * Lit une notation complète
+     *
+     * @throws IllegalArgumentException si la notation est invalide ou suivie d'autre chose
+     */
+    public static PositionJeu lire(CharSequence s) {
+        PositionJeu p = new PositionJeu();
+        int fin = lire(s, 0, s.length(), p);
+        if (sauterBlancs(s, fin, s.length()) != s.length()) {
+            throw erreur("texte inattendu après la position", s, 0, s.length());
+        }
+        return p;
+    }
+
+    /**
+     * Lit la notation qui commence dans s[deb, fin[ (blancs initiaux ignorés) vers dest
+     *
+     * @return l'indice qui suit la notation
+     * @throws IllegalArgumentException si la notation est invalide
+     */
+    public static int lire(CharSequence s, int deb, int fin, PositionJeu dest) {
+        dest.vider();
+        int i = sauterBlancs(s, deb, fin);
+        int k = 0;
+        int licornesNoires = 0, licornesBlanches = 0, noirs = 0, blancs = 0;
+        boolean separateur = false;
+
+        while (k < 36) {
+            if (i >= fin) throw erreur("plateau incomplet", s, deb, fin);
+            char c = s.charAt(i++);
+            int r = k / 6, col = k % 6;
+            if (c == '/') {
+                if (k == 0 || col != 0 || separateur) throw erreur("'/' mal placé", s, deb, fin);
+                separateur = true;
+                continue;
+            }
+            separateur = false;
+            if (c >= '1' && c <= '6') {
+                int n = c - '0';
+                if (col + n > 6) throw erreur("ligne " + (r + 1) + " trop longue", s, deb, fin);
+                k += n;
+                continue;
+            }
+            switch (c) {
+                case '-':
+                    break;
+                case 'n':
+                    dest.plateau[r][col] = IJoueur.NOIR;
+                    dest.typePiece[r][col] = EtatJeu.PALADIN;
+                    noirs++;
+                    break;
+                case 'N':
+                    dest.plateau[r][col] = IJoueur.NOIR;
+                    dest.typePiece[r][col] = EtatJeu.LICORNE;
+                    noirs++;
+                    licornesNoires++;
+                    break;
+                case 'b':
+                    dest.plateau[r][col] = IJoueur.BLANC;
+                    dest.typePiece[r][col] = EtatJeu.PALADIN;
+                    blancs++;
+                    break;
+                case 'B':
+                    dest.plateau[r][col] = IJoueur.BLANC;
+                    dest.typePiece[r][col] = EtatJeu.LICORNE;
+                    blancs++;
+                    licornesBlanches++;
+                    break;
+                default:
+                    throw erreur("case invalide '" + c + "'", s, deb, fin);
+            }
+            k++;
+        }
+        if (i < fin && !estBlanc(s.charAt(i))) throw erreur("plateau trop long", s, deb, fin);
+        if (licornesNoires > 1 || licornesBlanches > 1 || noirs > 6 || blancs > 6) {
+            throw erreur("trop de pièces", s, deb, fin);
+        }
+
+        // Trait
+        i = sauterBlancs(s, i, fin);
+        int finMot = finMot(s, i, fin);
+        dest.trait = lireTrait(s, i, finMot);
+        if (dest.trait == 0) throw erreur("trait attendu ('n' ou 'b')", s, deb, fin);
+        i = finMot;
+
+        // Liseré facultatif
+        int j = sauterBlancs(s, i, fin);
+        if (j < fin && finMot(s, j, fin) == j + 1 && s.charAt(j) >= '0' && s.charAt(j) <= '9') {
+            int lisere = s.charAt(j) - '0';
+            if (lisere > 3) throw erreur("liseré " + lisere + " invalide", s, deb, fin);
+            dest.lisere = lisere;
+            i = j + 1;
+        }
+        return i;
+    }
+
+    /**
+     * "n"/"noir" ou "b"/"blanc" (casse indifférente) en NOIR/BLANC, 0 sinon
+     */
+    static int lireTrait(CharSequence s, int deb, int fin) {
+        if (fin <= deb) return 0;
+        char c = Character.toLowerCase(s.charAt(deb));
+        String mot = c == 'n' ? "noir" : c == 'b' ? "blanc" : null;
+        if (mot == null) return 0;
+        if (fin - deb != 1) {
+            if (fin - deb != mot.length()) return 0;
+            for (int i = 1; i < mot.length(); i++) {
+                if (Character.toLowerCase(s.charAt(deb + i)) != mot.charAt(i)) return 0;
+            }
+        }
+        return c == 'n' ? IJoueur.NOIR : IJoueur.BLANC;
+    }
+
+    public static String ecrire(PositionJeu p) {
+        return ecrire(p, new StringBuilder(40)).toString();
+    }
+
+    /**
+     * Ajoute la notation de p à sb, les cases vides regroupées en chiffres
+     */
+    public static StringBuilder ecrire(PositionJeu p, StringBuilder sb) {
+        for (int r = 0; r < 6; r++) {
+            if (r > 0) sb.append('/');
+            int vides = 0;
+            for (int c = 0; c < 6; c++) {
+                char symbole = symbole(p.plateau[r][c], p.typePiece[r][c]);
+                if (symbole == '-') {
+                    vides++;
+                    continue;
+                }
+                if (vides > 0) sb.append((char) ('0' + vides));
+                vides = 0;
+                sb.append(symbole);
+            }
+            if (vides > 0) sb.append((char) ('0' + vides));
+        }
+        sb.append(' ').append(p.trait == IJoueur.BLANC ? 'b' : 'n');
+        sb.append(' ').append(p.lisere);
+        return sb;
+    }
+
+    /**
+     * Plateau au format de plateau.txt, couleurs absolues
+     */
+    public static String versPlateauTexte(PositionJeu p) {
+        StringBuilder sb = new StringBuilder("% ABCDEF\n");
+        for (int r = 0; r < 6; r++) {
+            sb.append('0').append(r + 1).append(' ');
+            for (int c = 0; c < 6; c++) {
+                sb.append(symbole(p.plateau[r][c], p.typePiece[r][c]));
+            }
+            sb.append(" 0").append(r + 1).append('\n');
+        }
+        return sb.append("% ABCDEF\n").toString();
+    }
+
+    /**
+     * Lit un plateau au format de plateau.txt : lignes "01 n-N-n- 01" (numéros facultatifs),
+     * lignes "%" et vides ignorées. Le format ne porte ni trait ni liseré, ils sont fournis.
+     */
+    public static PositionJeu lirePlateauTexte(List<? extends CharSequence> lignes, int trait, int lisere) {
+        PositionJeu p = new PositionJeu();
+        p.trait = trait;
+        p.lisere = lisere;
+        boolean[] lue = new boolean[6];
+        int suivante = 0;
+        for (CharSequence ligne : lignes) {
+            int deb = sauterBlancs(ligne, 0, ligne.length());
+            if (deb == ligne.length() || ligne.charAt(deb) == '%' || ligne.charAt(deb) == '#') continue;
+
+            // Numéro de ligne facultatif
+            int r = suivante;
+            int finNum = deb;
+            while (finNum < ligne.length() && Character.isDigit(ligne.charAt(finNum))) finNum++;
+            if (finNum > deb) {
+                r = Integer.parseInt(ligne.subSequence(deb, finNum).toString()) - 1;
+                deb = sauterBlancs(ligne, finNum, ligne.length());
+            }
+            if (r < 0 || r >= 6 || lue[r]) throw erreur("ligne de plateau en trop", ligne, 0, ligne.length());
+            if (finMot(ligne, deb, ligne.length()) - deb != 6) {
+                throw erreur("six cases attendues", ligne, 0, ligne.length());
+            }
+            for (int c = 0; c < 6; c++) {
+                switch (ligne.charAt(deb + c)) {
+                    case '-': break;
+                    case 'n': p.plateau[r][c] = IJoueur.NOIR; p.typePiece[r][c] = EtatJeu.PALADIN; break;
+                    case 'N': p.plateau[r][c] = IJoueur.NOIR; p.typePiece[r][c] = EtatJeu.LICORNE; break;
+                    case 'b': p.plateau[r][c] = IJoueur.BLANC; p.typePiece[r][c] = EtatJeu.PALADIN; break;
+                    case 'B': p.plateau[r][c] = IJoueur.BLANC; p.typePiece[r][c] = EtatJeu.LICORNE; break;
+                    default: throw erreur("case invalide '" + ligne.charAt(deb + c) + "'", ligne, 0, ligne.length());
+                }
+            }
+            lue[r] = true;
+            suivante = r + 1;
+        }
+        for (int r = 0; r < 6; r++) {
+            if (!lue[r]) throw new IllegalArgumentException("Plateau incomplet : ligne " + (r + 1) + " manquante");
+        }
+        return p;
+    }
+
+    public static PositionJeu chargerPlateau(Path fichier, int trait, int lisere) throws IOException {
+        return lirePlateauTexte(Files.readAllLines(fichier, StandardCharsets.UTF_8), trait, lisere);
+    }
+
+    /**
+     * Lit un fichier de positions, une notation par ligne ('#' pour les commentaires) ;
+     * le reste de chaque ligne après la notation est ignoré
+     */
+    public static List<PositionJeu> lireFichier(Path fichier) throws IOException {
+        List<PositionJeu> positions = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(fichier, StandardCharsets.UTF_8)) {
+            String ligne;
+            int numero = 0;
+            while ((ligne = in.readLine()) != null) {
+                numero++;
+                int deb = sauterBlancs(ligne, 0, ligne.length());
+                if (deb == ligne.length() || ligne.charAt(deb) == '#') continue;
+                PositionJeu p = new PositionJeu();
+                try {
+                    lire(ligne, deb, ligne.length(), p);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(fichier + ":" + numero + ": " + e.getMessage());
+                }
+                positions.add(p);
+            }
+        }
+        return positions;
+    }
+
+    static char symbole(int couleur, int type) {
+        if (couleur == IJoueur.NOIR) return type == EtatJeu.LICORNE ? 'N' : 'n';
+        if (couleur == IJoueur.BLANC) return type == EtatJeu.LICORNE ? 'B' : 'b';
+        return '-';
+    }
+
+    static int sauterBlancs(CharSequence s, int i, int fin) {
+        while (i < fin && estBlanc(s.charAt(i))) i++;
+        return i;
+    }
+
+    static int finMot(CharSequence s, int i, int fin) {
+        while (i < fin && !estBlanc(s.charAt(i))) i++;
+        return i;
+    }
+
+    private static boolean estBlanc(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == '\0';
+    }
+
+    private static IllegalArgumentException erreur(String message, CharSequence s, int deb, int fin) {
+        int f = Math.min(fin, deb + 80);
+        return new IllegalArgumentException("Position invalide (" + message + ") : " + s.subSequence(deb, f));
+    }
+
+    /**
+     * Vue texte sur une tranche d'octets ASCII (par exemple un fichier projeté en mémoire),
+     * réutilisable pour lire une position par ligne sans copie
+     */
+    public static final class Tranche implements CharSequence {
+        private ByteBuffer octets;
+        private int debut;
+        private int longueur;
+
+        public Tranche cibler(ByteBuffer octets, int debut, int fin) {
+            this.octets = octets;
+            this.debut = debut;
+            this.longueur = fin - debut;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return longueur;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (octets.get(debut + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int deb, int fin) {
+            return new Tranche().cibler(octets, debut + deb, debut + fin);
+        }
+
+        @Override
+        public String toString() {
+            char[] c = new char[longueur];
+            for (int i = 0; i < longueur; i++) c[i] = charAt(i);
+            return new String(c);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package escampe;
+
+/**
+ * Plateau compact pour les recherches par échantillonnage, et noyau de parties aléatoires.
+ *
+ * La position tient en trois masques de 36 bits (case r * 6 + c) : pièces noires, pièces
+ * blanches, licornes. Les coups sont des entiers (voir Coup) écrits dans un tableau fourni
+ * par l'appelant : ni la génération, ni le jeu d'un coup, ni une partie aléatoire complète
+ * n'allouent.
+ *
+ * Les règles sont celles de EtatJeu.genererCoups : déplacement en ligne droite d'au plus la
+ * valeur du liseré de départ, chemin libre, prise de la licorne adverse par un paladin à la
+ * portée exacte, obligation de jouer depuis le liseré contraint quand c'est possible ; un
+ * joueur sans coup passe et lève la contrainte.
+ */
+public final class PlateauRapide {
+    // Nombre maximal de coups d'une position : 6 pièces, 4 directions, 3 cases
+    public static final int MAX_COUPS = 72;
+
+    // RAYONS[case * 4 + direction] : cases traversées, dans l'ordre, jusqu'à la portée de la case
+    static final int[][] RAYONS = new int[36 * 4][];
+    static final int[] LISERE = new int[36];
+    // MASQUES_LISERE[l] : cases de liseré l
+    static final long[] MASQUES_LISERE = new long[4];
+
+    static {
+        int[][] directions = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+        for (int s = 0; s < 36; s++) {
+            int r = s / 6, c = s % 6;
+            LISERE[s] = EtatJeu.LISERE[r][c];
+            MASQUES_LISERE[LISERE[s]] |= 1L << s;
+            for (int d = 0; d < 4; d++) {
+                int n = 0;
+                int[] rayon = new int[LISERE[s]];
+                for (int pas = 1; pas <= LISERE[s]; pas++) {
+                    int nr = r + directions[d][0] * pas, nc = c + directions[d][1] * pas;
+                    if (nr < 0 || nr >= 6 || nc < 0 || nc >= 6) break;
+                    rayon[n++] = nr * 6 + nc;
+                }
+                RAYONS[s * 4 + d] = java.util.Arrays.copyOf(rayon, n);
+            }
+        }
+    }
+
+    long noirs;
+    long blancs;
+    long licornes;
+    int trait = IJoueur.NOIR;
+    int lisere;
+    int vainqueur;
+    int demiCoups;
+
+    /**
+     * Position de etat, couleurs absolues, avec trait au trait
+     */
+    public void charger(EtatJeu etat, int trait) {
+        charger(etat.getPlateau(), etat.getTypePiece(), trait, etat.getLastLisere());
+    }
+
+    public void charger(PositionJeu p) {
+        charger(p.plateau, p.typePiece, p.trait, p.lisere);
+    }
+
+    private void charger(int[][] plateau, int[][] types, int trait, int lisere) {
+        noirs = blancs = licornes = 0;
+        for (int s = 0; s < 36; s++) {
+            int couleur = plateau[s / 6][s % 6];
+            if (couleur == IJoueur.NOIR) noirs |= 1L << s;
+            else if (couleur == IJoueur.BLANC) blancs |= 1L << s;
+            if (couleur != EtatJeu.VIDE && types[s / 6][s % 6] == EtatJeu.LICORNE) licornes |= 1L << s;
+        }
+        this.trait = trait;
+        this.lisere = lisere;
+        this.vainqueur = (noirs & licornes) == 0 ? IJoueur.BLANC : (blancs & licornes) == 0 ? IJoueur.NOIR : 0;
+        this.demiCoups = 0;
+    }
+
+    public void copier(PlateauRapide src) {
+        noirs = src.noirs;
+        blancs = src.blancs;
+        licornes = src.licornes;
+        trait = src.trait;
+        lisere = src.lisere;
+        vainqueur = src.vainqueur;
+        demiCoups = src.demiCoups;
+    }
+
+    /**
+     * Même position (plateau, trait, liseré)
+     */
+    public boolean memePosition(PlateauRapide p) {
+        return noirs == p.noirs && blancs == p.blancs && licornes == p.licornes
+            && trait == p.trait && lisere == p.lisere;
+    }
+
+    /**
+     * Écrit les coups légaux du joueur au trait dans coups (MAX_COUPS cases au moins)
+     *
+     * @return le nombre de coups, 0 si le joueur doit passer
+     */
+    public int genererCoups(int[] coups) {
+        long propres = trait == IJoueur.NOIR ? noirs : blancs;
+        long occupees = noirs | blancs;
+        long licorneAdverse = (trait == IJoueur.NOIR ? blancs : noirs) & licornes;
+
+        long pieces = propres;
+        if (lisere > 0) {
+            long contraintes = propres & MASQUES_LISERE[lisere];
+            if (contraintes != 0) pieces = contraintes;
+        }
+
+        int n = 0;
+        while (pieces != 0) {
+            int s = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            // Seule la licorne adverse se prend, par un paladin, à la portée exacte
+            boolean paladin = (licornes & (1L << s)) == 0;
+            int derniere = LISERE[s] - 1;
+            for (int d = s * 4; d < s * 4 + 4; d++) {
+                int[] rayon = RAYONS[d];
+                for (int pas = 0; pas < rayon.length; pas++) {
+                    long b = 1L << rayon[pas];
+                    if ((occupees & b) == 0) {
+                        coups[n++] = (s << 6) | rayon[pas];
+                        continue;
+                    }
+                    if (paladin && pas == derniere && (licorneAdverse & b) != 0) {
+                        coups[n++] = (s << 6) | rayon[pas];
+                    }
+                    break;
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Joue un coup légal (ou PASSE) du joueur au trait
+     */
+    public void jouer(int coup) {
+        if (coup == Coup.PASSE) {
+            lisere = 0;
+        } else {
+            int arr = Coup.arrivee(coup);
+            long bitDep = 1L << Coup.depart(coup), bitArr = 1L << arr;
+            if ((licornes & bitArr) != 0) {
+                vainqueur = trait;
+                licornes &= ~bitArr;
+            }
+            if (trait == IJoueur.NOIR) {
+                noirs ^= bitDep | bitArr;
+                blancs &= ~bitArr;
+            } else {
+                blancs ^= bitDep | bitArr;
+                noirs &= ~bitArr;
+            }
+            if ((licornes & bitDep) != 0) licornes ^= bitDep | bitArr;
+            lisere = LISERE[arr];
+        }
+        trait = -trait;
+        demiCoups++;
+    }
+
+    /**
+     * Termine la partie par des coups tirés uniformément parmi les coups légaux
+     *
+     * @param coups tampon de MAX_COUPS entiers
+     * @param maxDemiCoups au-delà (compté depuis le chargement), la partie est nulle
+     * @return le vainqueur, 0 pour une partie nulle
+     */
+    public int jouerPartieAleatoire(Alea alea, int[] coups, int maxDemiCoups) {
+        while (vainqueur == 0 && demiCoups < maxDemiCoups) {
+            int nb = genererCoups(coups);
+            jouer(nb == 0 ? Coup.PASSE : coups[alea.entier(nb)]);
+        }
+        return vainqueur;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int r = 0; r < 6; r++) {
+            if (r > 0) sb.append('/');
+            for (int c = 0; c < 6; c++) {
+                long b = 1L << (r * 6 + c);
+                int couleur = (noirs & b) != 0 ? IJoueur.NOIR : (blancs & b) != 0 ? IJoueur.BLANC : EtatJeu.VIDE;
+                sb.append(NotationPosition.symbole(couleur, (licornes & b) != 0 ? EtatJeu.LICORNE : EtatJeu.PALADIN));
+            }
+        }
+        return sb.append(' ').append(trait == IJoueur.BLANC ? 'b' : 'n').append(' ').append(lisere).toString();
+    }
+}
@@ -0,0 +1,177 @@
+package escampe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Poids de la fonction d'évaluation de MonJoueur.
+ * Les valeurs par défaut sont celles réglées à la main ; un fichier de poids produit par
+ * TunerTexel peut les remplacer au démarrage.
+ */
+public class PoidsHeuristique {
+    // Fichier lu au démarrage, surchargeable par -Descampe.poids=chemin
+    public static final String FICHIER_DEFAUT = "poids.properties";
+    public static final String PROPRIETE_FICHIER = "escampe.poids";
+
+    // Indices des paramètres dans la représentation vectorielle (utilisée par le tuner)
+    public static final int IDX_LISERE = 0;
+    public static final int IDX_MOBILITE = 1;
+    public static final int IDX_POSITION = 2;
+    public static final int IDX_CONTROLE = 3;
+    public static final int IDX_BONUS_LICORNE = 4;
+    public static final int IDX_BONUS_MENACE = 5;
+    public static final int IDX_VALEUR_POSITION = 6;
+    public static final int NB_PARAMETRES = IDX_VALEUR_POSITION + 36;
+
+    private static final String[] NOMS = {
+        "POIDS_LISERE_PIECES", "POIDS_MOBILITE", "POIDS_POSITION_STRATEGIQUE",
+        "POIDS_CONTROLE_TERRITOIRE", "BONUS_LICORNE", "BONUS_MENACE_LICORNE"
+    };
+
+    // Poids des heuristiques pour l'évaluation du plateau
+    public final int lisere;
+    public final int mobilite;
+    public final int position;
+    public final int controle;
+    public final int bonusLicorne; // Valeur élevée pour protéger la licorne
+    public final int bonusMenace;  // Paladin à portée exacte de la licorne adverse
+    public final int[][] valeurPosition;
+
+    /**
+     * Construit les poids à partir de leur représentation vectorielle
+     */
+    public PoidsHeuristique(int[] v) {
+        if (v.length != NB_PARAMETRES) {
+            throw new IllegalArgumentException("Nombre de paramètres invalide: " + v.length);
+        }
+        lisere = v[IDX_LISERE];
+        mobilite = v[IDX_MOBILITE];
+        position = v[IDX_POSITION];
+        controle = v[IDX_CONTROLE];
+        bonusLicorne = v[IDX_BONUS_LICORNE];
+        bonusMenace = v[IDX_BONUS_MENACE];
+        valeurPosition = new int[6][6];
+        for (int r = 0; r < 6; r++) {
+            for (int c = 0; c < 6; c++) {
+                valeurPosition[r][c] = v[IDX_VALEUR_POSITION + r * 6 + c];
+            }
+        }
+    }
+
+    /**
+     * Les poids réglés à la main
+     */
+    public static PoidsHeuristique defaut() {
+        int[] v = new int[NB_PARAMETRES];
+        v[IDX_LISERE] = 4;
+        v[IDX_MOBILITE] = 3;
+        v[IDX_POSITION] = 3;
+        v[IDX_CONTROLE] = 5;
+        v[IDX_BONUS_LICORNE] = 50;
+        v[IDX_BONUS_MENACE] = 500;
+        for (int r = 0; r < 6; r++) {
+            for (int c = 0; c < 6; c++) {
+                v[IDX_VALEUR_POSITION + r * 6 + c] = EtatJeu.VALEUR_POSITION[r][c];
+            }
+        }
+        return new PoidsHeuristique(v);
+    }
+
+    /**
+     * Charge les poids au démarrage : fichier désigné par la propriété escampe.poids,
+     * sinon poids.properties s'il existe, sinon les valeurs par défaut
+     */
+    public static PoidsHeuristique charger() {
+        String chemin = System.getProperty(PROPRIETE_FICHIER, FICHIER_DEFAUT);
+        Path fichier = Paths.get(chemin);
+        if (!Files.isReadable(fichier)) {
+            return defaut();
+        }
+        try {
+            PoidsHeuristique poids = lire(fichier);
+            System.out.println("Poids de l'heuristique chargés depuis " + fichier);
+            return poids;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Fichier de poids " + fichier + " illisible, poids par défaut utilisés: " + e.getMessage());
+            return defaut();
+        }
+    }
+
+    /**
+     * Lit un fichier de poids ; les clés absentes gardent leur valeur par défaut
+     */
+    public static PoidsHeuristique lire(Path fichier) throws IOException {
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(fichier)) {
+            props.load(in);
+        }
+
+        int[] v = defaut().versVecteur();
+        for (int i = 0; i < NOMS.length; i++) {
+            String valeur = props.getProperty(NOMS[i]);
+            if (valeur != null) v[i] = Integer.parseInt(valeur.trim());
+        }
+
+        String table = props.getProperty("VALEUR_POSITION");
+        if (table != null) {
+            String[] valeurs = table.split(",");
+            if (valeurs.length != 36) {
+                throw new IllegalArgumentException("VALEUR_POSITION doit contenir 36 valeurs");
+            }
+            for (int i = 0; i < 36; i++) {
+                v[IDX_VALEUR_POSITION + i] = Integer.parseInt(valeurs[i].trim());
+            }
+        }
+        return new PoidsHeuristique(v);
+    }
+
+    /**
+     * Écrit les poids dans un fichier relisible par lire()
+     */
+    public void ecrire(Path fichier, String commentaire) throws IOException {
+        int[] v = versVecteur();
+        Properties props = new Properties();
+        for (int i = 0; i < NOMS.length; i++) {
+            props.setProperty(NOMS[i], Integer.toString(v[i]));
+        }
+        StringBuilder table = new StringBuilder();
+        for (int i = 0; i < 36; i++) {
+            if (i > 0) table.append(i % 6 == 0 ? ", " : ",");
+            table.append(v[IDX_VALEUR_POSITION + i]);
+        }
+        props.setProperty("VALEUR_POSITION", table.toString());
+        try (OutputStream out = Files.newOutputStream(fichier)) {
+            props.store(out, commentaire);
+        }
+    }
+
+    /**
+     * Représentation vectorielle des poids (ordre des indices IDX_*)
+     */
+    public int[] versVecteur() {
+        int[] v = new int[NB_PARAMETRES];
+        v[IDX_LISERE] = lisere;
+        v[IDX_MOBILITE] = mobilite;
+        v[IDX_POSITION] = position;
+        v[IDX_CONTROLE] = controle;
+        v[IDX_BONUS_LICORNE] = bonusLicorne;
+        v[IDX_BONUS_MENACE] = bonusMenace;
+        for (int r = 0; r < 6; r++) {
+            for (int c = 0; c < 6; c++) {
+                v[IDX_VALEUR_POSITION + r * 6 + c] = valeurPosition[r][c];
+            }
+        }
+        return v;
+    }
+
+    public static String nomParametre(int i) {
+        if (i < IDX_VALEUR_POSITION) return NOMS[i];
+        int sq = i - IDX_VALEUR_POSITION;
+        return "VALEUR_POSITION[" + EtatJeu.toPos(sq / 6, sq % 6) + "]";
+    }
+}
@@ -0,0 +1,78 @@
+package escampe;
+
+import java.util.Arrays;
+
+/**
+ * Position complète d'Escampe : plateau, types des pièces, joueur au trait et liseré
+ * contraint. Les couleurs sont absolues (NOIR / BLANC), contrairement à l'affichage de
+ * EtatJeu qui est relatif au joueur.
+ *
+ * Les tableaux sont alloués une fois : une même instance peut être relue en boucle par
+ * NotationPosition sans créer d'objet.
+ */
+public final class PositionJeu {
+    public final int[][] plateau = new int[6][6];
+    public final int[][] typePiece = new int[6][6];
+    public int trait = IJoueur.NOIR;
+    public int lisere;
+
+    public PositionJeu() {
+    }
+
+    /**
+     * Position de etat, avec etat.getCouleurJoueur() au trait
+     */
+    public PositionJeu(EtatJeu etat) {
+        for (int r = 0; r < 6; r++) {
+            System.arraycopy(etat.getPlateau()[r], 0, plateau[r], 0, 6);
+            System.arraycopy(etat.getTypePiece()[r], 0, typePiece[r], 0, 6);
+        }
+        trait = etat.getCouleurJoueur();
+        lisere = etat.getLastLisere();
+    }
+
+    public void vider() {
+        for (int r = 0; r < 6; r++) {
+            Arrays.fill(plateau[r], EtatJeu.VIDE);
+            Arrays.fill(typePiece[r], 0);
+        }
+        trait = IJoueur.NOIR;
+        lisere = 0;
+    }
+
+    public void copier(PositionJeu src) {
+        for (int r = 0; r < 6; r++) {
+            System.arraycopy(src.plateau[r], 0, plateau[r], 0, 6);
+            System.arraycopy(src.typePiece[r], 0, typePiece[r], 0, 6);
+        }
+        trait = src.trait;
+        lisere = src.lisere;
+    }
+
+    /**
+     * État de jeu du point de vue du joueur au trait, prêt pour une recherche
+     */
+    public EtatJeu versEtatJeu() {
+        EtatJeu etat = new EtatJeu(trait);
+        etat.chargerPosition(this);
+        return etat;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof PositionJeu)) return false;
+        PositionJeu p = (PositionJeu) o;
+        return trait == p.trait && lisere == p.lisere
+            && Arrays.deepEquals(plateau, p.plateau) && Arrays.deepEquals(typePiece, p.typePiece);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Arrays.deepHashCode(plateau) + Arrays.deepHashCode(typePiece)) + 2 * trait + lisere;
+    }
+
+    @Override
+    public String toString() {
+        return NotationPosition.ecrire(this);
+    }
+}
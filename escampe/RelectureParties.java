@@ -0,0 +1,94 @@
+package escampe;
+
+import java.awt.BorderLayout;
+import java.awt.Container;
+import java.awt.Dimension;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+
+import javax.swing.AbstractListModel;
+import javax.swing.JFrame;
+import javax.swing.JList;
+import javax.swing.JScrollPane;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
+import javax.swing.WindowConstants;
+
+/**
+ * Relecture des parties d'une archive (voir ArchiveParties) : la liste des parties à gauche,
+ * le plateau et les coups de la partie choisie dans Applet.
+ *
+ * Seules les parties affichées dans la liste sont lues (leur en-tête), et seule la partie
+ * sélectionnée est décodée ; on peut donc ouvrir des archives de millions de parties. Dans la
+ * liste des coups : gauche / droite pour le coup précédent / suivant, Ctrl pour avancer par
+ * dix, début / fin pour aller aux extrémités.
+ *
+ * Exemple: >java -cp . escampe.RelectureParties parties.txt
+ */
+public class RelectureParties {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("RelectureParties Usage: FichierParties");
+            System.exit(1);
+        }
+        ArchiveParties archive = new ArchiveParties(Paths.get(args[0]));
+        System.out.println(archive.getNbParties() + " parties dans " + args[0]);
+        SwingUtilities.invokeLater(() -> ouvrir(archive, args[0]));
+    }
+
+    private static void ouvrir(ArchiveParties archive, String titre) {
+        JFrame frame = new JFrame("Escampe - " + titre);
+        frame.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
+        Container contenu = frame.getContentPane();
+
+        Applet applet = new Applet();
+        applet.buildUI(contenu);
+        applet.setMyFrame(frame);
+
+        JList<String> parties = new JList<>(new ModeleParties(archive));
+        parties.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        // Cellules de taille fixe : seuls les en-têtes visibles sont lus
+        parties.setPrototypeCellValue("000000. Joueur blanc - Joueur noir : Blanc");
+        parties.addListSelectionListener(e -> {
+            int index = parties.getSelectedIndex();
+            if (e.getValueIsAdjusting() || index < 0) return;
+            try {
+                ArchiveParties.Partie p = archive.lire(index);
+                applet.chargerPartie(p.titre() + " (" + p.raison + ")", p.coups);
+            } catch (IOException ex) {
+                System.err.println("Lecture de la partie " + (index + 1) + " impossible : " + ex);
+            }
+        });
+        JScrollPane defilement = new JScrollPane(parties);
+        contenu.add(defilement, BorderLayout.WEST);
+
+        Dimension d = applet.getDimension();
+        frame.setSize(d.width + defilement.getPreferredSize().width, d.height);
+        frame.setVisible(true);
+        if (archive.getNbParties() > 0) parties.setSelectedIndex(0);
+    }
+
+    // Modèle de la liste des parties : les en-têtes sont lus dans l'archive à l'affichage
+    private static final class ModeleParties extends AbstractListModel<String> {
+        private static final long serialVersionUID = 1L;
+        private final transient ArchiveParties archive;
+
+        ModeleParties(ArchiveParties archive) {
+            this.archive = archive;
+        }
+
+        public int getSize() {
+            return archive.getNbParties();
+        }
+
+        public String getElementAt(int index) {
+            try {
+                return archive.entete(index);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package escampe;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Résultat structuré d'une recherche de MonJoueur : le coup choisi et ce qui permet de juger
+ * la recherche (profondeur, score, variante principale, compteurs, détail par itération)
+ */
+public class ResultatRecherche {
+    public final String meilleurCoup;
+    public final int score;
+    public final List<String> variantePrincipale;
+    // Dernière profondeur complètement explorée (0 si aucune)
+    public final int profondeur;
+    public final int profondeurSelective;
+    public final long noeuds;
+    public final long tempsMs;
+    public final long succesTable;
+    public final long coupures;
+    // Feuilles évaluées et feuilles trouvées dans le cache des évaluations
+    public final long sondagesCache;
+    public final long succesCache;
+    public final List<StatistiquesIteration> iterations;
+
+    public ResultatRecherche(String meilleurCoup, int score, List<String> variantePrincipale, int profondeur,
+                             int profondeurSelective, long noeuds, long tempsMs, long succesTable, long coupures,
+                             long sondagesCache, long succesCache, List<StatistiquesIteration> iterations) {
+        this.meilleurCoup = meilleurCoup;
+        this.score = score;
+        this.variantePrincipale = Collections.unmodifiableList(variantePrincipale);
+        this.profondeur = profondeur;
+        this.profondeurSelective = profondeurSelective;
+        this.noeuds = noeuds;
+        this.tempsMs = tempsMs;
+        this.succesTable = succesTable;
+        this.coupures = coupures;
+        this.sondagesCache = sondagesCache;
+        this.succesCache = succesCache;
+        this.iterations = Collections.unmodifiableList(iterations);
+    }
+
+    /**
+     * Facteur de branchement effectif de la dernière itération (0 si moins de deux itérations)
+     */
+    public double facteurBranchement() {
+        return iterations.isEmpty() ? 0 : iterations.get(iterations.size() - 1).facteurBranchement;
+    }
+
+    /**
+     * Part des évaluations de feuilles servies par le cache (0 si aucune feuille)
+     */
+    public double tauxSuccesCache() {
+        return sondagesCache > 0 ? (double) succesCache / sondagesCache : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "coup " + meilleurCoup + " score " + score + " profondeur " + profondeur + "/" + profondeurSelective
+                + " noeuds " + noeuds + " temps " + tempsMs + " ms cache " + Math.round(tauxSuccesCache() * 100)
+                + "% pv " + String.join(" ", variantePrincipale);
+    }
+}
@@ -0,0 +1,429 @@
+package escampe;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+
+/**
+ * Arbitre ouvert, remplaçant local de ServeurJeu (escampeobf.jar), qui parle le même
+ * protocole texte que celui attendu par ClientJeu :
+ * - à la connexion le client envoie son nom, le serveur répond "Blanc" ou "Noir"
+ * - à chaque tour le serveur envoie "JOUEUR Couleur" aux deux joueurs, celui qui a le trait
+ *   répond par son coup, transmis à l'autre par "MOUVEMENT coup"
+ * - en fin de partie les deux joueurs reçoivent "FIN! Couleur" (ou "FIN! Aucun" si nulle)
+ *
+ * Les connexions sont appariées dans leur ordre d'arrivée (le premier est Blanc). Toutes les
+ * parties tournent sur un seul thread avec un Selector NIO, ce qui permet d'en héberger des
+ * milliers. La légalité des coups est vérifiée par EtatJeu, chaque coup est chronométré et le
+ * résultat de chaque partie est ajouté au journal des résultats. Si un fichier de parties est
+ * donné, chaque partie y est aussi écrite avec ses coups, une par ligne (voir ArchiveParties).
+ *
+ * Exemple: >java -cp . escampe.ServeurArbitre 1234 6000 resultats.txt parties.txt
+ */
+public class ServeurArbitre {
+
+    static final int BLANC = -1;
+    static final int NOIR = 1;
+    static final int VIDE = 0;
+
+    // Limite en demi-coups au-delà de laquelle la partie est déclarée nulle
+    private static final int MAX_DEMI_COUPS = 400;
+    private static final int TAILLE_LIGNE = 256;
+
+    private final Selector selector;
+    private final ServerSocketChannel serveur;
+    private final long tempsParCoup;
+    private final BufferedWriter journal;
+    // Parties complètes avec leurs coups, null si non demandé
+    private final BufferedWriter archive;
+
+    // Joueur connecté qui attend un adversaire
+    private Connexion enAttente;
+    // Échéances des pendules, la plus proche en tête : une entrée par trait donné, celles
+    // d'une partie finie ou dont le trait a changé depuis sont périmées et jetées en tête
+    private final PriorityQueue<Echeance> echeances = new PriorityQueue<>();
+    private final ByteBuffer lecture = ByteBuffer.allocateDirect(4096);
+    private long nbPartiesFinies;
+
+    public ServeurArbitre(int port, long tempsParCoup, String fichierResultats) throws IOException {
+        this(port, tempsParCoup, fichierResultats, null);
+    }
+
+    public ServeurArbitre(int port, long tempsParCoup, String fichierResultats, String fichierParties)
+            throws IOException {
+        this.tempsParCoup = tempsParCoup;
+        this.selector = Selector.open();
+        this.serveur = ServerSocketChannel.open();
+        serveur.configureBlocking(false);
+        serveur.bind(new InetSocketAddress(port), 1024);
+        serveur.register(selector, SelectionKey.OP_ACCEPT);
+        this.journal = Files.newBufferedWriter(Paths.get(fichierResultats), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        this.archive = fichierParties == null ? null
+                : Files.newBufferedWriter(Paths.get(fichierParties), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * @param args
+     *            Dans l'ordre : PortEcoute [TempsParCoupMs] [FichierResultats] [FichierParties]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("ServeurArbitre Usage: PortEcoute [TempsParCoupMs] [FichierResultats] [FichierParties]");
+            System.exit(1);
+        }
+        // L'arbitre utilise EtatJeu pour valider : pas de trace par coup
+        if (System.getProperty("escampe.debug") == null) {
+            System.setProperty("escampe.debug", "false");
+        }
+
+        int port = Integer.parseInt(args[0]);
+        long tempsParCoup = args.length > 1 ? Long.parseLong(args[1]) : 6000;
+        String fichier = args.length > 2 ? args[2] : "resultats.txt";
+        String fichierParties = args.length > 3 ? args[3] : null;
+
+        ServeurArbitre arbitre = new ServeurArbitre(port, tempsParCoup, fichier, fichierParties);
+        System.out.println("Arbitre démarré le " + new Date() + " sur le port " + port
+                + " (" + tempsParCoup + " ms par coup, résultats dans " + fichier + ")");
+        arbitre.boucle();
+    }
+
+    /**
+     * Boucle principale : acceptation, lectures, écritures et pendules
+     */
+    public void boucle() throws IOException {
+        while (true) {
+            selector.select(prochaineEcheance());
+
+            Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+            while (it.hasNext()) {
+                SelectionKey cle = it.next();
+                it.remove();
+                if (!cle.isValid()) continue;
+
+                if (cle.isAcceptable()) {
+                    accepter();
+                    continue;
+                }
+                Connexion cx = (Connexion) cle.attachment();
+                try {
+                    if (cle.isReadable()) lire(cx);
+                    if (cle.isValid() && cle.isWritable()) cx.ecrire();
+                } catch (IOException e) {
+                    deconnexion(cx);
+                }
+            }
+
+            verifierPendules();
+        }
+    }
+
+    private long prochaineEcheance() {
+        Echeance e;
+        while ((e = echeances.peek()) != null && e.perimee()) echeances.poll();
+        if (e == null) return 1000;
+        return Math.min(1000, Math.max(1, e.instant - System.currentTimeMillis()));
+    }
+
+    private void accepter() throws IOException {
+        SocketChannel canal;
+        while ((canal = serveur.accept()) != null) {
+            canal.configureBlocking(false);
+            canal.socket().setTcpNoDelay(true);
+            Connexion cx = new Connexion(canal);
+            cx.cle = canal.register(selector, SelectionKey.OP_READ, cx);
+        }
+    }
+
+    /**
+     * Lit ce qui est disponible et traite chaque ligne complète
+     */
+    private void lire(Connexion cx) throws IOException {
+        lecture.clear();
+        int n = cx.canal.read(lecture);
+        if (n < 0) {
+            deconnexion(cx);
+            return;
+        }
+        lecture.flip();
+        while (lecture.hasRemaining()) {
+            byte b = lecture.get();
+            if (b == '\n' || b == '\0') {
+                if (cx.ligne.position() > 0) {
+                    cx.ligne.flip();
+                    String msg = StandardCharsets.ISO_8859_1.decode(cx.ligne).toString().trim();
+                    cx.ligne.clear();
+                    if (!msg.isEmpty()) recevoir(cx, msg);
+                    if (!cx.canal.isOpen()) return;
+                }
+            } else if (b != '\r') {
+                if (!cx.ligne.hasRemaining()) {
+                    deconnexion(cx);
+                    return;
+                }
+                cx.ligne.put(b);
+            }
+        }
+    }
+
+    private void recevoir(Connexion cx, String msg) throws IOException {
+        if (cx.nom == null) {
+            // Première ligne : le nom du quadrinome
+            cx.nom = msg;
+            if (enAttente == null || !enAttente.canal.isOpen()) {
+                enAttente = cx;
+            } else {
+                demarrer(enAttente, cx);
+                enAttente = null;
+            }
+            return;
+        }
+
+        Partie p = cx.partie;
+        if (p == null || p.finie || p.joueur(p.trait) != cx) {
+            // Message hors tour : ignoré, comme le ferait l'arbitre officiel
+            return;
+        }
+        p.jouer(msg);
+    }
+
+    private void demarrer(Connexion blanc, Connexion noir) throws IOException {
+        Partie p = new Partie(blanc, noir);
+        blanc.partie = p;
+        noir.partie = p;
+        blanc.envoyer("Blanc\0");
+        noir.envoyer("Noir\0");
+        // Dans Escampe le joueur Noir place ses pièces en premier
+        p.donnerLeTrait(NOIR);
+    }
+
+    /**
+     * Termine les parties dont la pendule est tombée : seules les échéances passées (et les
+     * entrées périmées) sont retirées de la file
+     */
+    private void verifierPendules() throws IOException {
+        long maintenant = System.currentTimeMillis();
+        Echeance e;
+        while ((e = echeances.peek()) != null && (e.perimee() || maintenant > e.instant)) {
+            echeances.poll();
+            if (!e.perimee()) e.partie.terminer(-e.partie.trait, "TEMPS");
+        }
+    }
+
+    private void deconnexion(Connexion cx) throws IOException {
+        cx.fermer();
+        if (enAttente == cx) enAttente = null;
+        Partie p = cx.partie;
+        if (p != null && !p.finie) {
+            p.terminer(cx == p.blanc ? NOIR : BLANC, "DECONNEXION");
+        }
+    }
+
+    private static String nomCouleur(int couleur) {
+        return couleur == BLANC ? "Blanc" : couleur == NOIR ? "Noir" : "Aucun";
+    }
+
+    /**
+     * Une partie entre deux connexions ; l'état est tenu du point de vue de chaque joueur
+     * pour réutiliser les vérifications de EtatJeu
+     */
+    private class Partie {
+        final Connexion blanc;
+        final Connexion noir;
+        final EtatJeu etatBlanc = new EtatJeu(BLANC);
+        final EtatJeu etatNoir = new EtatJeu(NOIR);
+        final long debut = System.currentTimeMillis();
+        int trait;
+        int demiCoups;
+        long echeance;
+        long tempsBlanc;
+        long tempsNoir;
+        boolean finie;
+        // Coups acceptés, séparés par des espaces, pour l'archive
+        final StringBuilder coups = new StringBuilder();
+
+        Partie(Connexion blanc, Connexion noir) {
+            this.blanc = blanc;
+            this.noir = noir;
+        }
+
+        Connexion joueur(int couleur) {
+            return couleur == BLANC ? blanc : noir;
+        }
+
+        void donnerLeTrait(int couleur) throws IOException {
+            trait = couleur;
+            String msg = "JOUEUR " + nomCouleur(couleur) + "\0";
+            blanc.envoyer(msg);
+            noir.envoyer(msg);
+            echeance = System.currentTimeMillis() + tempsParCoup;
+            echeances.add(new Echeance(echeance, this));
+        }
+
+        void jouer(String coup) throws IOException {
+            long ecoule = System.currentTimeMillis() - (echeance - tempsParCoup);
+            if (trait == BLANC) tempsBlanc += ecoule;
+            else tempsNoir += ecoule;
+
+            EtatJeu etat = trait == BLANC ? etatBlanc : etatNoir;
+            EtatJeu etatAdverse = trait == BLANC ? etatNoir : etatBlanc;
+
+            if (!etat.isInitialDone()) {
+                if (!etat.estPlacementLegal(coup)) {
+                    terminer(-trait, "PLACEMENT-ILLEGAL " + coup);
+                    return;
+                }
+                etat.appliquerPlacementInitial(coup);
+            } else if (coup.equals("PASSE") || coup.equals("E")) {
+                if (!etat.genererCoupsLegaux().isEmpty()) {
+                    terminer(-trait, "PASSE-ILLEGALE");
+                    return;
+                }
+            } else {
+                if (!etat.estCoupLegal(coup)) {
+                    terminer(-trait, "COUP-ILLEGAL " + coup);
+                    return;
+                }
+                etat.appliquerCoup(coup);
+            }
+            etatAdverse.appliquerCoupAdversaire(coup);
+            demiCoups++;
+            if (archive != null) {
+                if (coups.length() > 0) coups.append(' ');
+                coups.append(coup.equals("E") ? "PASSE" : coup);
+            }
+
+            joueur(-trait).envoyer("MOUVEMENT " + coup);
+
+            if (etat.isInitialDone() && etatAdverse.isInitialDone() && etat.estPartieTerminee()) {
+                terminer(trait, "LICORNE-PRISE");
+            } else if (demiCoups >= MAX_DEMI_COUPS) {
+                terminer(VIDE, "LIMITE-COUPS");
+            } else if (demiCoups == 1) {
+                // Blanc place ses pièces après Noir, puis joue le premier mouvement
+                donnerLeTrait(BLANC);
+            } else if (demiCoups == 2) {
+                donnerLeTrait(BLANC);
+            } else {
+                donnerLeTrait(-trait);
+            }
+        }
+
+        void terminer(int vainqueur, String raison) throws IOException {
+            if (finie) return;
+            finie = true;
+            String msg = "FIN! " + nomCouleur(vainqueur) + "\0";
+            blanc.envoyer(msg);
+            noir.envoyer(msg);
+            blanc.fermerApresEcriture();
+            noir.fermerApresEcriture();
+
+            // date;blanc;noir;vainqueur;raison;demi-coups;durée;temps blanc;temps noir
+            String resultat = new Date(debut) + ";" + blanc.nom + ";" + noir.nom + ";" + nomCouleur(vainqueur) + ";"
+                    + raison + ";" + demiCoups + ";" + (System.currentTimeMillis() - debut) + ";"
+                    + tempsBlanc + ";" + tempsNoir;
+            journal.write(resultat);
+            journal.newLine();
+            journal.flush();
+            if (archive != null) {
+                archive.write(resultat + ";" + coups);
+                archive.newLine();
+                archive.flush();
+            }
+            nbPartiesFinies++;
+            if (nbPartiesFinies % 100 == 0) {
+                System.out.println("[ARBITRE] " + nbPartiesFinies + " parties finies");
+            }
+        }
+    }
+
+    /**
+     * Échéance d'une partie à l'instant où le trait a été donné
+     */
+    private static final class Echeance implements Comparable<Echeance> {
+        final long instant;
+        final Partie partie;
+
+        Echeance(long instant, Partie partie) {
+            this.instant = instant;
+            this.partie = partie;
+        }
+
+        boolean perimee() {
+            return partie.finie || partie.echeance != instant;
+        }
+
+        @Override
+        public int compareTo(Echeance o) {
+            return Long.compare(instant, o.instant);
+        }
+    }
+
+    /**
+     * Connexion d'un joueur, avec ses tampons de lecture et d'écriture
+     */
+    private static class Connexion {
+        final SocketChannel canal;
+        final ByteBuffer ligne = ByteBuffer.allocate(TAILLE_LIGNE);
+        final Queue<ByteBuffer> sortie = new ArrayDeque<>();
+        SelectionKey cle;
+        String nom;
+        Partie partie;
+        boolean fermerApresEcriture;
+
+        Connexion(SocketChannel canal) {
+            this.canal = canal;
+        }
+
+        void envoyer(String msg) throws IOException {
+            if (!canal.isOpen()) return;
+            sortie.add(ByteBuffer.wrap((msg + "\n").getBytes(StandardCharsets.ISO_8859_1)));
+            ecrire();
+        }
+
+        void ecrire() throws IOException {
+            while (!sortie.isEmpty()) {
+                ByteBuffer b = sortie.peek();
+                canal.write(b);
+                if (b.hasRemaining()) {
+                    cle.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                sortie.poll();
+            }
+            if (fermerApresEcriture) {
+                fermer();
+            } else if (cle.isValid()) {
+                cle.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        void fermerApresEcriture() throws IOException {
+            fermerApresEcriture = true;
+            if (canal.isOpen()) ecrire();
+        }
+
+        void fermer() {
+            try {
+                canal.close();
+            } catch (IOException e) {
+                // rien à faire
+            }
+        }
+    }
+}
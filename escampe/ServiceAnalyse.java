@@ -0,0 +1,647 @@
+package escampe;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Service d'analyse embarquable : des demandes (position, profondeur, temps, délai) sont mises
+ * en file et analysées par un groupe de threads, chacun avec son MonJoueur. Tous partagent une
+ * table de transposition et un cache d'évaluation : une question sur une position voisine
+ * d'une position déjà analysée (le coup suivant, une variante) repart de ce qui est connu.
+ *
+ * - La file est bornée : au-delà de sa capacité, une demande est refusée tout de suite.
+ * - Les demandes courtes (profondeur fixe d'au plus PROFONDEUR_COURTE, sans limite de temps)
+ *   passent avant les autres et sont prises par lots : un thread enchaîne jusqu'à LOT_COURT
+ *   demandes (sa part de celles en attente) en un seul passage dans la file. Une demande
+ *   longue n'attend qu'un lot : lots et demandes longues alternent quand les deux attendent.
+ * - Le délai d'une demande court depuis sa réception : une demande qui n'a pas commencé à
+ *   temps est abandonnée, une demande commencée est limitée au temps qui lui reste.
+ * - Une demande en file ou en cours peut être annulée ; une recherche annulée rend le résultat
+ *   de sa dernière itération terminée.
+ *
+ * Accès HTTP local (127.0.0.1), en JSON :
+ *     POST /analyse   {"id":"a1","position":"<NotationPosition>","profondeur":6,"tempsMs":0,"delaiMs":2000}
+ *     POST /annuler   {"id":"a1"}
+ *     GET  /metriques latences p50/p99 (réception -> réponse), débit, compteurs, état de la file
+ *
+ * Exemple: >java -cp . escampe.ServiceAnalyse 8642 4 1024
+ *          >curl -d '{"position":"nnNnnn/6/6/6/6/bbBbbb b 0","profondeur":5}' localhost:8642/analyse
+ */
+public final class ServiceAnalyse implements Closeable {
+    public static final int PROFONDEUR_DEFAUT = 6;
+    public static final int PROFONDEUR_COURTE = Integer.getInteger("escampe.service.profondeurCourte", 5);
+    private static final int LOT_COURT = 32;
+    // Latences gardées pour les percentiles, et fenêtre du débit instantané
+    private static final int NB_LATENCES = 4096;
+    private static final long FENETRE_DEBIT_NS = 10_000_000_000L;
+    private static final int TAILLE_MAX_CORPS = 1 << 16;
+
+    /**
+     * États d'une demande
+     */
+    public enum Etat { EN_FILE, EN_COURS, TERMINEE, ANNULEE, EXPIREE, ERREUR }
+
+    private final TableTransposition table;
+    private final CacheEvaluation cache;
+    private final FileDemandes file;
+    private final Thread[] analyseurs;
+    private final Map<String, Demande> demandes = new ConcurrentHashMap<>();
+    private final AtomicLong prochainId = new AtomicLong();
+    private volatile boolean ferme;
+    private HttpServer serveur;
+
+    // Métriques
+    private final long debutNs = System.nanoTime();
+    private final LongAdder nbRecues = new LongAdder();
+    private final LongAdder nbRefusees = new LongAdder();
+    private final LongAdder nbTerminees = new LongAdder();
+    private final LongAdder nbAnnulees = new LongAdder();
+    private final LongAdder nbExpirees = new LongAdder();
+    private final LongAdder nbErreurs = new LongAdder();
+    private final LongAdder nbLots = new LongAdder();
+    private final LongAdder nbDemandesEnLot = new LongAdder();
+    private final LongAdder nbNoeuds = new LongAdder();
+    // Anneau des dernières réponses : latence (µs) et instant de fin (ns)
+    private final long[] latencesUs = new long[NB_LATENCES];
+    private final long[] finsNs = new long[NB_LATENCES];
+    private final AtomicLong nbLatences = new AtomicLong();
+
+    public static void main(String[] args) throws IOException {
+        if (System.getProperty("escampe.debug") == null) {
+            System.setProperty("escampe.debug", "false");
+        }
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8642;
+        int nbThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int capacite = args.length > 2 ? Integer.parseInt(args[2]) : 1024;
+        ServiceAnalyse service = new ServiceAnalyse(nbThreads, capacite, Integer.getInteger("escampe.table", 22));
+        service.demarrerHttp(port);
+        System.err.println("Service d'analyse sur http://127.0.0.1:" + port + "/ : " + nbThreads + " threads, file de "
+                + capacite + ", table partagée de " + service.table.getNbEntrees() + " entrées");
+    }
+
+    /**
+     * @param nbThreads   threads d'analyse
+     * @param capacite    nombre maximal de demandes en file (hors demandes en cours)
+     * @param log2Table   log2 du nombre d'entrées de la table partagée
+     */
+    public ServiceAnalyse(int nbThreads, int capacite, int log2Table) {
+        table = new TableTransposition(log2Table);
+        cache = new CacheEvaluation(Integer.getInteger("escampe.cacheEval", 20));
+        file = new FileDemandes(capacite, nbThreads);
+        analyseurs = new Thread[nbThreads];
+        for (int i = 0; i < nbThreads; i++) {
+            analyseurs[i] = new Thread(this::analyser, "analyse-" + i);
+            analyseurs[i].setDaemon(true);
+            analyseurs[i].start();
+        }
+    }
+
+    /**
+     * Met une analyse en file
+     *
+     * @param id         identifiant pour l'annulation (null pour en attribuer un)
+     * @param profondeur profondeur maximale
+     * @param tempsMs    temps maximal de recherche, 0 pour aucun
+     * @param delaiMs    délai depuis maintenant pour rendre le résultat, 0 pour aucun
+     * @return la demande, ou null si la file est pleine ou l'identifiant déjà en cours
+     */
+    public Demande soumettre(String id, PositionJeu position, int profondeur, long tempsMs, long delaiMs) {
+        nbRecues.increment();
+        if (id == null) id = "d" + prochainId.incrementAndGet();
+        Demande d = new Demande(id, position, profondeur, tempsMs, delaiMs);
+        if (ferme || demandes.putIfAbsent(id, d) != null) {
+            nbRefusees.increment();
+            return null;
+        }
+        if (!file.offrir(d)) {
+            demandes.remove(id, d);
+            nbRefusees.increment();
+            return null;
+        }
+        return d;
+    }
+
+    /**
+     * Annule une demande en file ou en cours
+     *
+     * @return false si aucune demande de cet identifiant n'est en attente
+     */
+    public boolean annuler(String id) {
+        Demande d = demandes.get(id);
+        if (d == null) return false;
+        synchronized (d) {
+            d.annulee = true;
+            if (d.joueur != null) d.joueur.arreter();
+        }
+        // Une demande encore en file est terminée par le thread qui la prendra
+        return true;
+    }
+
+    public TableTransposition getTable() {
+        return table;
+    }
+
+    public int getTailleFile() {
+        return file.taille();
+    }
+
+    /**
+     * Boucle d'un thread d'analyse
+     */
+    private void analyser() {
+        MonJoueur joueur = new MonJoueur();
+        joueur.setTable(table);
+        joueur.setCacheEvaluation(cache);
+        Demande[] lot = new Demande[LOT_COURT];
+        try {
+            while (!ferme) {
+                int n = file.prendre(lot);
+                if (n > 1) {
+                    nbLots.increment();
+                    nbDemandesEnLot.add(n);
+                }
+                for (int i = 0; i < n; i++) {
+                    traiter(lot[i], joueur);
+                    lot[i] = null;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void traiter(Demande d, MonJoueur joueur) {
+        long restantMs = (d.echeanceNs - System.nanoTime()) / 1_000_000;
+        synchronized (d) {
+            if (d.annulee) {
+                terminer(d, Etat.ANNULEE, null, null);
+                return;
+            }
+            if (restantMs <= 0) {
+                terminer(d, Etat.EXPIREE, null, null);
+                return;
+            }
+            // Avant de publier le joueur : un arrêt demandé ensuite n'est pas effacé
+            joueur.reprendre();
+            d.joueur = joueur;
+            d.etat = Etat.EN_COURS;
+        }
+        d.debutNs = System.nanoTime();
+        ResultatRecherche r;
+        try {
+            joueur.setLimites(Math.min(d.tempsMs > 0 ? d.tempsMs : Long.MAX_VALUE / 2, restantMs), d.profondeur);
+            joueur.chargerPosition(d.position);
+            r = joueur.analyser();
+        } catch (RuntimeException e) {
+            synchronized (d) {
+                d.joueur = null;
+            }
+            terminer(d, Etat.ERREUR, null, e.toString());
+            return;
+        }
+        boolean annulee;
+        synchronized (d) {
+            d.joueur = null;
+            annulee = d.annulee;
+        }
+        nbNoeuds.add(r.noeuds);
+        terminer(d, annulee ? Etat.ANNULEE : Etat.TERMINEE, r, null);
+    }
+
+    private void terminer(Demande d, Etat etat, ResultatRecherche r, String erreur) {
+        d.etat = etat;
+        d.resultat = r;
+        d.erreur = erreur;
+        d.finNs = System.nanoTime();
+        demandes.remove(d.id, d);
+        switch (etat) {
+            case TERMINEE: nbTerminees.increment(); break;
+            case ANNULEE: nbAnnulees.increment(); break;
+            case EXPIREE: nbExpirees.increment(); break;
+            default: nbErreurs.increment(); break;
+        }
+        noterLatence(d.finNs - d.receptionNs, d.finNs);
+        d.fin.complete(d);
+    }
+
+    private void noterLatence(long dureeNs, long finNs) {
+        int i = (int) (nbLatences.getAndIncrement() % NB_LATENCES);
+        latencesUs[i] = dureeNs / 1000;
+        finsNs[i] = finNs;
+    }
+
+    /**
+     * Instantané JSON des métriques : compteurs, file, latences (ms) et débit (demandes/s)
+     */
+    public String metriquesJson() {
+        long maintenant = System.nanoTime();
+        int n = (int) Math.min(nbLatences.get(), NB_LATENCES);
+        long[] l = Arrays.copyOf(latencesUs, n);
+        int recentes = 0;
+        for (int i = 0; i < n; i++) {
+            if (maintenant - finsNs[i] <= FENETRE_DEBIT_NS) recentes++;
+        }
+        Arrays.sort(l);
+        double dureeS = Math.max(1e-9, (maintenant - debutNs) / 1e9);
+        long servies = nbTerminees.sum() + nbAnnulees.sum() + nbExpirees.sum() + nbErreurs.sum();
+        long lots = nbLots.sum();
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"horodatage\":").append(System.currentTimeMillis())
+          .append(",\"recues\":").append(nbRecues.sum())
+          .append(",\"refusees\":").append(nbRefusees.sum())
+          .append(",\"terminees\":").append(nbTerminees.sum())
+          .append(",\"annulees\":").append(nbAnnulees.sum())
+          .append(",\"expirees\":").append(nbExpirees.sum())
+          .append(",\"erreurs\":").append(nbErreurs.sum())
+          .append(",\"enFile\":").append(file.taille())
+          .append(",\"capaciteFile\":").append(file.capacite)
+          .append(",\"threads\":").append(analyseurs.length)
+          .append(",\"lots\":").append(lots)
+          .append(",\"demandesParLot\":").append(format(lots > 0 ? (double) nbDemandesEnLot.sum() / lots : 0))
+          .append(",\"noeuds\":").append(nbNoeuds.sum())
+          .append(",\"latenceP50Ms\":").append(format(percentile(l, 0.50) / 1000.0))
+          .append(",\"latenceP99Ms\":").append(format(percentile(l, 0.99) / 1000.0))
+          .append(",\"latenceMaxMs\":").append(format(n > 0 ? l[n - 1] / 1000.0 : 0))
+          .append(",\"debitParSeconde\":").append(format(servies / dureeS))
+          .append(",\"debitRecentParSeconde\":")
+          .append(format(recentes / (Math.min(FENETRE_DEBIT_NS, maintenant - debutNs) / 1e9 + 1e-9)))
+          .append(",\"echantillonLatences\":").append(n);
+        return sb.append('}').toString();
+    }
+
+    private static long percentile(long[] tries, double q) {
+        if (tries.length == 0) return 0;
+        return tries[Math.min(tries.length - 1, (int) Math.ceil(q * tries.length) - 1)];
+    }
+
+    private static String format(double x) {
+        return String.format(Locale.ROOT, "%.3f", x);
+    }
+
+    /**
+     * Démarre l'accès HTTP sur 127.0.0.1:port
+     */
+    public void demarrerHttp(int port) throws IOException {
+        serveur = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 64);
+        serveur.createContext("/analyse", this::recevoirAnalyse);
+        serveur.createContext("/annuler", this::recevoirAnnulation);
+        serveur.createContext("/metriques", e -> repondre(e, 200, metriquesJson()));
+        // Les réponses d'analyse sont écrites par les threads d'analyse ; ceux-ci ne font que lire
+        serveur.setExecutor(Executors.newFixedThreadPool(2, r -> {
+            Thread t = new Thread(r, "http-analyse");
+            t.setDaemon(true);
+            return t;
+        }));
+        serveur.start();
+    }
+
+    private void recevoirAnalyse(HttpExchange e) throws IOException {
+        if (!"POST".equals(e.getRequestMethod())) {
+            repondre(e, 405, "{\"erreur\":\"POST attendu\"}");
+            return;
+        }
+        Map<String, String> champs;
+        PositionJeu position;
+        int profondeur;
+        long tempsMs, delaiMs;
+        try {
+            champs = lireJson(lireCorps(e));
+            String notation = champs.get("position");
+            if (notation == null) throw new IllegalArgumentException("position manquante");
+            position = NotationPosition.lire(notation);
+            profondeur = entier(champs, "profondeur", PROFONDEUR_DEFAUT);
+            tempsMs = entier(champs, "tempsMs", 0);
+            delaiMs = entier(champs, "delaiMs", 0);
+            if (profondeur < 1 || tempsMs < 0 || delaiMs < 0) throw new IllegalArgumentException("limites invalides");
+        } catch (IllegalArgumentException ex) {
+            repondre(e, 400, "{\"erreur\":" + chaine(ex.getMessage()) + "}");
+            return;
+        }
+        Demande d = soumettre(champs.get("id"), position, profondeur, tempsMs, delaiMs);
+        if (d == null) {
+            String id = champs.get("id");
+            repondre(e, 503, "{\"id\":" + (id != null ? chaine(id) : "null")
+                    + ",\"erreur\":\"file pleine ou identifiant déjà en cours\"}");
+            return;
+        }
+        d.fin.thenAccept(fin -> {
+            try {
+                repondre(e, fin.etat == Etat.EXPIREE ? 504 : fin.etat == Etat.ERREUR ? 500 : 200, fin.versJson());
+            } catch (IOException ex) {
+                // Client parti : rien à faire
+            }
+        });
+    }
+
+    private void recevoirAnnulation(HttpExchange e) throws IOException {
+        if (!"POST".equals(e.getRequestMethod())) {
+            repondre(e, 405, "{\"erreur\":\"POST attendu\"}");
+            return;
+        }
+        String id;
+        try {
+            id = lireJson(lireCorps(e)).get("id");
+            if (id == null) throw new IllegalArgumentException("id manquant");
+        } catch (IllegalArgumentException ex) {
+            repondre(e, 400, "{\"erreur\":" + chaine(ex.getMessage()) + "}");
+            return;
+        }
+        boolean annulee = annuler(id);
+        repondre(e, annulee ? 200 : 404, "{\"id\":" + chaine(id) + ",\"annulee\":" + annulee + "}");
+    }
+
+    private static String lireCorps(HttpExchange e) throws IOException {
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream();
+        byte[] tampon = new byte[4096];
+        try (InputStream in = e.getRequestBody()) {
+            int n;
+            while ((n = in.read(tampon)) > 0) {
+                sortie.write(tampon, 0, n);
+                if (sortie.size() > TAILLE_MAX_CORPS) throw new IllegalArgumentException("corps trop long");
+            }
+        }
+        return new String(sortie.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void repondre(HttpExchange e, int statut, String json) throws IOException {
+        byte[] corps = json.getBytes(StandardCharsets.UTF_8);
+        e.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        e.sendResponseHeaders(statut, corps.length);
+        try (OutputStream out = e.getResponseBody()) {
+            out.write(corps);
+        }
+    }
+
+    private static long entier(Map<String, String> champs, String nom, long defaut) {
+        String v = champs.get(nom);
+        if (v == null) return defaut;
+        try {
+            return Long.parseLong(v);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException(nom + " invalide: " + v);
+        }
+    }
+
+    private static int entier(Map<String, String> champs, String nom, int defaut) {
+        long v = entier(champs, nom, (long) defaut);
+        if (v > Integer.MAX_VALUE || v < Integer.MIN_VALUE) throw new IllegalArgumentException(nom + " invalide: " + v);
+        return (int) v;
+    }
+
+    /**
+     * Lit un objet JSON plat : chaînes, nombres, booléens et null, rendus sous forme de texte
+     * (null est omis). Suffisant pour les demandes du service, qui n'ont pas d'imbrication.
+     */
+    static Map<String, String> lireJson(String s) {
+        Map<String, String> champs = new HashMap<>();
+        int[] pos = {sauterBlancs(s, 0)};
+        attendre(s, pos, '{');
+        if (s.charAt(sauterBlancs(s, pos[0])) == '}') {
+            pos[0] = sauterBlancs(s, pos[0]) + 1;
+        } else {
+            while (true) {
+                String cle = lireChaine(s, pos);
+                attendre(s, pos, ':');
+                String valeur = lireValeur(s, pos);
+                if (valeur != null) champs.put(cle, valeur);
+                pos[0] = sauterBlancs(s, pos[0]);
+                if (pos[0] < s.length() && s.charAt(pos[0]) == ',') {
+                    pos[0]++;
+                    continue;
+                }
+                attendre(s, pos, '}');
+                break;
+            }
+        }
+        if (sauterBlancs(s, pos[0]) != s.length()) throw new IllegalArgumentException("JSON: texte après l'objet");
+        return champs;
+    }
+
+    private static int sauterBlancs(String s, int i) {
+        while (i < s.length() && Character.isWhitespace(s.charAt(i))) i++;
+        return i;
+    }
+
+    private static void attendre(String s, int[] pos, char c) {
+        int i = sauterBlancs(s, pos[0]);
+        if (i >= s.length() || s.charAt(i) != c) throw new IllegalArgumentException("JSON: '" + c + "' attendu en " + i);
+        pos[0] = i + 1;
+    }
+
+    private static String lireValeur(String s, int[] pos) {
+        int i = sauterBlancs(s, pos[0]);
+        if (i < s.length() && s.charAt(i) == '"') return lireChaine(s, pos);
+        int fin = i;
+        while (fin < s.length() && ",}".indexOf(s.charAt(fin)) < 0 && !Character.isWhitespace(s.charAt(fin))) fin++;
+        String v = s.substring(i, fin);
+        if (v.isEmpty() || v.equals("{") || v.startsWith("[")) throw new IllegalArgumentException("JSON: valeur invalide en " + i);
+        pos[0] = fin;
+        return v.equals("null") ? null : v;
+    }
+
+    private static String lireChaine(String s, int[] pos) {
+        attendre(s, pos, '"');
+        StringBuilder sb = new StringBuilder();
+        int i = pos[0];
+        while (true) {
+            if (i >= s.length()) throw new IllegalArgumentException("JSON: chaîne non terminée");
+            char c = s.charAt(i++);
+            if (c == '"') break;
+            if (c == '\\') {
+                if (i >= s.length()) throw new IllegalArgumentException("JSON: chaîne non terminée");
+                char e = s.charAt(i++);
+                switch (e) {
+                    case 'n': sb.append('\n'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        if (i + 4 > s.length()) throw new IllegalArgumentException("JSON: \\u incomplet");
+                        try {
+                            sb.append((char) Integer.parseInt(s.substring(i, i + 4), 16));
+                        } catch (NumberFormatException ex) {
+                            throw new IllegalArgumentException("JSON: \\u invalide");
+                        }
+                        i += 4;
+                        break;
+                    default: sb.append(e); break;
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        pos[0] = i;
+        return sb.toString();
+    }
+
+    static String chaine(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Arrête les threads d'analyse et l'accès HTTP ; les demandes en file sont annulées
+     */
+    @Override
+    public void close() {
+        ferme = true;
+        if (serveur != null) serveur.stop(0);
+        for (Demande d : demandes.values()) annuler(d.id);
+        for (Thread t : analyseurs) t.interrupt();
+        Demande[] lot = new Demande[LOT_COURT];
+        int n;
+        while ((n = file.vider(lot)) > 0) {
+            for (int i = 0; i < n; i++) terminer(lot[i], Etat.ANNULEE, null, null);
+        }
+    }
+
+    /**
+     * Une demande d'analyse et, une fois terminée, son résultat
+     */
+    public static final class Demande {
+        public final String id;
+        public final PositionJeu position;
+        public final int profondeur;
+        public final long tempsMs;
+        final long receptionNs;
+        final long echeanceNs;
+        final boolean courte;
+        // Complétée quand la demande est terminée, quel que soit son état final
+        public final CompletableFuture<Demande> fin = new CompletableFuture<>();
+
+        volatile Etat etat = Etat.EN_FILE;
+        volatile ResultatRecherche resultat;
+        volatile String erreur;
+        volatile long debutNs, finNs;
+        // Protégés par le moniteur de la demande (voir annuler et traiter)
+        boolean annulee;
+        MonJoueur joueur;
+
+        Demande(String id, PositionJeu position, int profondeur, long tempsMs, long delaiMs) {
+            this.id = id;
+            this.position = position;
+            this.profondeur = profondeur;
+            this.tempsMs = tempsMs;
+            this.receptionNs = System.nanoTime();
+            this.echeanceNs = delaiMs > 0 ? receptionNs + delaiMs * 1_000_000 : receptionNs + Long.MAX_VALUE / 4;
+            this.courte = tempsMs == 0 && profondeur <= PROFONDEUR_COURTE;
+        }
+
+        public Etat getEtat() {
+            return etat;
+        }
+
+        /**
+         * Résultat de la recherche (null si elle n'a pas eu lieu)
+         */
+        public ResultatRecherche getResultat() {
+            return resultat;
+        }
+
+        public String versJson() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("{\"id\":").append(chaine(id))
+              .append(",\"etat\":\"").append(etat.name().toLowerCase(Locale.ROOT)).append('"');
+            if (debutNs > 0) sb.append(",\"attenteMs\":").append((debutNs - receptionNs) / 1_000_000);
+            sb.append(",\"latenceMs\":").append((finNs - receptionNs) / 1_000_000);
+            if (erreur != null) sb.append(",\"erreur\":").append(chaine(erreur));
+            ResultatRecherche r = resultat;
+            if (r != null) {
+                sb.append(",\"coup\":").append(chaine(r.meilleurCoup))
+                  .append(",\"score\":").append(r.score)
+                  .append(",\"profondeur\":").append(r.profondeur)
+                  .append(",\"noeuds\":").append(r.noeuds)
+                  .append(",\"tempsMs\":").append(r.tempsMs)
+                  .append(",\"variante\":[");
+                for (int k = 0; k < r.variantePrincipale.size(); k++) {
+                    if (k > 0) sb.append(',');
+                    sb.append(chaine(r.variantePrincipale.get(k)));
+                }
+                sb.append(']');
+            }
+            return sb.append('}').toString();
+        }
+    }
+
+    /**
+     * File bornée à deux niveaux : les demandes courtes, prises par lots, avant les autres,
+     * prises une à une. Après chaque lot pris alors qu'une demande longue attend, la plus
+     * ancienne demande longue passe : un flot continu de demandes courtes ne la prive pas.
+     */
+    private static final class FileDemandes {
+        final int capacite;
+        private final ArrayDeque<Demande> courtes = new ArrayDeque<>();
+        private final ArrayDeque<Demande> longues = new ArrayDeque<>();
+
+        private final int nbThreads;
+        // Un lot de courtes est passé devant une longue qui attendait : son tour est venu
+        private boolean longueDue;
+
+        FileDemandes(int capacite, int nbThreads) {
+            this.capacite = capacite;
+            this.nbThreads = nbThreads;
+        }
+
+        synchronized boolean offrir(Demande d) {
+            if (courtes.size() + longues.size() >= capacite) return false;
+            (d.courte ? courtes : longues).add(d);
+            notify();
+            return true;
+        }
+
+        /**
+         * Attend une demande ; rend un lot de demandes courtes ou une demande longue. Un lot
+         * prend au plus sa part des demandes courtes, pour ne pas priver les autres threads.
+         */
+        synchronized int prendre(Demande[] lot) throws InterruptedException {
+            while (courtes.isEmpty() && longues.isEmpty()) wait();
+            if (courtes.isEmpty() || (longueDue && !longues.isEmpty())) {
+                longueDue = false;
+                lot[0] = longues.poll();
+                return 1;
+            }
+            int taille = Math.max(1, Math.min(lot.length, courtes.size() / nbThreads));
+            for (int i = 0; i < taille; i++) lot[i] = courtes.poll();
+            longueDue = !longues.isEmpty();
+            return taille;
+        }
+
+        synchronized int vider(Demande[] lot) {
+            int n = 0;
+            while (n < lot.length && !courtes.isEmpty()) lot[n++] = courtes.poll();
+            while (n < lot.length && !longues.isEmpty()) lot[n++] = longues.poll();
+            return n;
+        }
+
+        synchronized int taille() {
+            return courtes.size() + longues.size();
+        }
+    }
+}
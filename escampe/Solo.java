@@ -178,5 +178,10 @@ public class Solo {
     	System.out.println("Initialisation des deux joueurs ok.");
     	
     	gameLoop(joueurBlanc, joueurNoir);
+    	
+    	// Les résultats profonds de la partie rejoignent la table persistante, s'il y en a une
+    	for (IJoueur j : new IJoueur[] {joueurBlanc, joueurNoir}) {
+    		if (j instanceof MonJoueur) TablePersistante.fusionnerSiConfiguree(((MonJoueur) j).getTable());
+    	}
     }
 }
@@ -0,0 +1,274 @@
+package escampe;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Solveur de prises forcées par nombres de preuve en profondeur d'abord (df-pn) : le joueur au
+ * trait peut-il prendre la licorne adverse en au plus un nombre donné de demi-coups, quoi que
+ * fasse l'adversaire ?
+ *
+ * Formulation phi/delta : phi est le nombre de preuve du joueur au trait d'un noeud, delta
+ * son nombre de réfutation ; phi(n) = min delta(fils), delta(n) = somme phi(fils). Un noeud
+ * dont la licorne du joueur au trait vient d'être prise est perdu pour lui ; à l'horizon, la
+ * prise n'a pas eu lieu : perdu pour l'attaquant, gagné pour le défenseur. Le nombre de
+ * demi-coups restants fait partie de la clé : aucun cycle n'est possible et une entrée ne sert
+ * qu'à l'horizon pour lequel elle a été calculée.
+ *
+ * Le solveur a sa propre table (remplacement systématique), réutilisée d'un appel à l'autre,
+ * et n'alloue rien pendant la résolution. Il s'arrête au budget de noeuds ou à la demande
+ * (arreter, depuis un autre thread) ; MonJoueur le lance sur un thread auxiliaire pendant sa
+ * recherche.
+ *
+ * Le main résout une suite de positions (une notation NotationPosition par ligne, '#' pour
+ * les commentaires) et donne le temps de chaque résolution.
+ *
+ * Exemple: >java -cp . escampe.SolveurPn problemes.txt 9 5000000
+ */
+public final class SolveurPn {
+    public static final int INCONNU = 0;
+    public static final int PROUVE = 1;
+    public static final int REFUTE = 2;
+
+    public static final int MAX_DEMI_COUPS = 31;
+    private static final int INF = 100_000_000;
+    // Mélange du nombre de demi-coups restants dans la clé
+    private static final long SEL_RESTANT = 0x9E3779B97F4A7C15L;
+
+    private final long[] cles;
+    private final int[] phis;
+    private final int[] deltas;
+    private final int masque;
+
+    private final PlateauRapide[] plateaux = new PlateauRapide[MAX_DEMI_COUPS + 1];
+    private final int[][] coups = new int[MAX_DEMI_COUPS + 1][PlateauRapide.MAX_COUPS];
+    private final long[][] clesFils = new long[MAX_DEMI_COUPS + 1][PlateauRapide.MAX_COUPS];
+
+    private long cleRacine;
+    private int attaquant;
+    private long noeuds;
+    private long noeudsMax;
+    private volatile boolean arret;
+    // Valeurs rendues par sonder et evaluerFils
+    private int phi, delta;
+
+    // Résultat de la dernière résolution
+    private int etat = INCONNU;
+    private int coupGagnant = Coup.INVALIDE;
+
+    /**
+     * @param log2Entrees log2 du nombre d'entrées de la table (16 octets chacune)
+     */
+    public SolveurPn(int log2Entrees) {
+        if (log2Entrees < 4 || log2Entrees > 28) {
+            throw new IllegalArgumentException("Taille de table invalide: 2^" + log2Entrees);
+        }
+        cles = new long[1 << log2Entrees];
+        phis = new int[1 << log2Entrees];
+        deltas = new int[1 << log2Entrees];
+        masque = (1 << log2Entrees) - 1;
+        for (int i = 0; i < plateaux.length; i++) plateaux[i] = new PlateauRapide();
+    }
+
+    /**
+     * Prend la position à résoudre, avec trait au trait (à appeler depuis le thread qui possède
+     * etat ; resoudre peut ensuite tourner sur un autre thread). Annule un arrêt demandé
+     * auparavant : un arrêt demandé ensuite vaut aussi pour une résolution pas encore commencée.
+     */
+    public void preparer(EtatJeu etat, int trait) {
+        arret = false;
+        plateaux[0].charger(etat, trait);
+        cleRacine = Zobrist.hacher(etat.getPlateau(), etat.getTypePiece(), trait, etat.getLastLisere(), trait);
+    }
+
+    public void preparer(PositionJeu p) {
+        arret = false;
+        plateaux[0].charger(p);
+        cleRacine = Zobrist.hacher(p.plateau, p.typePiece, p.trait, p.lisere, p.trait);
+    }
+
+    /**
+     * Cherche une prise forcée de la licorne adverse par le joueur au trait de la position
+     * préparée, en au plus demiCoups demi-coups (les siens et ceux de l'adversaire)
+     *
+     * @return PROUVE, REFUTE, ou INCONNU si le budget est épuisé ou l'arrêt demandé
+     */
+    public int resoudre(int demiCoups, long noeudsMax) {
+        this.noeudsMax = noeudsMax;
+        noeuds = 0;
+        etat = INCONNU;
+        coupGagnant = Coup.INVALIDE;
+        PlateauRapide racine = plateaux[0];
+        if (racine.vainqueur != 0) return etat;
+        attaquant = racine.trait;
+        demiCoups = Math.max(1, Math.min(demiCoups, MAX_DEMI_COUPS));
+
+        mid(0, demiCoups, cleRacine, INF, INF);
+
+        sonder(cleRacine, demiCoups);
+        if (phi == 0) {
+            etat = PROUVE;
+            // Le coup gagnant mène à un fils perdu pour l'adversaire
+            int n = genererFils(0, cleRacine);
+            for (int i = 0; i < n; i++) {
+                evaluerFils(0, i, demiCoups - 1);
+                if (delta == 0) {
+                    coupGagnant = coups[0][i];
+                    break;
+                }
+            }
+        } else if (delta == 0) {
+            etat = REFUTE;
+        }
+        return etat;
+    }
+
+    /**
+     * Arrête au plus tôt la résolution en cours ou préparée, depuis n'importe quel thread
+     */
+    public void arreter() {
+        arret = true;
+    }
+
+    public int getEtat() {
+        return etat;
+    }
+
+    /**
+     * Premier coup de la prise forcée (Coup.INVALIDE si elle n'est pas prouvée)
+     */
+    public int getCoupGagnant() {
+        return coupGagnant;
+    }
+
+    public long getNoeuds() {
+        return noeuds;
+    }
+
+    /**
+     * Développe le noeud plateaux[ply] jusqu'à ce que phi >= seuilPhi ou delta >= seuilDelta
+     */
+    private void mid(int ply, int restant, long cle, int seuilPhi, int seuilDelta) {
+        noeuds++;
+        int n = genererFils(ply, cle);
+        while (true) {
+            // phi = min delta(fils), delta = somme phi(fils) ; on retient le fils de plus petit
+            // delta et le second plus petit delta pour son seuil
+            int phiNoeud, deltaNoeud = 0;
+            int meilleur = 0, deltaMeilleur = INF, phiMeilleur = 0, delta2 = INF;
+            for (int i = 0; i < n; i++) {
+                evaluerFils(ply, i, restant - 1);
+                deltaNoeud = Math.min(INF, deltaNoeud + phi);
+                if (delta < deltaMeilleur) {
+                    delta2 = deltaMeilleur;
+                    deltaMeilleur = delta;
+                    phiMeilleur = phi;
+                    meilleur = i;
+                } else if (delta < delta2) {
+                    delta2 = delta;
+                }
+            }
+            phiNoeud = deltaMeilleur;
+            enregistrer(cle, restant, phiNoeud, deltaNoeud);
+            if (phiNoeud >= seuilPhi || deltaNoeud >= seuilDelta || arret || noeuds >= noeudsMax) return;
+
+            int seuilPhiFils = seuilDelta + phiMeilleur - deltaNoeud;
+            int seuilDeltaFils = Math.min(seuilPhi, delta2 >= INF ? INF : delta2 + 1);
+            PlateauRapide fils = plateaux[ply + 1];
+            fils.copier(plateaux[ply]);
+            fils.jouer(coups[ply][meilleur]);
+            mid(ply + 1, restant - 1, clesFils[ply][meilleur], seuilPhiFils, seuilDeltaFils);
+        }
+    }
+
+    /**
+     * Coups de plateaux[ply] (PASSE seul si aucun) et clés des fils
+     */
+    private int genererFils(int ply, long cle) {
+        PlateauRapide p = plateaux[ply];
+        int[] c = coups[ply];
+        int n = p.genererCoups(c);
+        if (n == 0) {
+            c[0] = Coup.PASSE;
+            n = 1;
+        }
+        long[] k = clesFils[ply];
+        for (int i = 0; i < n; i++) k[i] = cle ^ Zobrist.deplacement(p, c[i]);
+        return n;
+    }
+
+    /**
+     * phi et delta du fils i de plateaux[ply], du point de vue du joueur au trait du fils
+     */
+    private void evaluerFils(int ply, int i, int restantFils) {
+        PlateauRapide p = plateaux[ply];
+        int coup = coups[ply][i];
+        if (coup != Coup.PASSE && (p.licornes & (1L << Coup.arrivee(coup))) != 0) {
+            // Licorne prise : le fils est perdu pour son joueur au trait
+            phi = INF;
+            delta = 0;
+        } else if (restantFils == 0) {
+            // Horizon sans prise : le défenseur a tenu
+            boolean attaquantAuTrait = -p.trait == attaquant;
+            phi = attaquantAuTrait ? INF : 0;
+            delta = attaquantAuTrait ? 0 : INF;
+        } else {
+            sonder(clesFils[ply][i], restantFils);
+        }
+    }
+
+    private void sonder(long cle, int restant) {
+        long k = cle + restant * SEL_RESTANT;
+        int j = (int) k & masque;
+        if (cles[j] == k) {
+            phi = phis[j];
+            delta = deltas[j];
+        } else {
+            phi = 1;
+            delta = 1;
+        }
+    }
+
+    private void enregistrer(long cle, int restant, int phiNoeud, int deltaNoeud) {
+        long k = cle + restant * SEL_RESTANT;
+        int j = (int) k & masque;
+        cles[j] = k;
+        phis[j] = phiNoeud;
+        deltas[j] = deltaNoeud;
+    }
+
+    public void vider() {
+        Arrays.fill(cles, 0);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("SolveurPn Usage: FichierPositions [DemiCoups=9] [NoeudsMax=5000000]");
+            System.exit(1);
+        }
+        int demiCoups = args.length > 1 ? Integer.parseInt(args[1]) : 9;
+        long noeudsMax = args.length > 2 ? Long.parseLong(args[2]) : 5_000_000;
+        List<PositionJeu> positions = new ArrayList<>(NotationPosition.lireFichier(Paths.get(args[0])));
+
+        SolveurPn solveur = new SolveurPn(Integer.getInteger("escampe.solveur.table", 20));
+        int prouvees = 0;
+        long tempsTotal = 0;
+        for (PositionJeu p : positions) {
+            solveur.vider();
+            solveur.preparer(p);
+            long debut = System.nanoTime();
+            int r = solveur.resoudre(demiCoups, noeudsMax);
+            long us = (System.nanoTime() - debut) / 1000;
+            tempsTotal += us;
+            if (r == PROUVE) prouvees++;
+            System.out.printf("%-40s %-7s %-6s %10d noeuds %9.3f ms%n", NotationPosition.ecrire(p),
+                    r == PROUVE ? "PROUVE" : r == REFUTE ? "REFUTE" : "INCONNU",
+                    r == PROUVE ? Coup.toString(solveur.getCoupGagnant()) : "-", solveur.getNoeuds(), us / 1000.0);
+        }
+        System.out.printf("%d/%d prises forcées en %d demi-coups, %.1f ms au total%n", prouvees, positions.size(),
+                demiCoups, tempsTotal / 1000.0);
+    }
+}
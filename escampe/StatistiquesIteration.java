@@ -0,0 +1,47 @@
+package escampe;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Statistiques d'une itération complète de l'approfondissement itératif
+ */
+public class StatistiquesIteration {
+    public final int profondeur;
+    // Demi-coup le plus profond visité pendant l'itération
+    public final int profondeurSelective;
+    public final String meilleurCoup;
+    public final int score;
+    public final List<String> variantePrincipale;
+    // Noeuds de cette itération seule
+    public final long noeuds;
+    // Temps écoulé depuis le début de la recherche
+    public final long tempsMs;
+    public final long coupures;
+    public final long succesTable;
+    // Rapport noeuds de l'itération / noeuds de l'itération précédente
+    public final double facteurBranchement;
+
+    public StatistiquesIteration(int profondeur, int profondeurSelective, String meilleurCoup, int score,
+                                 List<String> variantePrincipale, long noeuds, long tempsMs, long coupures,
+                                 long succesTable, double facteurBranchement) {
+        this.profondeur = profondeur;
+        this.profondeurSelective = profondeurSelective;
+        this.meilleurCoup = meilleurCoup;
+        this.score = score;
+        this.variantePrincipale = Collections.unmodifiableList(variantePrincipale);
+        this.noeuds = noeuds;
+        this.tempsMs = tempsMs;
+        this.coupures = coupures;
+        this.succesTable = succesTable;
+        this.facteurBranchement = facteurBranchement;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(java.util.Locale.ROOT,
+                "profondeur %d/%d score %d noeuds %d temps %d ms coupures %d table %d bf %.2f pv %s",
+                profondeur, profondeurSelective, score, noeuds, tempsMs, coupures, succesTable,
+                facteurBranchement, String.join(" ", variantePrincipale));
+    }
+}
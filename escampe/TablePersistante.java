@@ -0,0 +1,238 @@
+package escampe;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Table de transposition persistante : un fichier projeté en mémoire qui garde, d'une partie à
+ * l'autre, les résultats des recherches profondes (ouvertures et placements reviennent souvent).
+ *
+ * Les entrées ont le format de TableTransposition (clé XOR donnée, donnée), la donnée étant
+ * celle de TableTransposition : ses accesseurs score, coup, profondeur et borne s'y appliquent.
+ * Les joueurs ne font que lire, sans verrou ; une entrée à moitié écrite par une fusion
+ * concurrente est écartée par la vérification de la clé. Une table d'au plus PRECHARGE_MAX
+ * octets est chargée en mémoire à l'ouverture : aucune lecture de la recherche ne provoque
+ * alors de défaut de page.
+ *
+ * L'écriture est réservée aux fusions hors partie (fin d'une partie Solo, fin d'AnalyseLot,
+ * main de cette classe), sous verrou de fichier : une entrée n'est remplacée que par une
+ * entrée au moins aussi profonde.
+ *
+ * En-tête de 64 octets : MAGIQUE, log2 du nombre d'entrées, nombre d'entrées écrites ; puis
+ * 16 octets par entrée, en petit-boutiste.
+ *
+ * Exemple: >java -Descampe.tablePersistante=ouvertures.tt -cp . escampe.Solo
+ *          >java -cp . escampe.TablePersistante ouvertures.tt autre1.tt autre2.tt
+ */
+public final class TablePersistante {
+    public static final String PROPRIETE = "escampe.tablePersistante";
+    // Profondeur restante minimale d'une entrée versée dans la table
+    public static final int PROFONDEUR_MIN = Integer.getInteger(PROPRIETE + ".profondeurMin", 4);
+    public static final long PRECHARGE_MAX = Long.getLong(PROPRIETE + ".prechargeMax", 64L << 20);
+
+    private static final long MAGIQUE = 0x3130505454534345L; // "ESCTTP01"
+    private static final int TAILLE_ENTETE = 64;
+    private static final int LOG2_DEFAUT = Integer.getInteger(PROPRIETE + ".log2", 20);
+
+    private static final Object VERROU_CONFIGUREE = new Object();
+    private static boolean configureeOuverte;
+    private static TablePersistante configuree;
+
+    private final LongBuffer entrees;
+    private final int masque;
+
+    private TablePersistante(LongBuffer entrees, int log2Entrees) {
+        this.entrees = entrees;
+        this.masque = (1 << log2Entrees) - 1;
+    }
+
+    /**
+     * Table du fichier désigné par -Descampe.tablePersistante, ouverte une fois par JVM ; null
+     * si la propriété est absente ou le fichier illisible
+     */
+    public static TablePersistante configuree() {
+        synchronized (VERROU_CONFIGUREE) {
+            if (!configureeOuverte) {
+                configureeOuverte = true;
+                String fichier = System.getProperty(PROPRIETE);
+                if (fichier != null && Files.exists(Paths.get(fichier))) {
+                    try {
+                        configuree = ouvrir(Paths.get(fichier));
+                    } catch (IOException e) {
+                        System.err.println("Table persistante " + fichier + " illisible : " + e.getMessage());
+                    }
+                }
+            }
+            return configuree;
+        }
+    }
+
+    /**
+     * Ouvre une table en lecture seule, chargée en mémoire si elle est assez petite
+     */
+    public static TablePersistante ouvrir(Path fichier) throws IOException {
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ)) {
+            int log2 = lireEntete(canal, fichier);
+            MappedByteBuffer m = canal.map(FileChannel.MapMode.READ_ONLY, 0, taille(log2));
+            if (m.capacity() <= PRECHARGE_MAX) m.load();
+            return new TablePersistante(entrees(m), log2);
+        }
+    }
+
+    /**
+     * Donnée associée à cle (au format de TableTransposition), AUCUNE si elle est absente
+     */
+    public long sonder(long cle) {
+        int i = ((int) cle & masque) << 1;
+        long d = entrees.get(i + 1);
+        return d != TableTransposition.AUCUNE && (entrees.get(i) ^ d) == cle ? d : TableTransposition.AUCUNE;
+    }
+
+    public int getNbEntrees() {
+        return masque + 1;
+    }
+
+    /**
+     * Verse dans le fichier (créé au besoin avec 2^LOG2_DEFAUT entrées) les entrées de la
+     * table d'au moins PROFONDEUR_MIN demi-coups
+     *
+     * @return le nombre d'entrées écrites
+     */
+    public static int fusionner(Path fichier, TableTransposition source) throws IOException {
+        try (Ecriture e = new Ecriture(fichier)) {
+            for (int i = 0; i < source.getNbEntrees(); i++) {
+                e.verser(source.cleEntree(i), source.donneeEntree(i));
+            }
+            return e.ecrites;
+        }
+    }
+
+    /**
+     * Verse dans le fichier les entrées d'une autre table persistante
+     *
+     * @return le nombre d'entrées écrites
+     */
+    public static int fusionner(Path fichier, TablePersistante source) throws IOException {
+        try (Ecriture e = new Ecriture(fichier)) {
+            for (int i = 0; i <= source.masque; i++) {
+                long d = source.entrees.get(2 * i + 1);
+                e.verser(source.entrees.get(2 * i) ^ d, d);
+            }
+            return e.ecrites;
+        }
+    }
+
+    /**
+     * Fusion dans le fichier de -Descampe.tablePersistante, s'il y en a un ; une erreur est
+     * signalée sans interrompre l'outil appelant
+     */
+    public static void fusionnerSiConfiguree(TableTransposition source) {
+        String fichier = System.getProperty(PROPRIETE);
+        if (fichier == null || source == null) return;
+        try {
+            int n = fusionner(Paths.get(fichier), source);
+            System.err.println(n + " entrées versées dans la table persistante " + fichier);
+        } catch (IOException e) {
+            System.err.println("Fusion dans la table persistante " + fichier + " impossible : " + e.getMessage());
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("TablePersistante Usage: FichierDestination FichierSource...");
+            System.exit(1);
+        }
+        for (int k = 1; k < args.length; k++) {
+            int n = fusionner(Paths.get(args[0]), ouvrir(Paths.get(args[k])));
+            System.out.println(args[k] + " : " + n + " entrées versées dans " + args[0]);
+        }
+    }
+
+    private static long taille(int log2) {
+        return TAILLE_ENTETE + (16L << log2);
+    }
+
+    private static LongBuffer entrees(MappedByteBuffer m) {
+        m.order(ByteOrder.LITTLE_ENDIAN).position(TAILLE_ENTETE);
+        return m.slice().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+    }
+
+    private static int lireEntete(FileChannel canal, Path fichier) throws IOException {
+        MappedByteBuffer entete = canal.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(canal.size(), TAILLE_ENTETE));
+        entete.order(ByteOrder.LITTLE_ENDIAN);
+        if (entete.capacity() < TAILLE_ENTETE || entete.getLong(0) != MAGIQUE) {
+            throw new IOException(fichier + " n'est pas une table persistante");
+        }
+        long log2 = entete.getLong(8);
+        if (log2 < 4 || log2 > 26 || canal.size() < taille((int) log2)) {
+            throw new IOException(fichier + " : en-tête invalide ou fichier tronqué");
+        }
+        return (int) log2;
+    }
+
+    /**
+     * Fusion en cours : fichier projeté en écriture sous verrou exclusif
+     */
+    private static final class Ecriture implements AutoCloseable {
+        private final FileChannel canal;
+        private final FileLock verrou;
+        private final MappedByteBuffer carte;
+        private final LongBuffer entrees;
+        private final int masque;
+        int ecrites;
+
+        Ecriture(Path fichier) throws IOException {
+            canal = FileChannel.open(fichier, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+            try {
+                verrou = canal.lock();
+                int log2;
+                if (canal.size() == 0) {
+                    log2 = LOG2_DEFAUT;
+                    carte = canal.map(FileChannel.MapMode.READ_WRITE, 0, taille(log2));
+                    carte.order(ByteOrder.LITTLE_ENDIAN).putLong(0, MAGIQUE).putLong(8, log2);
+                } else {
+                    log2 = lireEntete(canal, fichier);
+                    carte = canal.map(FileChannel.MapMode.READ_WRITE, 0, taille(log2));
+                }
+                entrees = TablePersistante.entrees(carte);
+                masque = (1 << log2) - 1;
+            } catch (IOException | RuntimeException e) {
+                canal.close();
+                throw e;
+            }
+        }
+
+        void verser(long cle, long donnee) {
+            if (donnee == TableTransposition.AUCUNE) return;
+            int profondeur = TableTransposition.profondeur(donnee);
+            if (profondeur < PROFONDEUR_MIN) return;
+            int i = ((int) cle & masque) << 1;
+            long ancienne = entrees.get(i + 1);
+            if (ancienne != TableTransposition.AUCUNE && TableTransposition.profondeur(ancienne) > profondeur) return;
+            // Donnée d'abord, clé ensuite : un lecteur concurrent voit au pire une entrée rejetée
+            entrees.put(i + 1, donnee);
+            entrees.put(i, cle ^ donnee);
+            ecrites++;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                carte.order(ByteOrder.LITTLE_ENDIAN);
+                carte.putLong(16, carte.getLong(16) + ecrites);
+                carte.force();
+                verrou.release();
+            } finally {
+                canal.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package escampe;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * Table de transposition à adressage direct, partageable entre threads sans verrou.
+ *
+ * Chaque entrée tient dans deux long : la clé XOR la donnée, puis la donnée empaquetée. Une
+ * écriture concurrente peut mélanger la clé d'une entrée et la donnée d'une autre ; la
+ * vérification clé ^ donnée == clé cherchée écarte alors l'entrée au lieu de rendre un
+ * score faux.
+ *
+ * La table est hors du tas (ByteBuffer directs) : le GC n'a ni à la marquer ni à la
+ * déplacer, et le tas n'a pas à être agrandi pour elle. Les tampons directs sont toutefois
+ * plafonnés par -XX:MaxDirectMemorySize, qui vaut -Xmx par défaut : une table plus grande que
+ * -Xmx demande ce seul réglage (par exemple -XX:MaxDirectMemorySize=5g pour 4 Go), sans
+ * toucher à -Xmx ni au GC. Une table qui ne tient pas sous le plafond est refusée avec un
+ * message qui le dit, sans être réduite. Les entrées vont par seaux de quatre, un seau par
+ * ligne de cache de 64 octets alignée : un sondage ne coûte qu'un défaut de cache. Au-delà
+ * de 1 Go, la table est découpée en segments (une ByteBuffer ne dépasse pas 2 Go).
+ *
+ * Une table globale (voir globale) sert toutes les parties d'une JVM (Solo, ClientMultiJeu) :
+ * la mémoire ne dépend pas du nombre de parties. Chaque partie ouverte reçoit une génération,
+ * inscrite dans les entrées qu'elle écrit ; l'entrée remplacée dans un seau est d'abord une
+ * entrée d'une partie terminée, puis la moins profonde. Une entrée d'une autre partie trouvée
+ * par une recherche est rafraîchie à la génération de celle-ci dès qu'elle est lue (voir
+ * rafraichir), coupure ou non. La table n'est jamais vidée entre les parties : les entrées
+ * d'une partie fermée restent lisibles jusqu'à être remplacées, ce qu'elles sont en
+ * premier. Ouvrir une partie ne coûte donc rien, même sur une table de plusieurs Go.
+ *
+ * Taille de la table globale : -Descampe.table.taille=4G (ou 256M, 512K ; Mo sans unité),
+ * arrondie à la puissance de deux inférieure ; à défaut 2^escampe.table entrées.
+ *
+ * Donnée : score (32 bits) | coup (13 bits) | profondeur (8 bits) | borne (2 bits) | valide
+ *          | génération (8 bits)
+ */
+public final class TableTransposition {
+    public static final int EXACTE = 0;
+    public static final int MINORANT = 1; // score >= valeur stockée (coupure beta)
+    public static final int MAJORANT = 2; // score <= valeur stockée (aucun coup n'a dépassé alpha)
+
+    public static final long AUCUNE = 0;
+    // Génération des recherches hors partie (analyse, outils), jamais considérée terminée
+    public static final int HORS_PARTIE = 0;
+
+    private static final int DECALAGE_COUP = 32;
+    private static final int DECALAGE_PROFONDEUR = 45;
+    private static final int DECALAGE_BORNE = 53;
+    private static final long VALIDE = 1L << 55;
+    private static final int DECALAGE_GENERATION = 56;
+    private static final int NB_GENERATIONS = 256;
+    private static final int COUP_ABSENT = 0x1FFF;
+
+    private static final int TAILLE_ENTREE = 16;
+    private static final int ENTREES_PAR_SEAU = 4;
+    private static final int LOG2_SEAU = 6; // 64 octets, une ligne de cache
+    private static final int LOG2_SEGMENT = 30; // 1 Go
+    private static final int MASQUE_SEGMENT = (1 << LOG2_SEGMENT) - 1;
+    // Morceaux effacés en parallèle par vider
+    private static final int MORCEAU = 1 << 20;
+    private static final ByteBuffer ZERO = ByteBuffer.allocateDirect(MORCEAU);
+
+    // sun.misc.Unsafe, lu par réflexion (JDK 8 et suivants), pour l'adresse des tampons
+    // directs ; null s'il est indisponible (les segments ne sont alors pas alignés)
+    private static final Object UNSAFE;
+    private static final Method LIRE_LONG;
+    private static final long DECALAGE_ADRESSE;
+    // Unsafe.invokeCleaner (JDK 9 et suivants), null avant : voir liberer
+    private static final Method LIBERER;
+
+    static {
+        Object unsafe = null;
+        Method lireLong = null;
+        long decalage = -1;
+        try {
+            Class<?> classe = Class.forName("sun.misc.Unsafe");
+            Field instance = classe.getDeclaredField("theUnsafe");
+            instance.setAccessible(true);
+            unsafe = instance.get(null);
+            decalage = (Long) classe.getMethod("objectFieldOffset", Field.class)
+                    .invoke(unsafe, Buffer.class.getDeclaredField("address"));
+            lireLong = classe.getMethod("getLong", Object.class, long.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            unsafe = null;
+        }
+        Method liberer = null;
+        if (unsafe != null) {
+            try {
+                liberer = unsafe.getClass().getMethod("invokeCleaner", ByteBuffer.class);
+            } catch (NoSuchMethodException e) {
+                liberer = null;
+            }
+        }
+        UNSAFE = unsafe;
+        LIRE_LONG = lireLong;
+        DECALAGE_ADRESSE = decalage;
+        LIBERER = liberer;
+    }
+
+    private static final int LOG2_GLOBALE = Integer.getInteger("escampe.table", 20); // 2^20 entrées, 16 Mo
+    private static final String TAILLE_GLOBALE = System.getProperty("escampe.table.taille");
+    private static TableTransposition globale;
+
+    private final ByteBuffer[] segments;
+    private final long masqueSeaux;
+    private final int nbEntrees;
+    // Générations des parties en cours, modifiées sous le verrou de la table ; lues sans
+    // verrou par enregistrer (une valeur périmée ne fait que choisir une autre victime)
+    private final boolean[] enCours = new boolean[NB_GENERATIONS];
+    private int derniereGeneration;
+
+    /**
+     * @param log2Entrees log2 du nombre d'entrées (16 octets chacune)
+     */
+    public TableTransposition(int log2Entrees) {
+        if (log2Entrees < 4 || log2Entrees > 30) {
+            throw new IllegalArgumentException("Taille de table invalide: 2^" + log2Entrees);
+        }
+        long taille = (long) TAILLE_ENTREE << log2Entrees;
+        segments = new ByteBuffer[(int) Math.max(1, taille >>> LOG2_SEGMENT)];
+        ByteBuffer[] bruts = new ByteBuffer[segments.length];
+        for (int k = 0; k < segments.length; k++) {
+            int tailleSegment = (int) Math.min(taille, 1L << LOG2_SEGMENT);
+            // allocateDirect n'aligne que sur 8 octets : marge d'une ligne, puis tranche alignée
+            ByteBuffer brut;
+            try {
+                brut = ByteBuffer.allocateDirect(tailleSegment + (1 << LOG2_SEAU));
+            } catch (OutOfMemoryError e) {
+                // Les segments déjà alloués sont rendus tout de suite, sans attendre le GC
+                for (int j = 0; j < k; j++) liberer(bruts[j]);
+                throw e;
+            }
+            bruts[k] = brut;
+            int debut = (int) (-adresse(brut) & ((1 << LOG2_SEAU) - 1));
+            brut.position(debut);
+            brut.limit(debut + tailleSegment);
+            segments[k] = brut.slice().order(ByteOrder.nativeOrder());
+        }
+        masqueSeaux = (1L << (log2Entrees - 2)) - 1;
+        nbEntrees = 1 << log2Entrees;
+        enCours[HORS_PARTIE] = true;
+    }
+
+    /**
+     * Adresse du tampon direct b, 0 si elle n'est pas lisible
+     */
+    private static long adresse(ByteBuffer b) {
+        if (UNSAFE == null) return 0;
+        try {
+            return (Long) LIRE_LONG.invoke(UNSAFE, b, DECALAGE_ADRESSE);
+        } catch (ReflectiveOperationException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Rend la mémoire d'un tampon direct sans attendre le GC (le tampon ne doit plus servir)
+     */
+    private static void liberer(ByteBuffer b) {
+        try {
+            if (LIBERER != null) {
+                LIBERER.invoke(UNSAFE, b);
+            } else {
+                // JDK 8 : DirectByteBuffer.cleaner().clean()
+                Method cleaner = b.getClass().getMethod("cleaner");
+                cleaner.setAccessible(true);
+                Object c = cleaner.invoke(b);
+                if (c != null) c.getClass().getMethod("clean").invoke(c);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Le GC la rendra
+        }
+    }
+
+    /**
+     * Plafond de la mémoire directe en octets (-XX:MaxDirectMemorySize, -Xmx par défaut), -1
+     * s'il n'est pas lisible
+     */
+    static long plafondMemoireDirecte() {
+        try {
+            HotSpotDiagnosticMXBean hotspot = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            long plafond = Long.parseLong(hotspot.getVMOption("MaxDirectMemorySize").getValue());
+            return plafond > 0 ? plafond : Runtime.getRuntime().maxMemory();
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Table d'au plus octets octets (au moins 2^4 entrées)
+     */
+    public static TableTransposition avecTaille(long octets) {
+        long entrees = Math.max(1, octets / TAILLE_ENTREE);
+        return new TableTransposition(Math.max(4, Math.min(30, 63 - Long.numberOfLeadingZeros(entrees))));
+    }
+
+    /**
+     * Taille en octets d'après "4G", "256M", "512K" ou "64" (Mo)
+     */
+    public static long lireTaille(String texte) {
+        String t = texte.trim().toUpperCase(Locale.ROOT);
+        int decalage = 20;
+        char unite = t.isEmpty() ? ' ' : t.charAt(t.length() - 1);
+        if (unite == 'G' || unite == 'M' || unite == 'K') {
+            decalage = unite == 'G' ? 30 : unite == 'M' ? 20 : 10;
+            t = t.substring(0, t.length() - 1);
+        }
+        return Long.parseLong(t.trim()) << decalage;
+    }
+
+    /**
+     * Table partagée par tous les joueurs de la JVM qui n'en reçoivent pas d'autre, créée au
+     * premier appel
+     *
+     * @throws IllegalStateException si elle ne tient pas sous le plafond de la mémoire directe
+     */
+    public static synchronized TableTransposition globale() {
+        if (globale == null) {
+            long octets = TAILLE_GLOBALE != null ? lireTaille(TAILLE_GLOBALE) : (long) TAILLE_ENTREE << LOG2_GLOBALE;
+            // Segments, marges d'alignement et tampon de zéros compris
+            long besoin = octets + (octets >>> LOG2_SEGMENT) * (1 << LOG2_SEAU) + (1 << LOG2_SEAU) + MORCEAU;
+            long plafond = plafondMemoireDirecte();
+            if (plafond >= 0 && besoin > plafond) {
+                throw new IllegalStateException(refus(octets, "mémoire directe limitée à " + (plafond >> 20) + " Mo"));
+            }
+            try {
+                globale = avecTaille(octets);
+            } catch (OutOfMemoryError e) {
+                throw new IllegalStateException(refus(octets, e.getMessage()), e);
+            }
+        }
+        return globale;
+    }
+
+    private static String refus(long octets, String raison) {
+        long besoin = (octets >> 20) + (octets >> 26) + 64;
+        return "Table de transposition de " + (octets >> 20) + " Mo impossible (" + raison
+                + ") : lancer la JVM avec -XX:MaxDirectMemorySize=" + besoin + "m, ou réduire -Descampe.table.taille";
+    }
+
+    /**
+     * Ouvre une partie : ses entrées seront gardées en priorité jusqu'à fermerPartie. Les
+     * générations tournent, la moins récemment ouverte d'abord, pour que les entrées d'une
+     * partie fermée aient le temps d'être remplacées avant que sa génération ne resserve.
+     *
+     * @return sa génération, HORS_PARTIE si toutes les générations sont prises
+     */
+    public synchronized int ouvrirPartie() {
+        for (int k = 1; k < NB_GENERATIONS; k++) {
+            int g = (derniereGeneration + k) % NB_GENERATIONS;
+            if (g != HORS_PARTIE && !enCours[g]) {
+                enCours[g] = true;
+                derniereGeneration = g;
+                return g;
+            }
+        }
+        return HORS_PARTIE;
+    }
+
+    /**
+     * Ferme une partie : ses entrées seront remplacées en premier
+     */
+    public synchronized void fermerPartie(int generation) {
+        if (generation != HORS_PARTIE && enCours[generation]) {
+            enCours[generation] = false;
+        }
+    }
+
+    /**
+     * Donnée associée à cle, AUCUNE si l'entrée est absente ou a été écrasée
+     */
+    public long sonder(long cle) {
+        long o = (cle & masqueSeaux) << LOG2_SEAU;
+        ByteBuffer b = segments[(int) (o >>> LOG2_SEGMENT)];
+        int p = (int) o & MASQUE_SEGMENT;
+        for (int k = 0; k < ENTREES_PAR_SEAU; k++, p += TAILLE_ENTREE) {
+            long d = b.getLong(p + 8);
+            if ((b.getLong(p) ^ d) == cle) return d;
+        }
+        return AUCUNE;
+    }
+
+    /**
+     * Passe l'entrée de cle à la génération generation, pour qu'une entrée d'une autre partie
+     * lue par une recherche ne soit pas remplacée en premier
+     */
+    public void rafraichir(long cle, int generation) {
+        long o = (cle & masqueSeaux) << LOG2_SEAU;
+        ByteBuffer b = segments[(int) (o >>> LOG2_SEGMENT)];
+        int p = (int) o & MASQUE_SEGMENT;
+        for (int k = 0; k < ENTREES_PAR_SEAU; k++, p += TAILLE_ENTREE) {
+            long d = b.getLong(p + 8);
+            if ((b.getLong(p) ^ d) == cle) {
+                ecrire(b, p, cle, (d & ~(-1L << DECALAGE_GENERATION)) | (long) generation << DECALAGE_GENERATION);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Enregistre un résultat de la partie generation, sauf si le seau contient déjà la même
+     * position cherchée plus profondément (elle passe alors à cette génération)
+     */
+    public void enregistrer(long cle, int profondeur, int score, int borne, int coup, int generation) {
+        long o = (cle & masqueSeaux) << LOG2_SEAU;
+        ByteBuffer b = segments[(int) (o >>> LOG2_SEGMENT)];
+        int p = (int) o & MASQUE_SEGMENT;
+        int victime = p;
+        int rangVictime = Integer.MAX_VALUE;
+        for (int k = 0; k < ENTREES_PAR_SEAU; k++, p += TAILLE_ENTREE) {
+            long ancienne = b.getLong(p + 8);
+            if ((b.getLong(p) ^ ancienne) == cle && (ancienne & VALIDE) != 0) {
+                if (profondeur(ancienne) > profondeur) {
+                    if (generation(ancienne) != generation) {
+                        ecrire(b, p, cle, (ancienne & ~(-1L << DECALAGE_GENERATION)) | (long) generation << DECALAGE_GENERATION);
+                    }
+                    return;
+                }
+                victime = p;
+                break;
+            }
+            // Entrée vide ou d'une partie terminée d'abord, puis la moins profonde
+            int rang = (ancienne & VALIDE) == 0 || !enCours[generation(ancienne)] ? -1 : profondeur(ancienne);
+            if (rang < rangVictime) {
+                rangVictime = rang;
+                victime = p;
+            }
+        }
+
+        long d = (score & 0xFFFFFFFFL)
+               | ((long) (coup == Coup.INVALIDE ? COUP_ABSENT : coup & COUP_ABSENT) << DECALAGE_COUP)
+               | ((long) Math.min(profondeur, 255) << DECALAGE_PROFONDEUR)
+               | ((long) borne << DECALAGE_BORNE)
+               | VALIDE
+               | (long) generation << DECALAGE_GENERATION;
+        ecrire(b, victime, cle, d);
+    }
+
+    private static void ecrire(ByteBuffer b, int p, long cle, long d) {
+        b.putLong(p + 8, d);
+        b.putLong(p, cle ^ d);
+    }
+
+    /**
+     * Efface toutes les entrées, par morceaux de 1 Mo répartis sur le pool commun
+     */
+    public void vider() {
+        int nbMorceaux = (int) Math.max(1, ((long) nbEntrees * TAILLE_ENTREE) / MORCEAU);
+        if (nbMorceaux == 1) {
+            effacerMorceau(0);
+        } else {
+            IntStream.range(0, nbMorceaux).parallel().forEach(this::effacerMorceau);
+        }
+    }
+
+    private void effacerMorceau(int m) {
+        long o = (long) m * MORCEAU;
+        ByteBuffer b = segments[(int) (o >>> LOG2_SEGMENT)];
+        int p = (int) o & MASQUE_SEGMENT;
+        ByteBuffer cible = b.duplicate();
+        cible.position(p);
+        ByteBuffer zero = ZERO.duplicate();
+        zero.limit(Math.min(MORCEAU, b.capacity() - p));
+        cible.put(zero);
+    }
+
+    public int getNbEntrees() {
+        return nbEntrees;
+    }
+
+    /**
+     * Clé de l'entrée i (pour parcourir la table, voir TablePersistante)
+     */
+    long cleEntree(int i) {
+        long o = (long) i * TAILLE_ENTREE;
+        ByteBuffer b = segments[(int) (o >>> LOG2_SEGMENT)];
+        int p = (int) o & MASQUE_SEGMENT;
+        return b.getLong(p) ^ b.getLong(p + 8);
+    }
+
+    long donneeEntree(int i) {
+        long o = (long) i * TAILLE_ENTREE;
+        return segments[(int) (o >>> LOG2_SEGMENT)].getLong(((int) o & MASQUE_SEGMENT) + 8);
+    }
+
+    public static int score(long donnee) {
+        return (int) donnee;
+    }
+
+    public static int coup(long donnee) {
+        int c = (int) (donnee >>> DECALAGE_COUP) & COUP_ABSENT;
+        return c == COUP_ABSENT ? Coup.INVALIDE : c;
+    }
+
+    public static int profondeur(long donnee) {
+        return (int) (donnee >>> DECALAGE_PROFONDEUR) & 0xFF;
+    }
+
+    public static int borne(long donnee) {
+        return (int) (donnee >>> DECALAGE_BORNE) & 3;
+    }
+
+    public static int generation(long donnee) {
+        return (int) (donnee >>> DECALAGE_GENERATION);
+    }
+}
@@ -0,0 +1,327 @@
+package escampe;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Réglage des poids de l'heuristique par la méthode de Texel : on minimise l'erreur
+ * quadratique entre le résultat des parties et l'évaluation statique passée dans une
+ * sigmoïde, par recherche locale sur chaque paramètre.
+ *
+ * Format des positions étiquetées (une par ligne, '#' pour les commentaires) :
+ *     position vainqueur
+ * - position : la notation de NotationPosition (plateau, trait, liseré), par exemple
+ *   n1N1n1/3n2/bn2bn/6/1b1b1b/2B3 b 2
+ * - vainqueur : 'n', 'b' ou '=' pour une partie nulle
+ *
+ * Les positions se tirent des parties archivées par ServeurArbitre (voir ArchiveParties) :
+ * le mode extraire rejoue chaque partie et écrit chacune de ses positions après les
+ * placements, étiquetée par le résultat de la partie.
+ *
+ * Exemple: java -cp . escampe.TunerTexel extraire parties.txt positions.txt
+ *          java -cp . escampe.TunerTexel positions.txt poids.properties
+ */
+public class TunerTexel {
+    // Taille des blocs de positions répartis sur les coeurs
+    private static final int TAILLE_BLOC = 1 << 14;
+    private static final int MAX_ITERATIONS = 200;
+    private static final int[][] DIRECTIONS = {{1,0}, {-1,0}, {0,1}, {0,-1}};
+
+    // Traits pré-extraits, stockés colonne par colonne pour rester compacts
+    private int nbPositions;
+    private int[] traitLisere = new int[1024];
+    private int[] traitMobilite = new int[1024];   // 2 * cases contrôlées - cases adverses
+    private int[] traitControle = new int[1024];   // cases contrôlées - cases adverses
+    private int[] traitLicorne = new int[1024];    // licorne du joueur présente
+    private int[] traitMenace = new int[1024];     // menaces sur la licorne adverse - menaces subies
+    private long[] masquePieces = new long[1024];  // cases occupées par le joueur
+    private float[] resultat = new float[1024];    // 1 victoire, 0 défaite, 0.5 nulle
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || (args[0].equals("extraire") && args.length < 3)) {
+            System.err.println("TunerTexel Usage: FichierPositions [FichierPoidsSortie] [PoidsDepart]");
+            System.err.println("                  extraire FichierParties FichierPositions");
+            System.exit(1);
+        }
+        if (args[0].equals("extraire")) {
+            long t0 = System.currentTimeMillis();
+            long n = extraire(Paths.get(args[1]), Paths.get(args[2]));
+            System.out.println(n + " positions écrites dans " + args[2] + " en " + (System.currentTimeMillis() - t0) + " ms");
+            return;
+        }
+        Path sortie = Paths.get(args.length > 1 ? args[1] : PoidsHeuristique.FICHIER_DEFAUT);
+        PoidsHeuristique depart = args.length > 2 ? PoidsHeuristique.lire(Paths.get(args[2])) : PoidsHeuristique.defaut();
+
+        TunerTexel tuner = new TunerTexel();
+        long t0 = System.currentTimeMillis();
+        tuner.charger(Paths.get(args[0]));
+        System.out.println(tuner.nbPositions + " positions chargées en " + (System.currentTimeMillis() - t0) + " ms");
+        if (tuner.nbPositions == 0) {
+            System.exit(1);
+        }
+
+        PoidsHeuristique optimum = tuner.optimiser(depart);
+        optimum.ecrire(sortie, "Poids réglés par TunerTexel sur " + tuner.nbPositions + " positions");
+        System.out.println("Poids écrits dans " + sortie);
+    }
+
+    /**
+     * Rejoue les parties de l'archive et écrit leurs positions étiquetées, du premier coup
+     * après les placements au dernier avant la prise ; les parties sans placements complets
+     * sont ignorées
+     *
+     * @return le nombre de positions écrites
+     */
+    public static long extraire(Path fichierParties, Path fichierPositions) throws IOException {
+        long n = 0;
+        PlateauRapide p = new PlateauRapide();
+        try (ArchiveParties archive = new ArchiveParties(fichierParties);
+             BufferedWriter out = Files.newBufferedWriter(fichierPositions, StandardCharsets.UTF_8)) {
+            out.write("# Positions de " + fichierParties.getFileName() + " : notation puis vainqueur");
+            out.newLine();
+            for (int i = 0; i < archive.getNbParties(); i++) {
+                ArchiveParties.Partie partie = archive.lire(i);
+                String vainqueur = partie.vainqueur.equals("Blanc") ? "b" : partie.vainqueur.equals("Noir") ? "n" : "=";
+                List<String> coups = partie.coups;
+                if (coups.size() < 2 || !coups.get(0).contains("/") || !coups.get(1).contains("/")) continue;
+
+                // Noir place en premier, Blanc ensuite puis a le trait
+                EtatJeu etat = new EtatJeu(IJoueur.NOIR);
+                etat.setTrace(false);
+                etat.appliquerPlacementInitial(coups.get(0));
+                etat.appliquerCoupAdversaire(coups.get(1));
+                p.charger(etat, IJoueur.BLANC);
+                for (int k = 2; k < coups.size() && p.vainqueur == 0; k++) {
+                    out.write(p.toString());
+                    out.write(' ');
+                    out.write(vainqueur);
+                    out.newLine();
+                    n++;
+                    int c = Coup.lire(coups.get(k));
+                    p.jouer(c == Coup.INVALIDE ? Coup.PASSE : c);
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Charge un fichier de positions étiquetées et en extrait les traits
+     */
+    public void charger(Path fichier) throws IOException {
+        PositionJeu position = new PositionJeu();
+        int numLigne = 0;
+        int verifiees = 0;
+        PoidsHeuristique reference = PoidsHeuristique.defaut();
+
+        try (BufferedReader in = Files.newBufferedReader(fichier, StandardCharsets.UTF_8)) {
+            String ligne;
+            while ((ligne = in.readLine()) != null) {
+                numLigne++;
+                ligne = ligne.trim();
+                if (ligne.isEmpty() || ligne.charAt(0) == '#') continue;
+
+                String vainqueur;
+                try {
+                    int fin = NotationPosition.lire(ligne, 0, ligne.length(), position);
+                    vainqueur = ligne.substring(fin).trim();
+                } catch (IllegalArgumentException e) {
+                    vainqueur = "";
+                }
+                if (!vainqueur.equals("n") && !vainqueur.equals("b") && !vainqueur.equals("=")) {
+                    System.err.println("Ligne " + numLigne + " ignorée: " + ligne);
+                    continue;
+                }
+                int[][] board = position.plateau;
+                int[][] types = position.typePiece;
+
+                boolean licorneNoire = false, licorneBlanche = false;
+                for (int i = 0; i < 36; i++) {
+                    if (types[i / 6][i % 6] != EtatJeu.LICORNE) continue;
+                    licorneNoire |= board[i / 6][i % 6] == EtatJeu.NOIR;
+                    licorneBlanche |= board[i / 6][i % 6] == EtatJeu.BLANC;
+                }
+                // Les positions terminales n'apprennent rien à l'évaluation
+                if (!licorneNoire || !licorneBlanche) continue;
+
+                int joueur = position.trait;
+                float res;
+                if (vainqueur.equals("=")) res = 0.5f;
+                else res = (vainqueur.equals("n") ? EtatJeu.NOIR : EtatJeu.BLANC) == joueur ? 1f : 0f;
+
+                ajouter(board, types, joueur, res);
+
+                // Vérifier sur les premières positions que les traits reproduisent l'heuristique
+                if (verifiees < 1000) {
+                    int attendu = MonJoueur.heuristique(board, types, joueur, reference);
+                    int obtenu = evaluer(nbPositions - 1, reference.versVecteur());
+                    if (attendu != obtenu) {
+                        throw new IllegalStateException("Traits incohérents avec l'heuristique ligne " + numLigne
+                                + ": " + obtenu + " au lieu de " + attendu);
+                    }
+                    verifiees++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Extrait les traits d'une position du point de vue du joueur, en suivant exactement
+     * les termes de MonJoueur.heuristique
+     */
+    private void ajouter(int[][] board, int[][] types, int player, float res) {
+        if (nbPositions == resultat.length) agrandir();
+
+        int lisere = 0, licorne = 0, menace = 0;
+        int controleSelf = 0, controleOpponent = 0;
+        long masque = 0L;
+
+        for (int r = 0; r < 6; r++) {
+            for (int c = 0; c < 6; c++) {
+                if (board[r][c] == EtatJeu.VIDE) continue;
+                boolean mienne = board[r][c] == player;
+                int max = EtatJeu.LISERE[r][c];
+                if (mienne) {
+                    lisere += max;
+                    masque |= 1L << (r * 6 + c);
+                    if (types[r][c] == EtatJeu.LICORNE) licorne++;
+                }
+
+                int casesControlees = 0;
+                for (int[] d : DIRECTIONS) {
+                    int nr = r, nc = c;
+                    for (int step = 1; step <= max; step++) {
+                        nr += d[0];
+                        nc += d[1];
+                        if (nr >= 0 && nr < 6 && nc >= 0 && nc < 6) {
+                            casesControlees++;
+                            if (types[r][c] == EtatJeu.PALADIN && board[nr][nc] == -board[r][c]
+                                    && types[nr][nc] == EtatJeu.LICORNE && step == max) {
+                                menace += mienne ? 1 : -1;
+                            }
+                        }
+                    }
+                }
+                if (mienne) controleSelf += casesControlees;
+                else controleOpponent += casesControlees;
+            }
+        }
+
+        int i = nbPositions++;
+        traitLisere[i] = lisere;
+        traitMobilite[i] = 2 * controleSelf - controleOpponent;
+        traitControle[i] = controleSelf - controleOpponent;
+        traitLicorne[i] = licorne;
+        traitMenace[i] = menace;
+        masquePieces[i] = masque;
+        resultat[i] = res;
+    }
+
+    private void agrandir() {
+        int n = resultat.length * 2;
+        traitLisere = Arrays.copyOf(traitLisere, n);
+        traitMobilite = Arrays.copyOf(traitMobilite, n);
+        traitControle = Arrays.copyOf(traitControle, n);
+        traitLicorne = Arrays.copyOf(traitLicorne, n);
+        traitMenace = Arrays.copyOf(traitMenace, n);
+        masquePieces = Arrays.copyOf(masquePieces, n);
+        resultat = Arrays.copyOf(resultat, n);
+    }
+
+    /**
+     * Évaluation linéaire d'une position pré-extraite pour le vecteur de poids p
+     */
+    private int evaluer(int i, int[] p) {
+        int positionnel = 0;
+        long m = masquePieces[i];
+        while (m != 0) {
+            positionnel += p[PoidsHeuristique.IDX_VALEUR_POSITION + Long.numberOfTrailingZeros(m)];
+            m &= m - 1;
+        }
+        return traitLisere[i] * p[PoidsHeuristique.IDX_LISERE]
+             + positionnel * p[PoidsHeuristique.IDX_POSITION]
+             + traitLicorne[i] * p[PoidsHeuristique.IDX_BONUS_LICORNE]
+             + traitMenace[i] * p[PoidsHeuristique.IDX_BONUS_MENACE]
+             + traitMobilite[i] * p[PoidsHeuristique.IDX_MOBILITE]
+             + traitControle[i] * p[PoidsHeuristique.IDX_CONTROLE];
+    }
+
+    /**
+     * Erreur quadratique moyenne, calculée en parallèle par blocs sur tous les coeurs
+     */
+    public double erreur(int[] p, double k) {
+        int nbBlocs = (nbPositions + TAILLE_BLOC - 1) / TAILLE_BLOC;
+        double somme = IntStream.range(0, nbBlocs).parallel().mapToDouble(b -> {
+            int fin = Math.min(nbPositions, (b + 1) * TAILLE_BLOC);
+            double e = 0;
+            for (int i = b * TAILLE_BLOC; i < fin; i++) {
+                double s = 1.0 / (1.0 + Math.pow(10.0, -k * evaluer(i, p) / 400.0));
+                double d = resultat[i] - s;
+                e += d * d;
+            }
+            return e;
+        }).sum();
+        return somme / nbPositions;
+    }
+
+    /**
+     * Cherche la constante d'échelle K de la sigmoïde qui minimise l'erreur (recherche ternaire)
+     */
+    public double calibrerK(int[] p) {
+        double a = 0.001, b = 10.0;
+        for (int it = 0; it < 60; it++) {
+            double m1 = a + (b - a) / 3, m2 = b - (b - a) / 3;
+            if (erreur(p, m1) < erreur(p, m2)) b = m2;
+            else a = m1;
+        }
+        return (a + b) / 2;
+    }
+
+    /**
+     * Recherche locale : chaque paramètre est augmenté puis diminué d'une unité tant que
+     * l'erreur baisse
+     */
+    public PoidsHeuristique optimiser(PoidsHeuristique depart) {
+        int[] p = depart.versVecteur();
+        double k = calibrerK(p);
+        double meilleure = erreur(p, k);
+        System.out.println("K = " + k + ", erreur initiale = " + meilleure);
+
+        boolean ameliore = true;
+        for (int it = 1; ameliore && it <= MAX_ITERATIONS; it++) {
+            long t0 = System.currentTimeMillis();
+            ameliore = false;
+            for (int i = 0; i < p.length; i++) {
+                p[i]++;
+                double e = erreur(p, k);
+                if (e < meilleure) {
+                    meilleure = e;
+                    ameliore = true;
+                    continue;
+                }
+                p[i] -= 2;
+                e = erreur(p, k);
+                if (e < meilleure) {
+                    meilleure = e;
+                    ameliore = true;
+                    continue;
+                }
+                p[i]++;
+            }
+            System.out.println("Itération " + it + ": erreur = " + meilleure + " (" + (System.currentTimeMillis() - t0) + " ms)");
+        }
+
+        for (int i = 0; i < p.length; i++) {
+            System.out.println(PoidsHeuristique.nomParametre(i) + " = " + p[i]);
+        }
+        return new PoidsHeuristique(p);
+    }
+}
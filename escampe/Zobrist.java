@@ -0,0 +1,96 @@
+package escampe;
+
+/**
+ * Clés de Zobrist des positions : une valeur aléatoire par (pièce, case), par liseré
+ * contraint et pour le trait. Les valeurs sont tirées d'une graine fixe pour que les clés
+ * soient les mêmes d'une exécution à l'autre.
+ *
+ * La recherche de MonJoueur évalue toujours du point de vue du joueur à la racine : ce
+ * point de vue fait partie de la clé pour qu'une table partagée entre recherches des deux
+ * couleurs ne mélange pas leurs scores.
+ */
+public final class Zobrist {
+    // [pièce][case], pièce = 0 paladin noir, 1 licorne noire, 2 paladin blanc, 3 licorne blanche
+    private static final long[][] PIECES = new long[4][36];
+    private static final long[] LISERES = new long[4];
+    private static final long TRAIT_BLANC;
+    private static final long POINT_DE_VUE_BLANC;
+
+    static {
+        long graine = 0x45534341_4D504521L;
+        for (int p = 0; p < 4; p++) {
+            for (int s = 0; s < 36; s++) {
+                PIECES[p][s] = graine = melanger(graine);
+            }
+        }
+        for (int l = 1; l < 4; l++) {
+            LISERES[l] = graine = melanger(graine);
+        }
+        TRAIT_BLANC = graine = melanger(graine);
+        POINT_DE_VUE_BLANC = melanger(graine);
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Clé complète d'une position
+     *
+     * @param trait couleur qui doit jouer
+     * @param pointDeVue couleur du joueur à la racine de la recherche
+     */
+    public static long hacher(int[][] board, int[][] types, int trait, int lisere, int pointDeVue) {
+        long cle = LISERES[lisere];
+        for (int r = 0; r < 6; r++) {
+            for (int c = 0; c < 6; c++) {
+                if (board[r][c] != EtatJeu.VIDE) cle ^= PIECES[piece(board[r][c], types[r][c])][r * 6 + c];
+            }
+        }
+        if (trait == IJoueur.BLANC) cle ^= TRAIT_BLANC;
+        if (pointDeVue == IJoueur.BLANC) cle ^= POINT_DE_VUE_BLANC;
+        return cle;
+    }
+
+    /**
+     * Différence de clé du coup (fr, fc) -> (sr, sc), à calculer avant de jouer le coup
+     */
+    public static long deplacement(int[][] board, int[][] types, int fr, int fc, int sr, int sc, int lisere) {
+        int p = piece(board[fr][fc], types[fr][fc]);
+        long diff = PIECES[p][fr * 6 + fc] ^ PIECES[p][sr * 6 + sc]
+                  ^ LISERES[lisere] ^ LISERES[EtatJeu.LISERE[sr][sc]] ^ TRAIT_BLANC;
+        if (board[sr][sc] != EtatJeu.VIDE) diff ^= PIECES[piece(board[sr][sc], types[sr][sc])][sr * 6 + sc];
+        return diff;
+    }
+
+    /**
+     * Différence de clé du coup (voir Coup) joué par le joueur au trait de p, à calculer avant
+     * de jouer le coup ; PASSE ne change que le trait et lève la contrainte
+     */
+    static long deplacement(PlateauRapide p, int coup) {
+        if (coup == Coup.PASSE) return LISERES[p.lisere] ^ TRAIT_BLANC;
+        int dep = Coup.depart(coup), arr = Coup.arrivee(coup);
+        long diff = LISERES[p.lisere] ^ LISERES[PlateauRapide.LISERE[arr]] ^ TRAIT_BLANC;
+        int pc = piece(p, dep);
+        diff ^= PIECES[pc][dep] ^ PIECES[pc][arr];
+        if (((p.noirs | p.blancs) & (1L << arr)) != 0) diff ^= PIECES[piece(p, arr)][arr];
+        return diff;
+    }
+
+    private static int piece(PlateauRapide p, int s) {
+        long b = 1L << s;
+        return ((p.noirs & b) != 0 ? 0 : 2) + ((p.licornes & b) != 0 ? 1 : 0);
+    }
+
+    private static int piece(int couleur, int type) {
+        return (couleur == IJoueur.NOIR ? 0 : 2) + (type == EtatJeu.LICORNE ? 1 : 0);
+    }
+
+    // SplitMix64
+    private static long melanger(long x) {
+        x += 0x9E3779B97F4A7C15L;
+        long z = x;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -5,9 +5,10 @@ set -e
 PROF_JAR="escampeobf.jar"
 OUT_DIR="out"
 JAR_NAME="SkitouCamara.jar"
+CDS_ARCHIVE="SkitouCamara.jsa"
 
 # 2. Nettoyage & préparation
-rm -rf "$OUT_DIR" "$JAR_NAME" mainClass
+rm -rf "$OUT_DIR" "$JAR_NAME" "$CDS_ARCHIVE" IJoueur.jar mainClass
 mkdir -p "$OUT_DIR"
 
 # 3. Compilation de toutes les sources (prof + IA)
@@ -18,7 +19,29 @@ javac -cp "$PROF_JAR" -d "$OUT_DIR" *.java
   cd "$OUT_DIR"
   jar cf "../$JAR_NAME" \
     escampe/MonJoueur*.class \
-    escampe/Solo*.class
+    escampe/EtatJeu*.class \
+    escampe/PoidsHeuristique*.class \
+    escampe/Echauffement*.class \
+    escampe/Demarrage*.class \
+    escampe/IJoueurRapide*.class \
+    escampe/IJoueurConnexion*.class \
+    escampe/Coup*.class \
+    escampe/MetriquesRecherche*.class \
+    escampe/ResultatRecherche*.class \
+    escampe/StatistiquesIteration*.class \
+    escampe/EcouteurRecherche*.class \
+    escampe/PositionJeu*.class \
+    escampe/NotationPosition*.class \
+    escampe/Zobrist*.class \
+    escampe/TableTransposition*.class \
+    escampe/TablePersistante*.class \
+    escampe/CacheEvaluation*.class \
+    escampe/CartesControle*.class \
+    escampe/JoueurMcts*.class \
+    escampe/PlateauRapide*.class \
+    escampe/Alea*.class \
+    escampe/Solo*.class \
+    escampe/SolveurPn*.class
 )
 
 # 5. Génération du fichier mainClass pour eCampus
@@ -30,3 +53,15 @@ EOF
 
 echo "✔ JAR généré : $JAR_NAME"
 echo "✔ Fichier mainClass créé"
+
+# 6. Démarrage rapide (./build.sh cds) : archive AppCDS des classes chargées jusqu'au premier
+#    coup, par une exécution d'entraînement (voir escampe.Demarrage). L'archive n'est valable
+#    qu'avec le même classpath, fait de jars seulement ; IJoueur, fourni par l'arbitre, est
+#    mis dans son propre jar
+if [ "$1" = "cds" ]; then
+  (cd "$OUT_DIR" && jar cf ../IJoueur.jar escampe/IJoueur.class)
+  CP="$JAR_NAME:$PROF_JAR:IJoueur.jar"
+  java -XX:ArchiveClassesAtExit="$CDS_ARCHIVE" -Descampe.debug=false -cp "$CP" escampe.Demarrage --entrainement
+  echo "✔ Archive CDS générée : $CDS_ARCHIVE"
+  echo "  Lancement : java -XX:SharedArchiveFile=$CDS_ARCHIVE -cp $CP escampe.ClientJeu ..."
+fi